@@ -0,0 +1,94 @@
+package jp.co.axa.apidemo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.val;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Entry point of the JMH benchmarks.<br/>
+ * Accepts the same arguments as the JMH runner, and always writes the result as JSON to "benchmark.result",
+ * so that the results of the different commits can be compared.
+ * If "benchmark.baseline" is given, the result is compared with it, and the process exits with 1 when any benchmark
+ * is slower than the baseline by more than "benchmark.threshold" percent.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    val resultFile = System.getProperty("benchmark.result", "target/jmh-result.json");
+    val baselineFile = System.getProperty("benchmark.baseline", "");
+    val threshold = Double.parseDouble(System.getProperty("benchmark.threshold", "10"));
+
+    new File(resultFile).getAbsoluteFile().getParentFile().mkdirs();
+    val options = new OptionsBuilder()
+      .parent(new CommandLineOptions(args))
+      .resultFormat(ResultFormatType.JSON)
+      .result(resultFile)
+      .build();
+    new Runner(options).run();
+
+    if (!baselineFile.isEmpty() && !compare(new File(baselineFile), new File(resultFile), threshold)) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Compare the primary metric of each benchmark in the two JMH JSON results.
+   *
+   * @return false if any benchmark regressed more than the threshold.
+   */
+  static boolean compare(File baselineFile, File resultFile, double thresholdPercent) throws IOException {
+    val baseline = readScores(baselineFile);
+    val current = readScores(resultFile);
+    boolean passed = true;
+    System.out.println();
+    System.out.println(String.format("%-90s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+    for (Map.Entry<String, Score> entry : current.entrySet()) {
+      val base = baseline.get(entry.getKey());
+      if (base == null) {
+        continue;
+      }
+      val now = entry.getValue();
+      // Positive change means regression regardless of the mode.
+      val change = (now.higherIsBetter ? base.value - now.value : now.value - base.value) / base.value * 100;
+      val regressed = change > thresholdPercent;
+      passed &= !regressed;
+      System.out.println(String.format("%-90s %14.3f %14.3f %8.1f%% %s %s", entry.getKey(), base.value, now.value,
+        change, now.unit, regressed ? "REGRESSED" : ""));
+    }
+    return passed;
+  }
+
+  private static Map<String, Score> readScores(File file) throws IOException {
+    val scores = new LinkedHashMap<String, Score>();
+    for (JsonNode run : new ObjectMapper().readTree(file)) {
+      val key = new StringBuilder(run.path("benchmark").asText());
+      run.path("params").fields().forEachRemaining(param ->
+        key.append(':').append(param.getKey()).append('=').append(param.getValue().asText()));
+      val metric = run.path("primaryMetric");
+      scores.put(key.toString(), new Score(metric.path("score").asDouble(), metric.path("scoreUnit").asText(),
+        "thrpt".equals(run.path("mode").asText())));
+    }
+    return scores;
+  }
+
+  private static class Score {
+    private final double value;
+    private final String unit;
+    private final boolean higherIsBetter;
+
+    Score(double value, String unit, boolean higherIsBetter) {
+      this.value = value;
+      this.unit = unit;
+      this.higherIsBetter = higherIsBetter;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package jp.co.axa.apidemo;
+
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from the start of the application to the first successful request of the employee list, with the default
+ * and the production profile.<br/>
+ * Each fork measures one cold start in a new JVM, so that the class loading and the interpreter are included as in
+ * a new instance. More forks give the stable score: -f 10.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+  @Param({"default", "production"})
+  private String profile;
+
+  private ConfigurableApplicationContext context;
+
+  @Benchmark
+  public int startToFirstRequest() throws IOException {
+    // Logs are limited to the warnings, so that the output of JMH stays readable.
+    this.context = new SpringApplicationBuilder(ApiDemoApplication.class)
+      .profiles(profile)
+      .run("--server.port=0", "--logging.level.root=WARN");
+    val port = ((WebServerApplicationContext) context).getWebServer().getPort();
+    val connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/v1/employees").openConnection();
+    try (InputStream body = connection.getInputStream()) {
+      while (body.read() >= 0) {
+        // Whole response is read, as the client would.
+      }
+    }
+    if (connection.getResponseCode() != 200) {
+      throw new IllegalStateException("First request failed with " + connection.getResponseCode());
+    }
+    return connection.getResponseCode();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    if (Objects.nonNull(context)) {
+      context.close();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.bulkheads.EmployeeBulkheads;
+import jp.co.axa.apidemo.aggregates.DepartmentSalaryAggregates;
+import jp.co.axa.apidemo.caches.EmployeeCache;
+import jp.co.axa.apidemo.caches.EmployeeJsonCache;
+import jp.co.axa.apidemo.coalescing.EmployeeReadCoalescer;
+import jp.co.axa.apidemo.repositories.InMemoryEmployeeChangeRepository;
+import jp.co.axa.apidemo.repositories.InMemoryEmployeeRepository;
+import jp.co.axa.apidemo.services.EmployeeBatchWriter;
+import jp.co.axa.apidemo.services.EmployeeChangeLog;
+import jp.co.axa.apidemo.services.EmployeeExportReader;
+import jp.co.axa.apidemo.services.EmployeeGroupCommitter;
+import jp.co.axa.apidemo.services.EmployeeServiceImpl;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of assembling the response in the controller (Either chain and SimpleResponse wrapping),
+ * with and without the JSON serialization, on top of the service with the in-memory repository.
+ * Includes the hand-off to the bulkhead and back. Employees are written from the serialized JSON cache,
+ * which is warmed up by the first iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeControllerBenchmark {
+
+  private static final int SIZE = 10000;
+
+  private EmployeeController controller;
+  private ObjectMapper objectMapper;
+  private EmployeeBulkheads bulkheads;
+  private ServletWebRequest webRequest;
+
+  @Setup
+  public void setup() {
+    val repository = InMemoryEmployeeRepository.create(SIZE);
+    val shards = EmployeeShards.single();
+    val changeLog = new EmployeeChangeLog(InMemoryEmployeeChangeRepository.create(), shards);
+    val batchWriter = new EmployeeBatchWriter(repository, changeLog);
+    this.objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    val jsonCache = new EmployeeJsonCache(objectMapper, SIZE);
+    val service = new EmployeeServiceImpl(repository, batchWriter, new EmployeeExportReader(repository),
+      new EmployeeGroupCommitter(batchWriter, shards, false, Duration.ZERO, 1, Duration.ZERO), changeLog,
+      new EmployeeCache(SIZE, Duration.ofMinutes(5), Duration.ofSeconds(5)), jsonCache,
+      new DepartmentSalaryAggregates(repository, shards), shards, new EmployeeReadCoalescer(true, 64));
+    this.bulkheads = new EmployeeBulkheads(1, 16, Duration.ofSeconds(10), 1, 16, Duration.ofSeconds(10),
+      1, 16, Duration.ofSeconds(10));
+    this.controller = new EmployeeController(service, bulkheads, jsonCache, objectMapper);
+    // Request without If-None-Match, thus every call reads the page.
+    this.webRequest = new ServletWebRequest(new MockHttpServletRequest("GET", "/api/v1/employees"),
+      new MockHttpServletResponse());
+  }
+
+  @TearDown
+  public void tearDown() {
+    bulkheads.destroy();
+  }
+
+  private long randomId() {
+    return ThreadLocalRandom.current().nextLong(1, SIZE + 1);
+  }
+
+  @Benchmark
+  public Object getEmployee() {
+    return controller.getEmployee(randomId()).join();
+  }
+
+  @Benchmark
+  public byte[] getEmployeeAsJson() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(controller.getEmployee(randomId()).join().getBody());
+  }
+
+  @Benchmark
+  public Object getEmployees() {
+    return controller.getEmployees(null, EmployeeController.DEFAULT_PAGE_SIZE, null, null, null, null, null, webRequest,
+      webRequest.getResponse()).join();
+  }
+
+  @Benchmark
+  public byte[] getEmployeesAsJson() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(controller.getEmployees(null, EmployeeController.DEFAULT_PAGE_SIZE, null, null, null, null, null, webRequest,
+      webRequest.getResponse()).join());
+  }
+}
@@ -0,0 +1,38 @@
+package jp.co.axa.apidemo.entities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the validation which runs on every write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeEntityBenchmark {
+
+  private EmployeeEntity valid = new EmployeeEntity(1L, "Employee", 1000, "Dept");
+  private EmployeeEntity invalid = new EmployeeEntity(1L, "Employee", -1, "Dept");
+
+  @Benchmark
+  public boolean validateSelf() {
+    return valid.validateSelf();
+  }
+
+  @Benchmark
+  public boolean validateSelfWithInvalid() {
+    return invalid.validateSelf();
+  }
+}
@@ -0,0 +1,56 @@
+package jp.co.axa.apidemo.entities;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the JSON serialization of the employee list by the size of the list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeEntityJsonBenchmark {
+
+  @Param({"1", "100", "1000"})
+  private int size;
+
+  private List<EmployeeEntity> employees;
+  private ObjectWriter writer;
+
+  @Setup
+  public void setup() {
+    this.employees = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      employees.add(new EmployeeEntity((long) i, "Employee " + i, 1000 + i, "Dept " + (i % 10), 0L));
+    }
+    val objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    this.writer = objectMapper.writerFor(new TypeReference<List<EmployeeEntity>>() {
+    });
+  }
+
+  @Benchmark
+  public byte[] serialize() throws JsonProcessingException {
+    return writer.writeValueAsBytes(employees);
+  }
+}
@@ -0,0 +1,78 @@
+package jp.co.axa.apidemo.fanctor;
+
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the Either chain used in the controller (mapLeft, mapRight, then map), compared with the previous
+ * Optional based implementation. Run with "-prof gc" and compare gc.alloc.rate.norm (bytes per call).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EitherBenchmark {
+
+  private final String entity = "entity";
+
+  @Benchmark
+  public Object right() {
+    return Either.<CRUDErrorStatus, String>right(entity)
+      .mapLeft(CRUDErrorStatus::name)
+      .mapRight(e -> Collections.singletonMap("fetched", e))
+      .map(e -> e, r -> r);
+  }
+
+  @Benchmark
+  public Object left() {
+    return Either.<CRUDErrorStatus, String>left(CRUDErrorStatus.TARGET_NOT_FOUND)
+      .mapLeft(CRUDErrorStatus::name)
+      .mapRight(e -> Collections.singletonMap("fetched", e))
+      .map(e -> e, r -> r);
+  }
+
+  @Benchmark
+  public Object rightNull() {
+    return Either.<CRUDErrorStatus, String>right(null)
+      .mapRight(e -> Collections.singletonMap("deleted", e))
+      .mapLeft(CRUDErrorStatus::name)
+      .map(e -> e, r -> r);
+  }
+
+  @Benchmark
+  public Object legacyRight() {
+    return LegacyEither.<CRUDErrorStatus, String>right(entity)
+      .mapLeft(CRUDErrorStatus::name)
+      .mapRight(e -> Collections.singletonMap("fetched", e))
+      .map(e -> e, r -> r);
+  }
+
+  @Benchmark
+  public Object legacyLeft() {
+    return LegacyEither.<CRUDErrorStatus, String>left(CRUDErrorStatus.TARGET_NOT_FOUND)
+      .mapLeft(CRUDErrorStatus::name)
+      .mapRight(e -> Collections.singletonMap("fetched", e))
+      .map(e -> e, r -> r);
+  }
+
+  @Benchmark
+  public Object legacyRightNull() {
+    return LegacyEither.<CRUDErrorStatus, String>right(null)
+      .mapRight(e -> Collections.singletonMap("deleted", e))
+      .mapLeft(CRUDErrorStatus::name)
+      .map(e -> e, r -> r);
+  }
+}
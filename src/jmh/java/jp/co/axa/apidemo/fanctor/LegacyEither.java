@@ -0,0 +1,41 @@
+package jp.co.axa.apidemo.fanctor;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Previous implementation of {@link Either} which wraps both sides with Optional.
+ * Kept only as the baseline of {@link EitherBenchmark}.
+ */
+final class LegacyEither<L, R> {
+  static <L, R> LegacyEither<L, R> left(L value) {
+    return new LegacyEither<>(Optional.of(value), Optional.empty());
+  }
+
+  static <L, R> LegacyEither<L, R> right(R value) {
+    return new LegacyEither<>(Optional.empty(), Optional.ofNullable(value));
+  }
+
+  private final Optional<L> left;
+  private final Optional<R> right;
+
+  private LegacyEither(Optional<L> l, Optional<R> r) {
+    left = l;
+    right = r;
+  }
+
+  <T> T map(Function<? super L, ? extends T> lFunc, Function<? super R, ? extends T> rFunc) {
+    return left.<T>map(lFunc).orElseGet(() -> right.map(rFunc).orElse(null));
+  }
+
+  <T> LegacyEither<T, R> mapLeft(Function<? super L, ? extends T> lFunc) {
+    return new LegacyEither<>(left.map(lFunc), right);
+  }
+
+  <T> LegacyEither<L, T> mapRight(Function<? super R, ? extends T> rFunc) {
+    if (!left.isPresent() && !right.isPresent()) {
+      return new LegacyEither<>(left, Optional.ofNullable(rFunc.apply(null)));
+    }
+    return new LegacyEither<>(left, right.map(rFunc));
+  }
+}
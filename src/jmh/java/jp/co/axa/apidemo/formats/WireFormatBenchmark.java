@@ -0,0 +1,94 @@
+package jp.co.axa.apidemo.formats;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and decoding the page of the employee list in each wire format, by the size of the page.<br/>
+ * The page has the same shape as the response of the list API. The payload size of each format is printed on the
+ * setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+  private static final TypeReference<Map<String, Map<String, List<EmployeeEntity>>>> PAGE =
+    new TypeReference<Map<String, Map<String, List<EmployeeEntity>>>>() {
+    };
+
+  @Param({"100", "1000"})
+  private int size;
+
+  @Param({"json", "smile", "cbor"})
+  private String format;
+
+  private Map<String, Map<String, List<EmployeeEntity>>> page;
+  private ObjectWriter writer;
+  private ObjectReader reader;
+  private byte[] encoded;
+
+  @Setup
+  public void setup() throws IOException {
+    // Fixed seed, so that every format encodes the same page.
+    val random = new Random(42);
+    val employees = new ArrayList<EmployeeEntity>(size);
+    for (int i = 0; i < size; i++) {
+      employees.add(new EmployeeEntity((long) i + 1, "Employee " + Long.toString(random.nextLong(), 36),
+        300_000 + random.nextInt(1_000_000), "Dept " + random.nextInt(20), (long) random.nextInt(5)));
+    }
+    this.page = Collections.singletonMap("result", Collections.singletonMap("fetched", employees));
+    val objectMapper = builderOf(format).build();
+    this.writer = objectMapper.writerFor(PAGE);
+    this.reader = objectMapper.readerFor(PAGE);
+    this.encoded = writer.writeValueAsBytes(page);
+    System.out.println("Payload of " + size + " employees in " + format + ": " + encoded.length + " bytes");
+  }
+
+  private static Jackson2ObjectMapperBuilder builderOf(String format) {
+    switch (format) {
+      case "smile":
+        return Jackson2ObjectMapperBuilder.smile();
+      case "cbor":
+        return Jackson2ObjectMapperBuilder.cbor();
+      default:
+        return Jackson2ObjectMapperBuilder.json();
+    }
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return writer.writeValueAsBytes(page);
+  }
+
+  @Benchmark
+  public Object decode() throws IOException {
+    return reader.readValue(encoded);
+  }
+}
@@ -0,0 +1,46 @@
+package jp.co.axa.apidemo.funcs;
+
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping the error status into the response, which runs on every failed request,
+ * compared with creating the exception as it was done before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorResponseMapperBenchmark {
+
+  @Param({"TARGET_NOT_FOUND", "ALREADY_EXISTS", "UNKNOWN_FAILURE"})
+  private CRUDErrorStatus status;
+
+  @Benchmark
+  public Object apply() {
+    return ErrorResponseMapper.MAPPER.apply(status);
+  }
+
+  @Benchmark
+  public Object exception() {
+    // Stack trace is filled in the constructor, even if nobody reads it.
+    val error = ErrorResponseMapper.MAPPER.apply(status);
+    return new ResponseStatusException(error.getStatusCode(), error.getBody().getMessage());
+  }
+}
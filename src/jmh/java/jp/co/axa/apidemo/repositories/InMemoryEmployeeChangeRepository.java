@@ -0,0 +1,65 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.EmployeeChangeEntity;
+import lombok.val;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link EmployeeChangeRepository} backed by the map, for the benchmarks which exclude the DB.<br/>
+ * Only the methods used by the service layer are implemented. Others throw UnsupportedOperationException.
+ */
+public final class InMemoryEmployeeChangeRepository implements InvocationHandler {
+
+  private final ConcurrentMap<Long, EmployeeChangeEntity> table = new ConcurrentHashMap<>();
+
+  private InMemoryEmployeeChangeRepository() {
+  }
+
+  public static EmployeeChangeRepository create() {
+    return (EmployeeChangeRepository) Proxy.newProxyInstance(EmployeeChangeRepository.class.getClassLoader(),
+      new Class<?>[]{EmployeeChangeRepository.class}, new InMemoryEmployeeChangeRepository());
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "findAllById": {
+        val found = new ArrayList<EmployeeChangeEntity>();
+        ((Iterable<Long>) args[0]).forEach(id -> Optional.ofNullable(table.get(id)).ifPresent(found::add));
+        return found;
+      }
+      case "save": {
+        val change = (EmployeeChangeEntity) args[0];
+        table.put(change.getEmployeeId(), change);
+        return change;
+      }
+      case "findByChangeSeqBetweenOrderByChangeSeqAsc":
+        return table.values().stream()
+          .filter(c -> c.getChangeSeq() >= (Long) args[0] && c.getChangeSeq() <= (Long) args[1])
+          .sorted(Comparator.comparing(EmployeeChangeEntity::getChangeSeq))
+          .limit(((Pageable) args[2]).getPageSize())
+          .collect(Collectors.toList());
+      case "findMaxChangeSeq":
+        return table.values().stream().map(EmployeeChangeEntity::getChangeSeq).max(Long::compare).orElse(null);
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "equals":
+        return proxy == args[0];
+      case "toString":
+        return "InMemoryEmployeeChangeRepository";
+      default:
+        throw new UnsupportedOperationException(method.getName());
+    }
+  }
+}
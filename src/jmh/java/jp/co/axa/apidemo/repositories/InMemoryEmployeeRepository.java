@@ -0,0 +1,140 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.val;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * {@link EmployeeRepository} backed by the sorted map, for the benchmarks which exclude the DB.<br/>
+ * Only the methods used by the service layer are implemented. Others throw UnsupportedOperationException.
+ */
+public final class InMemoryEmployeeRepository implements InvocationHandler {
+
+  private final ConcurrentNavigableMap<Long, EmployeeEntity> table = new ConcurrentSkipListMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+
+  private InMemoryEmployeeRepository() {
+  }
+
+  /**
+   * Create the repository filled with the employees whose IDs are 1 to size.
+   */
+  public static EmployeeRepository create(int size) {
+    val handler = new InMemoryEmployeeRepository();
+    for (int i = 0; i < size; i++) {
+      handler.insert(new EmployeeEntity(null, "Employee " + i, 1000 + i, "Dept " + (i % 10)));
+    }
+    return (EmployeeRepository) Proxy.newProxyInstance(EmployeeRepository.class.getClassLoader(),
+      new Class<?>[]{EmployeeRepository.class}, handler);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "findById":
+        return Optional.ofNullable(table.get((Long) args[0])).map(EmployeeEntity::copy);
+      case "findAll":
+        return new ArrayList<>(table.values());
+      case "findAllById": {
+        val found = new ArrayList<EmployeeEntity>();
+        ((Iterable<Long>) args[0]).forEach(id -> Optional.ofNullable(table.get(id)).ifPresent(found::add));
+        return found;
+      }
+      case "findByIdGreaterThanOrderByIdAsc":
+        return this.page((Long) args[0], (Pageable) args[1]);
+      case "findByFilterAndIdGreaterThan":
+        return this.filter((EmployeeFilter) args[0], (Long) args[1], (Integer) args[2]);
+      case "findProjectionsByFilterAndIdGreaterThan":
+        return this.project((EmployeeFilter) args[0], (Set<EmployeeField>) args[1], (Long) args[2], (Integer) args[3]);
+      case "streamAllByOrderByIdAsc":
+        return table.values().stream();
+      case "save":
+      case "saveAndFlush":
+        return this.insert((EmployeeEntity) args[0]);
+      case "updateIfVersionMatches":
+        return this.update((Long) args[0], (Long) args[1], (String) args[2], (Integer) args[3], (String) args[4]);
+      case "deleteIfVersionMatches":
+        return table.computeIfPresent((Long) args[0], (id, e) -> Objects.equals(e.getVersion(), args[1]) ? null : e)
+          == null ? 1 : 0;
+      case "delete":
+        table.remove(((EmployeeEntity) args[0]).getId());
+        return null;
+      case "flush":
+      case "detach":
+        return null;
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "equals":
+        return proxy == args[0];
+      case "toString":
+        return "InMemoryEmployeeRepository";
+      default:
+        throw new UnsupportedOperationException(method.getName());
+    }
+  }
+
+  private List<EmployeeEntity> filter(EmployeeFilter filter, Long id, int limit) {
+    return table.tailMap(id, false).values().stream()
+      .filter(e -> filter.getDepartment() == null || filter.getDepartment().equals(e.getDepartment()))
+      .filter(e -> filter.getMinSalary() == null || (e.getSalary() != null && e.getSalary() >= filter.getMinSalary()))
+      .filter(e -> filter.getMaxSalary() == null || (e.getSalary() != null && e.getSalary() <= filter.getMaxSalary()))
+      .filter(e -> filter.getNamePrefix() == null
+        || (e.getName() != null && e.getName().startsWith(filter.getNamePrefix())))
+      .limit(limit)
+      .collect(Collectors.toList());
+  }
+
+  private List<EmployeeProjection> project(EmployeeFilter filter, Set<EmployeeField> fields, Long id, int limit) {
+    return this.filter(filter, id, limit).stream()
+      .map(e -> new EmployeeProjection(fields, e.getId(),
+        fields.contains(EmployeeField.NAME) ? e.getName() : null,
+        fields.contains(EmployeeField.SALARY) ? e.getSalary() : null,
+        fields.contains(EmployeeField.DEPARTMENT) ? e.getDepartment() : null,
+        fields.contains(EmployeeField.VERSION) ? e.getVersion() : null))
+      .collect(Collectors.toList());
+  }
+
+  private EmployeeEntity insert(EmployeeEntity employee) {
+    val id = Optional.ofNullable(employee.getId()).orElseGet(sequence::incrementAndGet);
+    val saved = employee.withId(id).withVersion(0L);
+    table.put(id, saved);
+    return saved.copy();
+  }
+
+  private int update(Long id, Long version, String name, Integer salary, String department) {
+    val updated = new boolean[1];
+    table.computeIfPresent(id, (key, e) -> {
+      if (!Objects.equals(e.getVersion(), version)) {
+        return e;
+      }
+      updated[0] = true;
+      return new EmployeeEntity(id, name, salary, department, version + 1);
+    });
+    return updated[0] ? 1 : 0;
+  }
+
+  private List<EmployeeEntity> page(Long after, Pageable pageable) {
+    val page = new ArrayList<EmployeeEntity>(pageable.getPageSize());
+    for (EmployeeEntity employee : table.tailMap(after, false).values()) {
+      if (page.size() >= pageable.getPageSize()) {
+        break;
+      }
+      page.add(employee);
+    }
+    return page;
+  }
+}
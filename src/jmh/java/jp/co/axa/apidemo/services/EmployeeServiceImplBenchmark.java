@@ -0,0 +1,88 @@
+package jp.co.axa.apidemo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.aggregates.DepartmentSalaryAggregates;
+import jp.co.axa.apidemo.caches.EmployeeCache;
+import jp.co.axa.apidemo.caches.EmployeeJsonCache;
+import jp.co.axa.apidemo.coalescing.EmployeeReadCoalescer;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.repositories.EmployeeField;
+import jp.co.axa.apidemo.repositories.EmployeeFilter;
+import jp.co.axa.apidemo.repositories.InMemoryEmployeeChangeRepository;
+import jp.co.axa.apidemo.repositories.InMemoryEmployeeRepository;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the service layer itself, with the in-memory repository instead of the DB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeServiceImplBenchmark {
+
+  private static final Set<EmployeeField> ID_AND_NAME = EnumSet.of(EmployeeField.ID, EmployeeField.NAME);
+
+  @Param({"10000"})
+  private int size;
+
+  private EmployeeServiceImpl service;
+
+  @Setup
+  public void setup() {
+    val repository = InMemoryEmployeeRepository.create(size);
+    val shards = EmployeeShards.single();
+    val changeLog = new EmployeeChangeLog(InMemoryEmployeeChangeRepository.create(), shards);
+    val batchWriter = new EmployeeBatchWriter(repository, changeLog);
+    this.service = new EmployeeServiceImpl(repository, batchWriter, new EmployeeExportReader(repository),
+      new EmployeeGroupCommitter(batchWriter, shards, false, Duration.ZERO, 1, Duration.ZERO), changeLog,
+      new EmployeeCache(size, Duration.ofMinutes(5), Duration.ofSeconds(5)),
+      new EmployeeJsonCache(new ObjectMapper(), size),
+      new DepartmentSalaryAggregates(repository, shards), shards, new EmployeeReadCoalescer(true, 64));
+  }
+
+  private long randomId() {
+    return ThreadLocalRandom.current().nextLong(1, size + 1);
+  }
+
+  @Benchmark
+  public Object getEmployee() {
+    return service.getEmployee(randomId());
+  }
+
+  @Benchmark
+  public Object retrieveEmployeesPage() {
+    return service.retrieveEmployees(randomId(), 100);
+  }
+
+  @Benchmark
+  public Object retrieveProjectionsPage() {
+    return service.retrieveEmployeeProjections(EmployeeFilter.NONE, ID_AND_NAME, randomId(), 100);
+  }
+
+  @Benchmark
+  public Object updateEmployee() {
+    val id = randomId();
+    return service.updateEmployee(new EmployeeEntity(id, "Employee " + id, (int) id, "Dept"));
+  }
+}
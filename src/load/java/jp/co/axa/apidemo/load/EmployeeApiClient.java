@@ -0,0 +1,152 @@
+package jp.co.axa.apidemo.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.funcs.PageTokenCodec;
+import lombok.val;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * HTTP client of the employee API for one simulated client.<br/>
+ * The whole response is always read, so that the connection is kept alive and reused for the next request.
+ * Status 0 means the request failed without the response, e.g. the connection was refused.
+ */
+class EmployeeApiClient {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final String baseUrl;
+  private final String clientId;
+
+  EmployeeApiClient(String baseUrl, String clientId) {
+    this.baseUrl = baseUrl + "/api/v1/employees";
+    this.clientId = clientId;
+  }
+
+  int list(long afterId, int pageSize) {
+    return this.send("GET", "?pageSize=" + pageSize + "&pageToken=" + PageTokenCodec.encode(afterId), null).status;
+  }
+
+  int get(long id) {
+    return this.send("GET", "/" + id, null).status;
+  }
+
+  /**
+   * @return ID of the created employee, or -status if failed.
+   */
+  long create(String name, int salary, String department) {
+    val response = this.send("POST", "", employeeJson(name, salary, department));
+    if (!response.isSuccessful()) {
+      return -response.status;
+    }
+    return this.readTree(response.body).path("result").path("created").path("id").asLong();
+  }
+
+  int update(long id, String name, int salary, String department) {
+    return this.send("PUT", "/" + id, employeeJson(name, salary, department)).status;
+  }
+
+  int delete(long id) {
+    return this.send("DELETE", "/" + id, null).status;
+  }
+
+  /**
+   * Create the employees in one batch.
+   *
+   * @return IDs of the created employees, or null if the batch failed.
+   */
+  long[] createAll(int from, int count) {
+    val body = new StringBuilder("{\"operations\":[");
+    for (int i = 0; i < count; i++) {
+      body.append(i == 0 ? "" : ",").append("{\"type\":\"CREATE\",\"employee\":")
+        .append(new String(employeeJson("Employee " + (from + i), 1000 + (from + i) % 100000,
+          "Dept " + (from + i) % 10), StandardCharsets.UTF_8))
+        .append('}');
+    }
+    val response = this.send("POST", ":batch", body.append("]}").toString().getBytes(StandardCharsets.UTF_8));
+    if (!response.isSuccessful()) {
+      return null;
+    }
+    val results = this.readTree(response.body).path("result").path("results");
+    val ids = new long[results.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = results.get(i).path("created").path("id").asLong();
+    }
+    return ids;
+  }
+
+  private static byte[] employeeJson(String name, int salary, String department) {
+    return ("{\"name\":\"" + name + "\",\"salary\":" + salary + ",\"department\":\"" + department + "\"}")
+      .getBytes(StandardCharsets.UTF_8);
+  }
+
+  private JsonNode readTree(byte[] body) {
+    try {
+      return OBJECT_MAPPER.readTree(body);
+    } catch (IOException e) {
+      throw new IllegalStateException("Response is not JSON.", e);
+    }
+  }
+
+  private Response send(String method, String path, byte[] body) {
+    HttpURLConnection connection = null;
+    try {
+      connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+      connection.setRequestMethod(method);
+      connection.setRequestProperty("X-Client-Id", clientId);
+      connection.setRequestProperty("Accept", "application/json");
+      if (Objects.nonNull(body)) {
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+          out.write(body);
+        }
+      }
+      val status = connection.getResponseCode();
+      return new Response(status, readFully(status < 400 ? connection.getInputStream() : connection.getErrorStream()));
+    } catch (IOException e) {
+      if (Objects.nonNull(connection)) {
+        // The broken connection must not be reused.
+        connection.disconnect();
+      }
+      return new Response(0, new byte[0]);
+    }
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    if (Objects.isNull(in)) {
+      return new byte[0];
+    }
+    try (InputStream body = in) {
+      val out = new ByteArrayOutputStream();
+      val buffer = new byte[8192];
+      for (int read; (read = body.read(buffer)) >= 0; ) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  private static final class Response {
+    private final int status;
+    private final byte[] body;
+
+    private Response(int status, byte[] body) {
+      this.status = status;
+      this.body = body;
+    }
+
+    private boolean isSuccessful() {
+      return status >= 200 && status < 300;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package jp.co.axa.apidemo.load;
+
+import lombok.val;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Distribution of the employees chosen by the operations.<br/>
+ * The keys are shuffled once, so that the hot keys of Zipf are spread over the IDs (and over the shards)
+ * instead of being the oldest employees.
+ */
+abstract class KeyDistribution {
+
+  enum Type {
+    UNIFORM, ZIPF
+  }
+
+  private final long[] keys;
+
+  private KeyDistribution(long[] keys) {
+    this.keys = keys.clone();
+    val random = new Random(keys.length);
+    for (int i = this.keys.length - 1; i > 0; i--) {
+      val j = random.nextInt(i + 1);
+      val key = this.keys[i];
+      this.keys[i] = this.keys[j];
+      this.keys[j] = key;
+    }
+  }
+
+  static KeyDistribution of(Type type, long[] keys, double zipfExponent) {
+    switch (type) {
+      case UNIFORM:
+        return new Uniform(keys);
+      case ZIPF:
+        return new Zipf(keys, zipfExponent);
+      default:
+        throw new IllegalArgumentException("Unknown distribution: " + type);
+    }
+  }
+
+  /**
+   * @param random random of the calling thread.
+   * @return chosen key.
+   */
+  long next(Random random) {
+    return keys[this.nextRank(random)];
+  }
+
+  /**
+   * @return rank of the key. 0 is the hottest.
+   */
+  abstract int nextRank(Random random);
+
+  int size() {
+    return keys.length;
+  }
+
+  private static final class Uniform extends KeyDistribution {
+
+    private Uniform(long[] keys) {
+      super(keys);
+    }
+
+    @Override
+    int nextRank(Random random) {
+      return random.nextInt(this.size());
+    }
+  }
+
+  /**
+   * Probability of the rank r is proportional to 1 / (r + 1)^exponent. Chosen by the binary search of the CDF.
+   */
+  private static final class Zipf extends KeyDistribution {
+    private final double[] cumulative;
+
+    private Zipf(long[] keys, double exponent) {
+      super(keys);
+      this.cumulative = new double[keys.length];
+      double sum = 0;
+      for (int rank = 0; rank < keys.length; rank++) {
+        sum += 1 / Math.pow(rank + 1, exponent);
+        cumulative[rank] = sum;
+      }
+    }
+
+    @Override
+    int nextRank(Random random) {
+      val point = random.nextDouble() * cumulative[cumulative.length - 1];
+      val index = Arrays.binarySearch(cumulative, point);
+      return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+  }
+}
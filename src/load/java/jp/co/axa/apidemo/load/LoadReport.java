@@ -0,0 +1,171 @@
+package jp.co.axa.apidemo.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.val;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latency and errors of each operation, merged from the recorders of all the clients.<br/>
+ * The latency is recorded only for the successful responses (2xx), so that the fast rejections, e.g. 503 of the
+ * admission control, do not make the latency look better. The failures are counted by the status instead.
+ */
+class LoadReport {
+
+  private static final String TOTAL = "total";
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+  private final Map<Operation, Map<Integer, Long>> errors = new EnumMap<>(Operation.class);
+  private final Histogram total = newHistogram();
+
+  static Histogram newHistogram() {
+    // Auto-resized, with 3 significant digits.
+    return new Histogram(3);
+  }
+
+  /**
+   * Add the records of one client.
+   */
+  synchronized void add(Recorder recorder) {
+    recorder.latencies.forEach((operation, histogram) -> {
+      latencies.computeIfAbsent(operation, key -> newHistogram()).add(histogram);
+      total.add(histogram);
+    });
+    recorder.errors.forEach((operation, byStatus) -> byStatus.forEach((status, count) ->
+      errors.computeIfAbsent(operation, key -> new TreeMap<>()).merge(status, count, Long::sum)));
+  }
+
+  /**
+   * Print the table of the operations.
+   *
+   * @param seconds measured duration.
+   */
+  void print(PrintStream out, double seconds) {
+    out.println();
+    out.println(String.format("%-8s %10s %12s %10s %10s %10s %10s %8s", "Op", "Count", "Ops/s", "p50 ms", "p99 ms",
+      "p999 ms", "max ms", "Errors"));
+    for (Map.Entry<String, Map<String, Number>> row : this.summarize(seconds).entrySet()) {
+      val summary = row.getValue();
+      out.println(String.format("%-8s %10d %12.1f %10.3f %10.3f %10.3f %10.3f %8d", row.getKey(),
+        summary.get("count").longValue(), summary.get("throughput").doubleValue(), summary.get("p50").doubleValue(),
+        summary.get("p99").doubleValue(), summary.get("p999").doubleValue(), summary.get("max").doubleValue(),
+        summary.get("errors").longValue()));
+    }
+    errors.forEach((operation, byStatus) ->
+      out.println("Errors of " + operation.getName() + " by status (0 = no response): " + byStatus));
+  }
+
+  /**
+   * Write the summary and the options as JSON, which can be given as the baseline of the later run.
+   */
+  void write(File file, double seconds, Map<String, Object> options) throws IOException {
+    val root = new LinkedHashMap<String, Object>();
+    root.put("options", options);
+    root.put("seconds", seconds);
+    root.put("operations", this.summarize(seconds));
+    file.getAbsoluteFile().getParentFile().mkdirs();
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, root);
+  }
+
+  private Map<String, Map<String, Number>> summarize(double seconds) {
+    val rows = new LinkedHashMap<String, Map<String, Number>>();
+    long totalErrors = 0;
+    for (Operation operation : Operation.values()) {
+      val histogram = latencies.getOrDefault(operation, newHistogram());
+      val operationErrors = errors.getOrDefault(operation, new TreeMap<>()).values().stream()
+        .mapToLong(Long::longValue).sum();
+      if (histogram.getTotalCount() == 0 && operationErrors == 0) {
+        continue;
+      }
+      totalErrors += operationErrors;
+      rows.put(operation.getName(), summarize(histogram, operationErrors, seconds));
+    }
+    rows.put(TOTAL, summarize(total, totalErrors, seconds));
+    return rows;
+  }
+
+  private static Map<String, Number> summarize(Histogram histogram, long errors, double seconds) {
+    val summary = new LinkedHashMap<String, Number>();
+    summary.put("count", histogram.getTotalCount());
+    summary.put("throughput", histogram.getTotalCount() / seconds);
+    summary.put("p50", histogram.getValueAtPercentile(50) / NANOS_PER_MILLI);
+    summary.put("p99", histogram.getValueAtPercentile(99) / NANOS_PER_MILLI);
+    summary.put("p999", histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI);
+    summary.put("max", histogram.getMaxValue() / NANOS_PER_MILLI);
+    summary.put("errors", errors);
+    return summary;
+  }
+
+  /**
+   * Compare the throughput and the p99 latency of each operation with the baseline result.
+   *
+   * @return false if any of them regressed more than the threshold.
+   */
+  static boolean compare(File baselineFile, File resultFile, double thresholdPercent, PrintStream out)
+    throws IOException {
+    val objectMapper = new ObjectMapper();
+    val baselineRoot = objectMapper.readTree(baselineFile);
+    val currentRoot = objectMapper.readTree(resultFile);
+    val baseline = baselineRoot.path("operations");
+    val current = currentRoot.path("operations");
+    boolean passed = true;
+    out.println();
+    if (!baselineRoot.path("options").equals(currentRoot.path("options"))) {
+      out.println("WARNING: Options are different from the baseline: " + baselineRoot.path("options"));
+    }
+    out.println(String.format("%-20s %14s %14s %9s", "Metric", "Baseline", "Current", "Change"));
+    for (Iterator<String> names = current.fieldNames(); names.hasNext(); ) {
+      val name = names.next();
+      if (!baseline.has(name)) {
+        continue;
+      }
+      // Positive change means regression for both of them.
+      passed &= compare(out, name + " ops/s", baseline.path(name), current.path(name), "throughput", true,
+        thresholdPercent);
+      passed &= compare(out, name + " p99 ms", baseline.path(name), current.path(name), "p99", false,
+        thresholdPercent);
+    }
+    return passed;
+  }
+
+  private static boolean compare(PrintStream out, String label, JsonNode baseline, JsonNode current, String metric,
+                                 boolean higherIsBetter, double thresholdPercent) {
+    val base = baseline.path(metric).asDouble();
+    val now = current.path(metric).asDouble();
+    if (base == 0) {
+      return true;
+    }
+    val change = (higherIsBetter ? base - now : now - base) / base * 100;
+    val regressed = change > thresholdPercent;
+    out.println(String.format("%-20s %14.3f %14.3f %8.1f%% %s", label, base, now, change,
+      regressed ? "REGRESSED" : ""));
+    return !regressed;
+  }
+
+  /**
+   * Records of one client. Not thread-safe, thus each client has its own.
+   */
+  static class Recorder {
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, Map<Integer, Long>> errors = new EnumMap<>(Operation.class);
+
+    void record(Operation operation, int status, long latencyNanos) {
+      if (status >= 200 && status < 300) {
+        latencies.computeIfAbsent(operation, key -> newHistogram()).recordValue(latencyNanos);
+      } else {
+        errors.computeIfAbsent(operation, key -> new TreeMap<>()).merge(status, 1L, Long::sum);
+      }
+    }
+  }
+}
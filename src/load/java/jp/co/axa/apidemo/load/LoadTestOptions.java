@@ -0,0 +1,150 @@
+package jp.co.axa.apidemo.load;
+
+import lombok.Getter;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of the load test, given as "--name=value" arguments.<br/>
+ * Arguments which are not the options (e.g. "--spring.profiles.active=production") are passed to the application.
+ */
+@Getter
+class LoadTestOptions {
+
+  /**
+   * Weights of the operations, e.g. "get:60,list:10,create:10,update:15,delete:5".
+   */
+  private Map<Operation, Integer> mix = parseMix("get:60,list:10,create:10,update:15,delete:5");
+  /**
+   * Number of the clients sending the requests at the same time. Each client has its own X-Client-Id.
+   */
+  private int concurrency = 16;
+  /**
+   * Total requests per second of all the clients. 0 to send the next request as soon as the response comes.
+   */
+  private double rate = 0;
+  private Duration warmup = Duration.ofSeconds(10);
+  private Duration duration = Duration.ofSeconds(30);
+  /**
+   * Number of the employees created before the test. get, update and list choose them by the key distribution.
+   */
+  private int datasetSize = 10000;
+  private KeyDistribution.Type keys = KeyDistribution.Type.UNIFORM;
+  private double zipfExponent = 0.99;
+  private int pageSize = 100;
+  /**
+   * URL of the running application, e.g. "http://localhost:8080". Empty to start the application in this process.
+   */
+  private String url = "";
+  private String result = "target/load-result.json";
+  private String baseline = "";
+  /**
+   * Max percent of the regression from the baseline, of the throughput and the p99 latency of each operation.
+   */
+  private double threshold = 10;
+  private final List<String> applicationArgs = new ArrayList<>();
+
+  static LoadTestOptions parse(String[] args) {
+    val options = new LoadTestOptions();
+    for (String arg : args) {
+      val separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator < 0) {
+        throw new IllegalArgumentException("Arguments must be --name=value: " + arg);
+      }
+      val value = arg.substring(separator + 1);
+      switch (arg.substring(2, separator)) {
+        case "mix":
+          options.mix = parseMix(value);
+          break;
+        case "concurrency":
+          options.concurrency = Integer.parseInt(value);
+          break;
+        case "rate":
+          options.rate = Double.parseDouble(value);
+          break;
+        case "warmup":
+          options.warmup = Duration.parse(value);
+          break;
+        case "duration":
+          options.duration = Duration.parse(value);
+          break;
+        case "dataset-size":
+          options.datasetSize = Integer.parseInt(value);
+          break;
+        case "keys":
+          options.keys = KeyDistribution.Type.valueOf(value.toUpperCase());
+          break;
+        case "zipf-exponent":
+          options.zipfExponent = Double.parseDouble(value);
+          break;
+        case "page-size":
+          options.pageSize = Integer.parseInt(value);
+          break;
+        case "url":
+          options.url = value;
+          break;
+        case "result":
+          options.result = value;
+          break;
+        case "baseline":
+          options.baseline = value;
+          break;
+        case "threshold":
+          options.threshold = Double.parseDouble(value);
+          break;
+        default:
+          options.applicationArgs.add(arg);
+      }
+    }
+    if (options.concurrency < 1 || options.datasetSize < 1) {
+      throw new IllegalArgumentException("concurrency and dataset-size must be larger than 0.");
+    }
+    return options;
+  }
+
+  private static Map<Operation, Integer> parseMix(String value) {
+    val mix = new EnumMap<Operation, Integer>(Operation.class);
+    for (String entry : value.split(",")) {
+      val pair = entry.trim().split(":");
+      if (pair.length != 2) {
+        throw new IllegalArgumentException("Mix must be operation:weight separated by commas: " + value);
+      }
+      val weight = Integer.parseInt(pair[1].trim());
+      if (weight < 0) {
+        throw new IllegalArgumentException("Weight must not be negative: " + entry);
+      }
+      mix.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+    }
+    if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+      throw new IllegalArgumentException("Mix must have any operation: " + value);
+    }
+    return Collections.unmodifiableMap(mix);
+  }
+
+  /**
+   * @return options in the result file, so that the results of the different options are not compared by mistake.
+   */
+  Map<String, Object> describe() {
+    val description = new LinkedHashMap<String, Object>();
+    val mixDescription = new LinkedHashMap<String, Integer>();
+    mix.forEach((operation, weight) -> mixDescription.put(operation.getName(), weight));
+    description.put("mix", mixDescription);
+    description.put("concurrency", concurrency);
+    description.put("rate", rate);
+    description.put("warmup", warmup.toString());
+    description.put("duration", duration.toString());
+    description.put("datasetSize", datasetSize);
+    description.put("keys", keys.name().toLowerCase());
+    description.put("zipfExponent", zipfExponent);
+    description.put("pageSize", pageSize);
+    description.put("applicationArgs", applicationArgs);
+    return description;
+  }
+}
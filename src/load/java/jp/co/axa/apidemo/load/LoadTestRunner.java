@@ -0,0 +1,233 @@
+package jp.co.axa.apidemo.load;
+
+import jp.co.axa.apidemo.ApiDemoApplication;
+import lombok.val;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Entry point of the load test of the employee API.<br/>
+ * Starts the application on the embedded server (unless "--url" is given), creates the dataset, then each client
+ * sends the operations of the mix until the warmup and the measurement end. Throughput and the latency percentiles of
+ * each operation are printed and written as JSON to "--result". If "--baseline" is given, the result is compared with
+ * it, and the process exits with 1 when the throughput or the p99 of any operation is worse by more than "--threshold"
+ * percent.<br/>
+ * Without "--rate", each client sends the next request as soon as the response comes (closed loop). With "--rate",
+ * the requests are sent on the schedule, and the latency is measured from the scheduled time, so that the requests
+ * delayed by the slow responses are counted as slow too.
+ */
+public class LoadTestRunner {
+
+  private static final int SEED_BATCH_SIZE = 1000;
+  private static final int SEED_ATTEMPTS = 10;
+
+  public static void main(String[] args) throws Exception {
+    val options = LoadTestOptions.parse(args);
+    // HttpURLConnection keeps only 5 idle connections per host by default.
+    System.setProperty("http.maxConnections", String.valueOf(options.getConcurrency() + 1));
+
+    ConfigurableApplicationContext context = null;
+    String baseUrl = options.getUrl();
+    if (baseUrl.isEmpty()) {
+      context = start(options.getApplicationArgs());
+      baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+    boolean passed;
+    try {
+      passed = run(options, baseUrl);
+    } finally {
+      if (Objects.nonNull(context)) {
+        context.close();
+      }
+    }
+    System.exit(passed ? 0 : 1);
+  }
+
+  private static ConfigurableApplicationContext start(List<String> applicationArgs) {
+    // Logs are limited to the warnings, so that the report stays readable.
+    // Clients are told apart by X-Client-Id, thus the header from this host is trusted.
+    val args = new ArrayList<String>(Arrays.asList("--server.port=0", "--logging.level.root=WARN",
+      "--employee.admission.trusted-proxies=127.0.0.1,0:0:0:0:0:0:0:1"));
+    args.addAll(applicationArgs);
+    return new SpringApplicationBuilder(ApiDemoApplication.class).run(args.toArray(new String[0]));
+  }
+
+  private static boolean run(LoadTestOptions options, String baseUrl) throws Exception {
+    System.out.println("Creating " + options.getDatasetSize() + " employees on " + baseUrl);
+    val keys = KeyDistribution.of(options.getKeys(), seed(new EmployeeApiClient(baseUrl, "load-seed"),
+      options.getDatasetSize()), options.getZipfExponent());
+    val created = new ConcurrentLinkedQueue<Long>();
+
+    System.out.println("Warming up for " + options.getWarmup());
+    runPhase(options, baseUrl, keys, created, options.getWarmup());
+    System.out.println("Measuring for " + options.getDuration() + " with " + options.describe());
+    val report = runPhase(options, baseUrl, keys, created, options.getDuration());
+
+    val seconds = options.getDuration().toNanos() / 1e9;
+    report.print(System.out, seconds);
+    val resultFile = new File(options.getResult());
+    report.write(resultFile, seconds, options.describe());
+    System.out.println("Result is written to " + resultFile);
+    return options.getBaseline().isEmpty()
+      || LoadReport.compare(new File(options.getBaseline()), resultFile, options.getThreshold(), System.out);
+  }
+
+  /**
+   * Create the employees by the batches.
+   *
+   * @return IDs of the employees.
+   */
+  private static long[] seed(EmployeeApiClient client, int size) throws InterruptedException {
+    val ids = new long[size];
+    for (int from = 0; from < size; from += SEED_BATCH_SIZE) {
+      val count = Math.min(SEED_BATCH_SIZE, size - from);
+      long[] batch = null;
+      // Batch may be rejected by the admission control while the limit is still low.
+      for (int attempt = 0; Objects.isNull(batch) && attempt < SEED_ATTEMPTS; attempt++) {
+        batch = client.createAll(from, count);
+        if (Objects.isNull(batch)) {
+          Thread.sleep(100L << attempt);
+        }
+      }
+      if (Objects.isNull(batch)) {
+        throw new IllegalStateException("Failed to create the employees from " + from);
+      }
+      System.arraycopy(batch, 0, ids, from, count);
+    }
+    return ids;
+  }
+
+  private static LoadReport runPhase(LoadTestOptions options, String baseUrl, KeyDistribution keys,
+                                     Queue<Long> created, Duration duration) throws InterruptedException {
+    val report = new LoadReport();
+    val end = System.nanoTime() + duration.toNanos();
+    val threads = new ArrayList<Thread>(options.getConcurrency());
+    for (int i = 0; i < options.getConcurrency(); i++) {
+      val client = new Client(options, new EmployeeApiClient(baseUrl, "load-" + i), keys, created);
+      val thread = new Thread(() -> report.add(client.run(end)), "load-client-" + i);
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return report;
+  }
+
+  /**
+   * One simulated client, sending one request at a time.
+   */
+  private static final class Client {
+    private final LoadTestOptions options;
+    private final EmployeeApiClient api;
+    private final KeyDistribution keys;
+    private final Queue<Long> created;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    private Client(LoadTestOptions options, EmployeeApiClient api, KeyDistribution keys, Queue<Long> created) {
+      this.options = options;
+      this.api = api;
+      this.keys = keys;
+      this.created = created;
+      val mix = new ArrayList<>(options.getMix().entrySet());
+      this.operations = new Operation[mix.size()];
+      this.cumulativeWeights = new int[mix.size()];
+      int sum = 0;
+      for (int i = 0; i < mix.size(); i++) {
+        operations[i] = mix.get(i).getKey();
+        sum += mix.get(i).getValue();
+        cumulativeWeights[i] = sum;
+      }
+    }
+
+    private LoadReport.Recorder run(long end) {
+      val recorder = new LoadReport.Recorder();
+      val random = ThreadLocalRandom.current();
+      val interval = options.getRate() > 0 ? (long) (1e9 * options.getConcurrency() / options.getRate()) : 0;
+      // Clients start at the different points of the interval, so that the requests are spread evenly.
+      long scheduled = System.nanoTime() + (interval > 0 ? random.nextLong(interval) : 0);
+      while (true) {
+        val operation = this.nextOperation(random);
+        // Employee to delete is prepared before the time is taken.
+        val deleting = operation == Operation.DELETE ? this.takeDeletable(random) : 0;
+        long start;
+        if (interval > 0) {
+          for (long wait; (wait = scheduled - System.nanoTime()) > 0; ) {
+            LockSupport.parkNanos(wait);
+          }
+          start = scheduled;
+          scheduled += interval;
+        } else {
+          start = System.nanoTime();
+        }
+        if (start - end >= 0) {
+          return recorder;
+        }
+        val status = deleting < 0 ? (int) -deleting : this.execute(operation, deleting, random);
+        recorder.record(operation, status, System.nanoTime() - start);
+      }
+    }
+
+    private Operation nextOperation(Random random) {
+      val point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+      for (int i = 0; i < operations.length; i++) {
+        if (point < cumulativeWeights[i]) {
+          return operations[i];
+        }
+      }
+      throw new IllegalStateException("Weights are broken.");
+    }
+
+    /**
+     * @return ID of the employee created by the test, which is created now if nothing is left. -status if failed.
+     */
+    private long takeDeletable(Random random) {
+      val id = created.poll();
+      return Objects.nonNull(id) ? id : this.create(random);
+    }
+
+    private long create(Random random) {
+      val number = random.nextInt(1_000_000);
+      return api.create("Load " + number, 1000 + number, "Dept " + number % 10);
+    }
+
+    private int execute(Operation operation, long deleting, Random random) {
+      switch (operation) {
+        case LIST:
+          return api.list(keys.next(random), options.getPageSize());
+        case GET:
+          return api.get(keys.next(random));
+        case CREATE: {
+          val id = this.create(random);
+          if (id > 0) {
+            created.add(id);
+            return 201;
+          }
+          return (int) -id;
+        }
+        case UPDATE: {
+          val number = random.nextInt(1_000_000);
+          return api.update(keys.next(random), "Updated " + number, 1000 + number, "Dept " + number % 10);
+        }
+        case DELETE:
+          return api.delete(deleting);
+        default:
+          throw new IllegalArgumentException("Unknown operation: " + operation);
+      }
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package jp.co.axa.apidemo.load;
+
+import lombok.Getter;
+
+/**
+ * Operations of the employee API driven by the load test.
+ */
+enum Operation {
+  /**
+   * GET /employees from the page after the chosen employee.
+   */
+  LIST("list"),
+  /**
+   * GET /employees/{id} of the chosen employee.
+   */
+  GET("get"),
+  /**
+   * POST /employees of the new employee.
+   */
+  CREATE("create"),
+  /**
+   * PUT /employees/{id} of the chosen employee without the version, i.e. always overwritten.
+   */
+  UPDATE("update"),
+  /**
+   * DELETE /employees/{id} of the employee created by the test, so that the chosen employees are never deleted.
+   */
+  DELETE("delete");
+
+  @Getter
+  private final String name;
+
+  Operation(String name) {
+    this.name = name;
+  }
+}
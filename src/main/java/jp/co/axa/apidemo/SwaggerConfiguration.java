@@ -0,0 +1,15 @@
+package jp.co.axa.apidemo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import springfox.documentation.swagger2.annotations.EnableSwagger2;
+
+/**
+ * API documentation by Springfox, disabled by "employee.swagger.enabled=false".<br/>
+ * The documentation scans every controller on the startup, thus the production profile disables it.
+ */
+@Configuration
+@EnableSwagger2
+@ConditionalOnProperty(name = "employee.swagger.enabled", havingValue = "true", matchIfMissing = true)
+public class SwaggerConfiguration {
+}
@@ -0,0 +1,170 @@
+package jp.co.axa.apidemo.admission;
+
+import lombok.Getter;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit of the concurrent requests which follows the observed latency (gradient algorithm).<br/>
+ * The latency of each window is compared with the long-term average. While it is stable, the limit grows by the
+ * square root of the limit if the requests actually use the limit. When the latency rises, i.e. the requests start
+ * queueing somewhere, the limit shrinks by the ratio of the latencies, at most by half per window. Requests which
+ * were dropped (timed out or rejected downstream) shrink the limit too.
+ * Acquiring and releasing are lock-free. The limit is recalculated by one of the releasing threads once per window,
+ * under the lock of this limit, so that the long-term average is never updated by two threads at once.
+ */
+public class AdaptiveConcurrencyLimit {
+
+  /**
+   * Latency up to this ratio of the long-term average is regarded as stable.
+   */
+  private static final double TOLERANCE = 1.5;
+  private static final double SMOOTHING = 0.2;
+  private static final double LONG_RTT_WEIGHT = 0.05;
+  private static final double DROP_FACTOR = 0.9;
+  private static final int MIN_SAMPLES = 10;
+
+  @Getter
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private final long windowNanos;
+  private final LongSupplier clock;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final LongAdder rttSum = new LongAdder();
+  private final LongAdder samples = new LongAdder();
+  private final LongAdder drops = new LongAdder();
+  private final AtomicLong nextUpdate;
+  /**
+   * Written only in {@link #update()}. Volatile, because it is read without the lock.
+   */
+  private volatile double limit;
+  /**
+   * Guarded by this.
+   */
+  private double longRtt;
+
+  /**
+   * @param name    name of the operation class, used for the metrics.
+   * @param initial initial limit.
+   * @param min     the limit never goes below this.
+   * @param max     the limit never goes above this.
+   * @param window  interval of the recalculation.
+   */
+  public AdaptiveConcurrencyLimit(String name, int initial, int min, int max, Duration window) {
+    this(name, initial, min, max, window, System::nanoTime);
+  }
+
+  AdaptiveConcurrencyLimit(String name, int initial, int min, int max, Duration window, LongSupplier clock) {
+    this.name = name;
+    this.minLimit = min;
+    this.maxLimit = max;
+    this.windowNanos = window.toNanos();
+    this.clock = clock;
+    this.limit = initial;
+    this.nextUpdate = new AtomicLong(clock.getAsLong() + windowNanos);
+  }
+
+  /**
+   * @return true if the request can start. {@link AdaptiveConcurrencyLimit#release} must be called after that.
+   */
+  public boolean tryAcquire() {
+    val current = (int) limit;
+    for (;;) {
+      val count = inFlight.get();
+      if (count >= current) {
+        return false;
+      }
+      if (inFlight.compareAndSet(count, count + 1)) {
+        maxInFlight.accumulateAndGet(count + 1, Math::max);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Finish the request acquired by {@link AdaptiveConcurrencyLimit#tryAcquire}.
+   *
+   * @param rttNanos time taken by the request.
+   * @param dropped  true if the request failed because of the overload, e.g. timed out.
+   */
+  public void release(long rttNanos, boolean dropped) {
+    inFlight.decrementAndGet();
+    if (dropped) {
+      drops.increment();
+    } else {
+      rttSum.add(rttNanos);
+      samples.increment();
+    }
+    this.updateIfWindowPassed();
+  }
+
+  /**
+   * Same as {@link #release(long, boolean)} for the request whose time does not tell the latency of the server,
+   * e.g. the one limited by how fast the client reads.
+   *
+   * @param dropped true if the request failed because of the overload, e.g. rejected.
+   */
+  public void releaseWithoutSample(boolean dropped) {
+    inFlight.decrementAndGet();
+    if (dropped) {
+      drops.increment();
+    }
+    this.updateIfWindowPassed();
+  }
+
+  private void updateIfWindowPassed() {
+    val now = clock.getAsLong();
+    val next = nextUpdate.get();
+    if (now - next >= 0 && nextUpdate.compareAndSet(next, now + windowNanos)) {
+      this.update();
+    }
+  }
+
+  private synchronized void update() {
+    val dropCount = drops.sumThenReset();
+    val peak = maxInFlight.getAndSet(inFlight.get());
+    val current = limit;
+    double updated;
+    if (dropCount > 0) {
+      updated = current * DROP_FACTOR;
+      rttSum.reset();
+      samples.reset();
+    } else {
+      val count = samples.sum();
+      if (count < MIN_SAMPLES) {
+        // Too few samples to tell the latency. Kept for the next window.
+        return;
+      }
+      val shortRtt = (double) rttSum.sumThenReset() / samples.sumThenReset();
+      longRtt = longRtt == 0 ? shortRtt : longRtt * (1 - LONG_RTT_WEIGHT) + shortRtt * LONG_RTT_WEIGHT;
+      if (longRtt > shortRtt * 2) {
+        // Latency recovered. Forget the slow history sooner.
+        longRtt = shortRtt * 2;
+      }
+      val gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+      updated = current * gradient + Math.sqrt(current);
+      if (peak < current / 2) {
+        // Requests did not use the limit, thus there is no evidence that the larger limit is fine.
+        updated = Math.min(updated, current);
+      }
+      updated = current * (1 - SMOOTHING) + updated * SMOOTHING;
+    }
+    this.limit = Math.max(minLimit, Math.min(maxLimit, updated));
+  }
+
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+}
@@ -0,0 +1,38 @@
+package jp.co.axa.apidemo.admission;
+
+import lombok.val;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Identify the client of the request, the same way for the admission control and the read-your-writes.<br/>
+ * The client is the remote address. The client header is trusted only from the trusted proxies, because anyone else
+ * could claim to be another client with each value.
+ */
+public class ClientIdentifier {
+
+  private final String clientHeader;
+  private final Set<String> trustedProxies;
+
+  /**
+   * @param clientHeader   header of the client ID set by the proxies.
+   * @param trustedProxies remote addresses of the proxies whose client header is trusted.
+   */
+  public ClientIdentifier(String clientHeader, String... trustedProxies) {
+    this.clientHeader = clientHeader;
+    this.trustedProxies = new HashSet<>(Arrays.asList(trustedProxies));
+  }
+
+  public String clientOf(HttpServletRequest request) {
+    val remoteAddress = request.getRemoteAddr();
+    if (!trustedProxies.contains(remoteAddress)) {
+      return remoteAddress;
+    }
+    val client = request.getHeader(clientHeader);
+    return StringUtils.hasText(client) ? client : remoteAddress;
+  }
+}
@@ -0,0 +1,84 @@
+package jp.co.axa.apidemo.admission;
+
+import lombok.val;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket of each client, kept in the fixed number of the stripes.<br/>
+ * Each stripe is one timestamp updated with CAS (generic cell rate algorithm): the time when the bucket becomes full
+ * again. A request takes one token by pushing it forward by the interval of the rate, and is rejected if it would
+ * go beyond the burst. Clients are hashed into the stripes, thus the memory does not grow with the number of the
+ * clients and nothing has to be evicted. Clients sharing a stripe share the bucket, which only makes the limit
+ * stricter for them.
+ */
+public class ClientRateLimiter {
+
+  /**
+   * Stripes are placed 64 bytes apart, so that the neighbours are not in the same cache line.
+   */
+  private static final int PADDING = 8;
+
+  private final AtomicLongArray stripes;
+  private final int mask;
+  private final long intervalNanos;
+  private final long toleranceNanos;
+  private final LongSupplier clock;
+  private final long origin;
+
+  /**
+   * @param ratePerSecond tokens added to the bucket per second.
+   * @param burst         size of the bucket, i.e. the number of the requests accepted at once.
+   * @param stripes       number of the stripes. Rounded up to the power of 2.
+   */
+  public ClientRateLimiter(double ratePerSecond, int burst, int stripes) {
+    this(ratePerSecond, burst, stripes, System::nanoTime);
+  }
+
+  ClientRateLimiter(double ratePerSecond, int burst, int stripes, LongSupplier clock) {
+    val size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    this.stripes = new AtomicLongArray(size * PADDING);
+    this.mask = size - 1;
+    this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+    this.toleranceNanos = intervalNanos * (burst - 1);
+    this.clock = clock;
+    // Timestamps are relative to this, so that the initial 0 means the full bucket.
+    this.origin = clock.getAsLong();
+  }
+
+  /**
+   * Take one token from the bucket of the client.
+   *
+   * @param client identifier of the client.
+   * @return 0 if the token is taken, otherwise the time in nanoseconds until the next token is available.
+   */
+  public long tryAcquire(String client) {
+    val index = stripeOf(client) * PADDING;
+    for (;;) {
+      val now = clock.getAsLong() - origin;
+      val full = stripes.get(index);
+      val start = Math.max(full, now);
+      val wait = start - now - toleranceNanos;
+      if (wait > 0) {
+        return wait;
+      }
+      if (stripes.compareAndSet(index, full, start + intervalNanos)) {
+        return 0;
+      }
+    }
+  }
+
+  private int stripeOf(String client) {
+    val hash = client.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  /**
+   * @return wait time rounded up to the seconds for Retry-After. At least 1.
+   */
+  static long toRetryAfterSeconds(long waitNanos) {
+    return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+  }
+}
@@ -0,0 +1,201 @@
+package jp.co.axa.apidemo.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Admission control in front of the employee API.<br/>
+ * Each request takes one token from the bucket of its client, then one slot of the adaptive concurrency limit of its
+ * operation class (list, read or write, same as the bulkheads). Otherwise it is rejected at once with 429 Too Many
+ * Requests or 503 Service Unavailable with Retry-After, before anything is queued, so that the latency of the
+ * admitted requests stays bounded under the overload. The slot is released when the response completes, including
+ * the asynchronous handlers.
+ * The client is the remote address. The header "employee.admission.client-header" is trusted only from the
+ * addresses in "employee.admission.trusted-proxies", because anyone else could get a fresh bucket with each value.
+ * Export takes a slot of the list operations, but its latency is not sampled, because it depends on how fast the
+ * client reads.
+ * Rejections are counted as the "employee.admission.rejected" metrics with the tags "operation" and "reason".
+ */
+@Component
+public class EmployeeAdmissionFilter extends OncePerRequestFilter {
+
+  static final String PATH = "/api/v1/employees";
+  private static final String EXPORT_SUFFIX = ":export";
+  private static final long OVERLOAD_RETRY_AFTER_SECONDS = 1;
+
+  private final boolean enabled;
+  private final ClientIdentifier clients;
+  private final ClientRateLimiter rateLimiter;
+  private final OperationClass list;
+  private final OperationClass read;
+  private final OperationClass write;
+
+  @Autowired
+  public EmployeeAdmissionFilter(MeterRegistry registry,
+                                 @Value("${employee.admission.enabled:true}") boolean enabled,
+                                 @Value("${employee.admission.client-header:X-Client-Id}") String clientHeader,
+                                 @Value("${employee.admission.trusted-proxies:}") String[] trustedProxies,
+                                 @Value("${employee.admission.client-rate:200}") double clientRate,
+                                 @Value("${employee.admission.client-burst:400}") int clientBurst,
+                                 @Value("${employee.admission.client-stripes:4096}") int clientStripes,
+                                 @Value("${employee.admission.limit.initial:20}") int initialLimit,
+                                 @Value("${employee.admission.limit.min:4}") int minLimit,
+                                 @Value("${employee.admission.limit.max:200}") int maxLimit,
+                                 @Value("${employee.admission.limit.window:PT1S}") Duration window) {
+    this.enabled = enabled;
+    this.clients = new ClientIdentifier(clientHeader, trustedProxies);
+    this.rateLimiter = new ClientRateLimiter(clientRate, clientBurst, clientStripes);
+    this.list = new OperationClass(registry, new AdaptiveConcurrencyLimit("list", initialLimit, minLimit, maxLimit,
+      window));
+    this.read = new OperationClass(registry, new AdaptiveConcurrencyLimit("read", initialLimit, minLimit, maxLimit,
+      window));
+    this.write = new OperationClass(registry, new AdaptiveConcurrencyLimit("write", initialLimit, minLimit, maxLimit,
+      window));
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !enabled || !request.getRequestURI().startsWith(request.getContextPath() + PATH);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+    throws ServletException, IOException {
+    val operation = this.classify(request);
+    val wait = rateLimiter.tryAcquire(clients.clientOf(request));
+    if (wait > 0) {
+      operation.rateLimited.increment();
+      reject(response, HttpStatus.TOO_MANY_REQUESTS, ClientRateLimiter.toRetryAfterSeconds(wait),
+        "Too many requests from the client.");
+      return;
+    }
+    val limit = operation.limit;
+    if (!limit.tryAcquire()) {
+      operation.overloaded.increment();
+      reject(response, HttpStatus.SERVICE_UNAVAILABLE, OVERLOAD_RETRY_AFTER_SECONDS,
+        "Too many " + limit.getName() + " operations are in progress.");
+      return;
+    }
+    val sampled = !request.getRequestURI().endsWith(EXPORT_SUFFIX);
+    val start = System.nanoTime();
+    boolean completed = false;
+    try {
+      chain.doFilter(request, response);
+      completed = true;
+    } finally {
+      if (completed && request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new ReleasingListener(limit, start, sampled));
+      } else {
+        release(limit, start, sampled, !completed || isDropped(response.getStatus()));
+      }
+    }
+  }
+
+  private static void release(AdaptiveConcurrencyLimit limit, long start, boolean sampled, boolean dropped) {
+    if (sampled) {
+      limit.release(System.nanoTime() - start, dropped);
+    } else {
+      limit.releaseWithoutSample(dropped);
+    }
+  }
+
+  private OperationClass classify(HttpServletRequest request) {
+    val method = request.getMethod();
+    if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+      return write;
+    }
+    val uri = request.getRequestURI();
+    return uri.endsWith(PATH) || uri.endsWith(EXPORT_SUFFIX) || uri.endsWith(":changes") ? list : read;
+  }
+
+  /**
+   * Timeouts and rejections of the bulkheads mean the overload downstream.
+   */
+  private static boolean isDropped(int status) {
+    return status == HttpStatus.SERVICE_UNAVAILABLE.value() || status == HttpStatus.GATEWAY_TIMEOUT.value();
+  }
+
+  private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String message)
+    throws IOException {
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    // Error page of Spring Boot, like the 503 and 504 of the bulkheads.
+    response.sendError(status.value(), message);
+  }
+
+  /**
+   * Limit and the meters of one operation class.
+   */
+  private static class OperationClass {
+    private final AdaptiveConcurrencyLimit limit;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    OperationClass(MeterRegistry registry, AdaptiveConcurrencyLimit limit) {
+      this.limit = limit;
+      this.rateLimited = registry.counter("employee.admission.rejected", "operation", limit.getName(),
+        "reason", "rate");
+      this.overloaded = registry.counter("employee.admission.rejected", "operation", limit.getName(),
+        "reason", "concurrency");
+      Gauge.builder("employee.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+        .tag("operation", limit.getName())
+        .register(registry);
+      Gauge.builder("employee.admission.inflight", limit, AdaptiveConcurrencyLimit::getInFlight)
+        .tag("operation", limit.getName())
+        .register(registry);
+    }
+  }
+
+  /**
+   * Release the slot when the asynchronous request completes.
+   */
+  private static class ReleasingListener implements AsyncListener {
+    private final AdaptiveConcurrencyLimit limit;
+    private final long start;
+    private final boolean sampled;
+
+    ReleasingListener(AdaptiveConcurrencyLimit limit, long start, boolean sampled) {
+      this.limit = limit;
+      this.start = start;
+      this.sampled = sampled;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      val response = (HttpServletResponse) event.getSuppliedResponse();
+      release(limit, start, sampled, isDropped(response.getStatus()));
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      // onComplete follows.
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      // onComplete follows.
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
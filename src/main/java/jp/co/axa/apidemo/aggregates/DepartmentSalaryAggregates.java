@@ -0,0 +1,150 @@
+package jp.co.axa.apidemo.aggregates;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statistics of the salary of each department kept in memory.<br/>
+ * Rebuilt from the DB when the application starts (before the web server accepts the requests),
+ * then updated incrementally with the old and the new state of each written employee.
+ * Each department keeps the number of the employees of each salary, so that min and max are still correct
+ * after the employee with min or max salary leaves.
+ * The statistics are local to this process, thus they don't include the writes made by the other processes.
+ */
+@Slf4j
+@Component
+public class DepartmentSalaryAggregates {
+
+  private final EmployeeRepository employeeRepository;
+  private final EmployeeShards shards;
+  private volatile Departments departments = new Departments();
+
+  @Autowired
+  public DepartmentSalaryAggregates(EmployeeRepository employeeRepository, EmployeeShards shards) {
+    this.employeeRepository = employeeRepository;
+    this.shards = shards;
+  }
+
+  /**
+   * Rebuild the statistics from the DB. Writes applied during the rebuild may be lost, thus this is expected to be
+   * called only while no write is accepted, e.g. on the startup.
+   */
+  @EventListener(ContextRefreshedEvent.class)
+  public void rebuild() {
+    val rebuilt = new Departments();
+    long employees = 0;
+    // Counts of the shards are added up.
+    for (List<EmployeeRepository.DepartmentSalaryCount> counts : shards.scatter(
+      employeeRepository::countByDepartmentAndSalary)) {
+      for (EmployeeRepository.DepartmentSalaryCount count : counts) {
+        rebuilt.of(count.getDepartment()).add(count.getSalary(), count.getHeadcount());
+        employees += count.getHeadcount();
+      }
+    }
+    this.departments = rebuilt;
+    log.info("Rebuilt the salary statistics of {} employees.", employees);
+  }
+
+  /**
+   * Reflect the write of the employee which has been applied to the DB.
+   *
+   * @param old     employee before the write. Null for the creation.
+   * @param updated employee after the write. Null for the deletion.
+   */
+  public void apply(EmployeeEntity old, EmployeeEntity updated) {
+    val current = this.departments;
+    if (Objects.nonNull(old)) {
+      current.of(old.getDepartment()).add(old.getSalary(), -1);
+    }
+    if (Objects.nonNull(updated)) {
+      current.of(updated.getDepartment()).add(updated.getSalary(), 1);
+    }
+  }
+
+  /**
+   * @return statistics of the departments which have any employee, in the order of the name. No department first.
+   */
+  public List<DepartmentStatistics> statistics() {
+    val current = this.departments;
+    val result = new ArrayList<DepartmentStatistics>(current.named.size() + 1);
+    current.unassigned.snapshot(null, result);
+    current.named.forEach((department, salaries) -> salaries.snapshot(department, result));
+    result.sort(Comparator.comparing(DepartmentStatistics::getDepartment,
+      Comparator.nullsFirst(Comparator.naturalOrder())));
+    return result;
+  }
+
+  /**
+   * Salaries of all the departments. ConcurrentHashMap does not accept null, thus no department is kept apart.
+   */
+  private static class Departments {
+    private final Map<String, Salaries> named = new ConcurrentHashMap<>();
+    private final Salaries unassigned = new Salaries();
+
+    Salaries of(String department) {
+      if (Objects.isNull(department)) {
+        return unassigned;
+      }
+      val salaries = named.get(department);
+      return salaries != null ? salaries : named.computeIfAbsent(department, d -> new Salaries());
+    }
+  }
+
+  /**
+   * Number of the employees of each salary in one department.<br/>
+   * Count may become minus for a moment when the writes of the same employee are reflected out of order,
+   * thus min and max skip such salaries.
+   */
+  private static class Salaries {
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long headcount;
+    private long salaried;
+    private long sum;
+
+    synchronized void add(Integer salary, long delta) {
+      headcount += delta;
+      if (Objects.isNull(salary)) {
+        return;
+      }
+      salaried += delta;
+      sum += salary * delta;
+      counts.merge(salary, delta, (current, added) -> current + added == 0 ? null : current + added);
+    }
+
+    synchronized void snapshot(String department, List<DepartmentStatistics> result) {
+      if (headcount <= 0) {
+        return;
+      }
+      if (salaried <= 0) {
+        result.add(new DepartmentStatistics(department, headcount, null, null, null, null));
+        return;
+      }
+      result.add(new DepartmentStatistics(department, headcount, firstPositive(counts), firstPositive(
+        counts.descendingMap()), sum, (double) sum / salaried));
+    }
+
+    private static Integer firstPositive(Map<Integer, Long> counts) {
+      for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+        if (entry.getValue() > 0) {
+          return entry.getKey();
+        }
+      }
+      return null;
+    }
+  }
+}
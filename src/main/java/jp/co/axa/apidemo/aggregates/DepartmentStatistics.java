@@ -0,0 +1,27 @@
+package jp.co.axa.apidemo.aggregates;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Headcount and salary statistics of one department.<br/>
+ * Salary statistics are calculated from the employees whose salary is set, same as the aggregate functions of SQL.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class DepartmentStatistics {
+  /**
+   * Name of the department. Null for the employees who do not belong to any department.
+   */
+  private final String department;
+  private final long headcount;
+  /**
+   * Null if no employee in the department has the salary. Same for the other salary statistics.
+   */
+  private final Integer minSalary;
+  private final Integer maxSalary;
+  private final Long sumSalary;
+  private final Double averageSalary;
+}
@@ -0,0 +1,143 @@
+package jp.co.axa.apidemo.aspects;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.fanctor.Either;
+import lombok.val;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aspect to record the metrics of each layer, so that the slow request can be attributed to the DB, the handler or
+ * the serialization (the rest of "http.server.requests" recorded by Spring Boot).<br/>
+ * <ul>
+ * <li>employee.controller: timer of each handler of EmployeeController until the returned future completes,
+ * tagged by "handler".</li>
+ * <li>employee.controller.inflight: gauge of the requests being handled, tagged by "handler".</li>
+ * <li>employee.service.errors: counter of CRUDErrorStatus returned by EmployeeService,
+ * tagged by "operation" and "status".</li>
+ * <li>employee.repository: timer of each call of EmployeeRepository, tagged by "method".</li>
+ * </ul>
+ * The meters are resolved once per method and kept in the maps, so that recording does not look up the registry.
+ */
+@Aspect
+@Component
+public class EmployeeMetricsAspect {
+
+  static final String CONTROLLER_TIMER = "employee.controller";
+  static final String CONTROLLER_INFLIGHT = "employee.controller.inflight";
+  static final String SERVICE_ERRORS = "employee.service.errors";
+  static final String REPOSITORY_TIMER = "employee.repository";
+
+  private static final CRUDErrorStatus[] STATUSES = CRUDErrorStatus.values();
+
+  private final MeterRegistry registry;
+  private final ConcurrentHashMap<Method, HandlerMeters> handlerMeters = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Method, Counter[]> errorCounters = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Method, Timer> repositoryTimers = new ConcurrentHashMap<>();
+
+  @Autowired
+  public EmployeeMetricsAspect(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Around("execution(public * jp.co.axa.apidemo.controllers.EmployeeController.*(..))")
+  public Object timeHandler(ProceedingJoinPoint joinPoint) throws Throwable {
+    val meters = this.handlerMetersOf(methodOf(joinPoint));
+    meters.inflight.incrementAndGet();
+    val start = System.nanoTime();
+    Object result = null;
+    try {
+      result = joinPoint.proceed();
+      return result;
+    } finally {
+      if (result instanceof CompletionStage) {
+        ((CompletionStage<?>) result).whenComplete((value, error) -> meters.record(start));
+      } else {
+        meters.record(start);
+      }
+    }
+  }
+
+  @Around("execution(public * jp.co.axa.apidemo.services.EmployeeService+.*(..))")
+  public Object countErrors(ProceedingJoinPoint joinPoint) throws Throwable {
+    val result = joinPoint.proceed();
+    if (result instanceof Either) {
+      val left = ((Either<?, ?>) result).getLeft();
+      if (left instanceof CRUDErrorStatus) {
+        this.errorCountersOf(methodOf(joinPoint))[((CRUDErrorStatus) left).ordinal()].increment();
+      }
+    }
+    return result;
+  }
+
+  @Around("execution(public * *(..)) && target(jp.co.axa.apidemo.repositories.EmployeeRepository)")
+  public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+    val timer = this.repositoryTimerOf(methodOf(joinPoint));
+    val start = System.nanoTime();
+    try {
+      return joinPoint.proceed();
+    } finally {
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  // get() first, because computeIfAbsent of Java 8 locks the bin even if the key is present.
+  private HandlerMeters handlerMetersOf(Method method) {
+    val meters = handlerMeters.get(method);
+    return meters != null ? meters : handlerMeters.computeIfAbsent(method, m -> {
+      val tags = Tags.of("handler", m.getName());
+      return new HandlerMeters(registry.timer(CONTROLLER_TIMER, tags),
+        registry.gauge(CONTROLLER_INFLIGHT, tags, new AtomicInteger()));
+    });
+  }
+
+  private Counter[] errorCountersOf(Method method) {
+    val counters = errorCounters.get(method);
+    return counters != null ? counters : errorCounters.computeIfAbsent(method, m -> {
+      val created = new Counter[STATUSES.length];
+      for (CRUDErrorStatus status : STATUSES) {
+        created[status.ordinal()] = registry.counter(SERVICE_ERRORS, "operation", m.getName(), "status", status.name());
+      }
+      return created;
+    });
+  }
+
+  private Timer repositoryTimerOf(Method method) {
+    val timer = repositoryTimers.get(method);
+    return timer != null ? timer : repositoryTimers.computeIfAbsent(method,
+      m -> registry.timer(REPOSITORY_TIMER, "method", m.getName()));
+  }
+
+  private static Method methodOf(ProceedingJoinPoint joinPoint) {
+    return ((MethodSignature) joinPoint.getSignature()).getMethod();
+  }
+
+  private static class HandlerMeters {
+    private final Timer timer;
+    private final AtomicInteger inflight;
+
+    HandlerMeters(Timer timer, AtomicInteger inflight) {
+      this.timer = timer;
+      this.inflight = inflight;
+    }
+
+    void record(long start) {
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      inflight.decrementAndGet();
+    }
+  }
+}
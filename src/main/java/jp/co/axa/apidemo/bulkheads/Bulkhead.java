@@ -0,0 +1,125 @@
+package jp.co.axa.apidemo.bulkheads;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of the threads which run one kind of the blocking operations.<br/>
+ * The pool has the fixed number of the threads and the bounded queue. The task is rejected with
+ * 503 Service Unavailable if the queue is full, and fails with 504 Gateway Timeout if it does not finish in the timeout.
+ * The task which times out while waiting in the queue is never started.
+ */
+@Slf4j
+public class Bulkhead {
+
+  @Getter
+  private final String name;
+  private final ThreadPoolExecutor executor;
+  private final long timeoutMillis;
+  private final ScheduledExecutorService timer;
+  private final TaskDecorator decorator;
+
+  /**
+   * @param name      name used for the threads and the metrics.
+   * @param threads   number of the threads.
+   * @param queue     max number of the tasks waiting for the thread.
+   * @param timeout   time limit of the task including the time in the queue.
+   * @param timer     scheduler to fail the task on the timeout. Shared among the bulkheads.
+   * @param decorator applied to the task in the submitting thread, e.g. to carry over the thread-local context.
+   */
+  public Bulkhead(String name, int threads, int queue, Duration timeout, ScheduledExecutorService timer,
+                  TaskDecorator decorator) {
+    this.name = name;
+    this.timeoutMillis = timeout.toMillis();
+    this.timer = timer;
+    this.decorator = decorator;
+    val count = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(queue), runnable -> {
+      val thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Bulkhead which runs the tasks as they are.
+   */
+  public Bulkhead(String name, int threads, int queue, Duration timeout, ScheduledExecutorService timer) {
+    this(name, threads, queue, timeout, timer, task -> task);
+  }
+
+  /**
+   * Run the task in this bulkhead with the time limit.
+   *
+   * @return future completed with the result of the task, or exceptionally with ResponseStatusException
+   * if the bulkhead is full or the task timed out.
+   */
+  public <T> CompletableFuture<T> submit(Supplier<T> task) {
+    val result = this.start(task);
+    if (result.isDone()) {
+      return result;
+    }
+    val timeout = timer.schedule(() -> {
+      if (result.completeExceptionally(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+        "Operation did not finish in " + timeoutMillis + " ms."))) {
+        log.warn("Task in the bulkhead {} timed out.", name);
+      }
+    }, timeoutMillis, TimeUnit.MILLISECONDS);
+    result.whenComplete((value, error) -> timeout.cancel(false));
+    return result;
+  }
+
+  /**
+   * Run the task in this bulkhead without the time limit, e.g. the streaming whose duration depends on the client.
+   */
+  public <T> CompletableFuture<T> submitWithoutTimeout(Supplier<T> task) {
+    return this.start(task);
+  }
+
+  private <T> CompletableFuture<T> start(Supplier<T> task) {
+    val result = new CompletableFuture<T>();
+    try {
+      executor.execute(decorator.decorate(() -> {
+        if (result.isDone()) {
+          // Timed out while waiting in the queue. Nobody waits for the result anymore.
+          return;
+        }
+        try {
+          result.complete(task.get());
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        }
+      }));
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+        "Too many " + name + " operations are in progress."));
+    }
+    return result;
+  }
+
+  void bindTo(MeterRegistry registry) {
+    new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(registry);
+  }
+
+  void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,82 @@
+package jp.co.axa.apidemo.bulkheads;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jp.co.axa.apidemo.datasources.ReadRoute;
+import lombok.Getter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Bulkheads of the employee API, separated by the kind of the DB access,
+ * so that the slow listing can't use up the threads for the single lookups and the writes.<br/>
+ * Pool sizes and timeouts are configured by "employee.bulkhead.{list,read,write}.*" properties.
+ * Usage of the pools is exposed as the "executor.*" metrics with the tag "name".
+ * Tasks read from the DataSource chosen by the submitting request ({@link ReadRoute}).
+ */
+@Component
+public class EmployeeBulkheads implements MeterBinder, DisposableBean {
+
+  private final ScheduledThreadPoolExecutor timer;
+
+  /**
+   * Listing, searching and exporting many employees.
+   */
+  @Getter
+  private final Bulkhead list;
+  /**
+   * Lookup of the single employee.
+   */
+  @Getter
+  private final Bulkhead read;
+  /**
+   * Create, update, delete and batch.
+   */
+  @Getter
+  private final Bulkhead write;
+
+  @Autowired
+  public EmployeeBulkheads(@Value("${employee.bulkhead.list.threads:4}") int listThreads,
+                           @Value("${employee.bulkhead.list.queue:16}") int listQueue,
+                           @Value("${employee.bulkhead.list.timeout:PT10S}") Duration listTimeout,
+                           @Value("${employee.bulkhead.read.threads:16}") int readThreads,
+                           @Value("${employee.bulkhead.read.queue:256}") int readQueue,
+                           @Value("${employee.bulkhead.read.timeout:PT2S}") Duration readTimeout,
+                           @Value("${employee.bulkhead.write.threads:8}") int writeThreads,
+                           @Value("${employee.bulkhead.write.queue:128}") int writeQueue,
+                           @Value("${employee.bulkhead.write.timeout:PT5S}") Duration writeTimeout) {
+    this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "bulkhead-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // Most of the timeouts are cancelled, thus remove them instead of keeping them until the deadline.
+    this.timer.setRemoveOnCancelPolicy(true);
+    this.list = new Bulkhead("employee-list", listThreads, listQueue, listTimeout, timer,
+      ReadRoute.PROPAGATION);
+    this.read = new Bulkhead("employee-read", readThreads, readQueue, readTimeout, timer,
+      ReadRoute.PROPAGATION);
+    this.write = new Bulkhead("employee-write", writeThreads, writeQueue, writeTimeout, timer,
+      ReadRoute.PROPAGATION);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    list.bindTo(registry);
+    read.bindTo(registry);
+    write.bindTo(registry);
+  }
+
+  @Override
+  public void destroy() {
+    list.shutdown();
+    read.shutdown();
+    write.shutdown();
+    timer.shutdown();
+  }
+}
@@ -0,0 +1,207 @@
+package jp.co.axa.apidemo.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of the employees looked up by the ID.<br/>
+ * The absence of the employee is also cached, but with the shorter TTL than the present one.
+ * Cached entities are the copies which are not managed by any persistence context, and mustn't be modified.
+ * Statistics of the cache are exposed as the "cache.*" metrics with the tag "cache=employee".
+ */
+@Component
+public class EmployeeCache implements MeterBinder {
+
+  private static final int STRIPES = 1024;
+  /**
+   * Stripes are placed 64 bytes apart, so that the neighbours are not in the same cache line.
+   */
+  private static final int PADDING = 8;
+
+  private final Cache<Long, Optional<EmployeeEntity>> cache;
+  /**
+   * Count of the invalidations of the employees hashed into each stripe. Load which has seen the count change is not
+   * cached. Employees sharing a stripe with the invalidated one are only loaded once more.
+   */
+  private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES * PADDING);
+
+  @Autowired
+  public EmployeeCache(@Value("${employee.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${employee.cache.ttl:PT5M}") Duration ttl,
+                       @Value("${employee.cache.negative-ttl:PT5S}") Duration negativeTtl) {
+    this(maximumSize, ttl, negativeTtl, Ticker.systemTicker());
+  }
+
+  EmployeeCache(long maximumSize, Duration ttl, Duration negativeTtl, Ticker ticker) {
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfter(new PresenceAwareExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+      .ticker(ticker)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Get the employee from the cache, or load it with the given loader if not cached.<br/>
+   * The loader runs outside of the cache, so that the slow load does not block the other employees of the same hash
+   * bin. Concurrent loads of the same ID are not shared here, but by the loader
+   * ({@link jp.co.axa.apidemo.coalescing.EmployeeReadCoalescer}).
+   * If the employee is written while loading, the written one is kept, because it is newer than the loaded one.
+   * If it is invalidated while loading, the loaded one is returned but not cached, because it may have been read
+   * before the write which caused the invalidation.
+   *
+   * @param employeeId ID of the employee. Mustn't be null.
+   * @param loader     function to load the employee from the DB.
+   * @return cached employee, or empty if the employee does not exist.
+   */
+  public Optional<EmployeeEntity> get(Long employeeId, Function<Long, Optional<EmployeeEntity>> loader) {
+    val stripe = stripeOf(employeeId);
+    val invalidated = invalidations.get(stripe);
+    val cached = cache.getIfPresent(employeeId);
+    if (Objects.nonNull(cached)) {
+      return cached;
+    }
+    val loaded = loader.apply(employeeId).map(EmployeeEntity::copy);
+    val result = cache.asMap().compute(employeeId, (id, current) -> {
+      if (Objects.nonNull(current)) {
+        return newer(current, loaded);
+      }
+      // Checked under the lock of the entry. Invalidation counts up before removing the entry.
+      return invalidations.get(stripe) == invalidated ? loaded : null;
+    });
+    return Objects.isNull(result) ? loaded : result;
+  }
+
+  /**
+   * Get the employee from the cache, or load it with the given loader without caching it.<br/>
+   * For the loads from the read replica. The replica may not have applied the latest write yet, thus the loaded one
+   * is returned to this caller only, instead of being served to everyone for the TTL.
+   *
+   * @param employeeId ID of the employee. Mustn't be null.
+   * @param loader     function to load the employee from the replica.
+   * @return cached employee if any, otherwise the loaded one. Empty if the employee does not exist.
+   */
+  public Optional<EmployeeEntity> getWithoutFill(Long employeeId, Function<Long, Optional<EmployeeEntity>> loader) {
+    val cached = cache.getIfPresent(employeeId);
+    if (Objects.nonNull(cached)) {
+      return cached;
+    }
+    return loader.apply(employeeId).map(EmployeeEntity::copy);
+  }
+
+  /**
+   * @param current value put while loading, by the write or another load.
+   * @param loaded  value just loaded.
+   * @return current, unless both are present and the loaded one has the newer version.
+   */
+  private static Optional<EmployeeEntity> newer(Optional<EmployeeEntity> current, Optional<EmployeeEntity> loaded) {
+    if (current.isPresent() && loaded.isPresent() && Objects.nonNull(loaded.get().getVersion())
+      && (Objects.isNull(current.get().getVersion()) || loaded.get().getVersion() > current.get().getVersion())) {
+      return loaded;
+    }
+    return current;
+  }
+
+  /**
+   * Replace the cached value with the given employee which is just written into the DB.
+   *
+   * @param employee written employee. ID mustn't be null.
+   */
+  public void put(EmployeeEntity employee) {
+    cache.put(employee.getId(), Optional.of(employee.copy()));
+  }
+
+  /**
+   * Cache the absence of the employee which is just deleted from the DB, so that the deleted employee is not loaded
+   * again from the read replica which has not applied the deletion yet. Expires after the negative TTL.
+   *
+   * @param employeeId ID of the deleted employee. Mustn't be null.
+   */
+  public void putDeleted(Long employeeId) {
+    cache.put(employeeId, Optional.empty());
+  }
+
+  /**
+   * Discard the cached value of the employee, e.g. on the failure of writing.
+   *
+   * @param employeeId ID of the employee. Ignored if null.
+   */
+  public void invalidate(Long employeeId) {
+    if (employeeId != null) {
+      invalidations.incrementAndGet(stripeOf(employeeId));
+      cache.invalidate(employeeId);
+    }
+  }
+
+  /**
+   * Discard all the cached values.
+   */
+  public void invalidateAll() {
+    for (int i = 0; i < STRIPES; i++) {
+      invalidations.incrementAndGet(i * PADDING);
+    }
+    cache.invalidateAll();
+  }
+
+  /**
+   * @return index of the invalidation count of the employee.
+   */
+  private static int stripeOf(Long employeeId) {
+    val hash = employeeId.hashCode();
+    return ((hash ^ (hash >>> 16)) & (STRIPES - 1)) * PADDING;
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "employee");
+  }
+
+  /**
+   * Expiry which uses the shorter TTL for the absence of the employee.
+   */
+  private static class PresenceAwareExpiry implements Expiry<Long, Optional<EmployeeEntity>> {
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    PresenceAwareExpiry(long ttlNanos, long negativeTtlNanos) {
+      this.ttlNanos = ttlNanos;
+      this.negativeTtlNanos = negativeTtlNanos;
+    }
+
+    @Override
+    public long expireAfterCreate(Long key, Optional<EmployeeEntity> value, long currentTime) {
+      return value.isPresent() ? ttlNanos : negativeTtlNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(Long key, Optional<EmployeeEntity> value, long currentTime, long currentDuration) {
+      return this.expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Long key, Optional<EmployeeEntity> value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,294 @@
+package jp.co.axa.apidemo.caches;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.repositories.EmployeeProjection;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Bounded in-process cache of the employees serialized into the JSON bytes.<br/>
+ * One entry is kept per employee ID together with the version it was serialized from. The same ID and version mean
+ * the same content, thus the entry is reused only while the version matches, and the stale one is never written
+ * even if the invalidation is missed.
+ * Statistics of the cache are exposed as the "cache.*" metrics with the tag "cache=employee-json".
+ */
+@Component
+public class EmployeeJsonCache implements MeterBinder {
+
+  private final Cache<Long, JsonBytes> cache;
+  private final ObjectWriter writer;
+  private final ObjectWriter projectionWriter;
+
+  @Autowired
+  public EmployeeJsonCache(ObjectMapper objectMapper,
+                           @Value("${employee.json-cache.maximum-size:10000}") long maximumSize) {
+    this.writer = objectMapper.writerFor(EmployeeEntity.class);
+    this.projectionWriter = objectMapper.writerFor(EmployeeProjection.class);
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(maximumSize)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Wrap the employee to be serialized from the cached bytes.<br/>
+   * Nothing is serialized until the response is actually written, thus nothing is wasted for 304.
+   * Generators of the other formats than JSON serialize the employee as usual.
+   *
+   * @param employee employee to be written. Mustn't be modified afterwards.
+   * @return value which can be put anywhere in the response instead of the employee.
+   */
+  public JsonSerializable fragmentOf(EmployeeEntity employee) {
+    return new Fragment(employee, () -> bytesOf(employee));
+  }
+
+  /**
+   * Same as {@link #fragmentOf(EmployeeEntity)} for the projection.<br/>
+   * The projection of all the fields is the same JSON as the employee, thus it shares the cache with the employees.
+   * The projection of some of the fields is written as it is.
+   *
+   * @param employee projection to be written.
+   * @return value which can be put anywhere in the response instead of the projection.
+   */
+  public JsonSerializable fragmentOf(EmployeeProjection employee) {
+    if (!employee.isComplete()) {
+      return employee;
+    }
+    return new Fragment(employee, () -> bytesOf(employee));
+  }
+
+  /**
+   * Get the JSON of the employee from the cache, or serialize and cache it if not cached for the version.
+   * Employees without ID or version are serialized every time.
+   */
+  JsonBytes bytesOf(EmployeeEntity employee) throws IOException {
+    return this.bytesOf(employee.getId(), employee.getVersion(), () -> writer.writeValueAsBytes(employee));
+  }
+
+  /**
+   * Same as {@link #bytesOf(EmployeeEntity)} for the projection of all the fields.
+   */
+  JsonBytes bytesOf(EmployeeProjection employee) throws IOException {
+    return this.bytesOf(employee.getId(), employee.getVersion(), () -> projectionWriter.writeValueAsBytes(employee));
+  }
+
+  private JsonBytes bytesOf(Long id, Long version, Serialization<byte[]> serialization) throws IOException {
+    if (Objects.isNull(id) || Objects.isNull(version)) {
+      return new JsonBytes(version, serialization.serialize());
+    }
+    val cached = cache.getIfPresent(id);
+    if (Objects.nonNull(cached) && version.equals(cached.version)) {
+      return cached;
+    }
+    val serialized = new JsonBytes(version, serialization.serialize());
+    // Reader of the old version may come after the writer of the new one. Newer one wins.
+    cache.asMap().merge(id, serialized, (current, given) -> current.version > given.version ? current : given);
+    return serialized;
+  }
+
+  /**
+   * Discard the cached JSON of the employee on the update or the deletion.
+   *
+   * @param employeeId ID of the employee. Ignored if null.
+   */
+  public void invalidate(Long employeeId) {
+    if (employeeId != null) {
+      cache.invalidate(employeeId);
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "employee-json");
+  }
+
+  /**
+   * Employee in the response, written as the raw value from the cache.
+   */
+  private static class Fragment extends JsonSerializable.Base {
+    private final Object employee;
+    private final Serialization<JsonBytes> bytes;
+
+    Fragment(Object employee, Serialization<JsonBytes> bytes) {
+      this.employee = employee;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+      if (gen instanceof JsonGeneratorImpl) {
+        gen.writeRawValue(bytes.serialize());
+      } else {
+        serializers.defaultSerializeValue(employee, gen);
+      }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+      throws IOException {
+      // Employee has no type information.
+      this.serialize(gen, serializers);
+    }
+  }
+
+  /**
+   * Serialization which may fail with the IOException.
+   */
+  @FunctionalInterface
+  private interface Serialization<T> {
+    T serialize() throws IOException;
+  }
+
+  /**
+   * UTF-8 bytes of the serialized employee.<br/>
+   * UTF-8 generator copies the bytes into its buffer as they are. The quoted forms are the JSON value escaped as the
+   * content of the JSON string, the same as {@link com.fasterxml.jackson.core.io.SerializedString}. They are
+   * computed on the first use, since the raw value never needs them.
+   */
+  static final class JsonBytes implements SerializableString {
+    private final Long version;
+    private final byte[] bytes;
+    private volatile char[] quotedChars;
+    private volatile byte[] quotedBytes;
+
+    JsonBytes(Long version, byte[] bytes) {
+      this.version = version;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public String getValue() {
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int charLength() {
+      return this.getValue().length();
+    }
+
+    @Override
+    public char[] asQuotedChars() {
+      // Racy but idempotent, thus no lock.
+      char[] quoted = quotedChars;
+      if (quoted == null) {
+        quoted = JsonStringEncoder.getInstance().quoteAsString(this.getValue());
+        quotedChars = quoted;
+      }
+      return quoted;
+    }
+
+    @Override
+    public byte[] asUnquotedUTF8() {
+      return bytes;
+    }
+
+    @Override
+    public byte[] asQuotedUTF8() {
+      byte[] quoted = quotedBytes;
+      if (quoted == null) {
+        quoted = JsonStringEncoder.getInstance().quoteAsUTF8(this.getValue());
+        quotedBytes = quoted;
+      }
+      return quoted;
+    }
+
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int offset) {
+      return append(this.asQuotedUTF8(), buffer, offset);
+    }
+
+    @Override
+    public int appendQuoted(char[] buffer, int offset) {
+      val quoted = this.asQuotedChars();
+      if (offset + quoted.length > buffer.length) {
+        return -1;
+      }
+      System.arraycopy(quoted, 0, buffer, offset, quoted.length);
+      return quoted.length;
+    }
+
+    @Override
+    public int appendUnquotedUTF8(byte[] buffer, int offset) {
+      return append(bytes, buffer, offset);
+    }
+
+    @Override
+    public int appendUnquoted(char[] buffer, int offset) {
+      val chars = this.getValue();
+      if (offset + chars.length() > buffer.length) {
+        return -1;
+      }
+      chars.getChars(0, chars.length(), buffer, offset);
+      return chars.length();
+    }
+
+    @Override
+    public int writeQuotedUTF8(OutputStream out) throws IOException {
+      return write(this.asQuotedUTF8(), out);
+    }
+
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+      return write(bytes, out);
+    }
+
+    @Override
+    public int putQuotedUTF8(ByteBuffer buffer) {
+      return put(this.asQuotedUTF8(), buffer);
+    }
+
+    @Override
+    public int putUnquotedUTF8(ByteBuffer out) {
+      return put(bytes, out);
+    }
+
+    /**
+     * @return length of the copied bytes, or -1 if they don't fit in the buffer.
+     */
+    private static int append(byte[] source, byte[] buffer, int offset) {
+      if (offset + source.length > buffer.length) {
+        return -1;
+      }
+      System.arraycopy(source, 0, buffer, offset, source.length);
+      return source.length;
+    }
+
+    private static int write(byte[] source, OutputStream out) throws IOException {
+      out.write(source);
+      return source.length;
+    }
+
+    /**
+     * @return length of the put bytes, or -1 if they don't fit in the buffer.
+     */
+    private static int put(byte[] source, ByteBuffer out) {
+      if (source.length > out.remaining()) {
+        return -1;
+      }
+      out.put(source);
+      return source.length;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package jp.co.axa.apidemo.coalescing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jp.co.axa.apidemo.datasources.ReadRoute;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Coalescing of the concurrent identical reads of the employees, enabled by "employee.coalescing.enabled".<br/>
+ * The callers which read the same employee, or the same page of the list, at the same time share one DB query.
+ * The caller joins the query only if no write has finished since the query started (the modification sequence is
+ * the same) and the query reads from the same DataSource ({@link ReadRoute}), thus the shared result is as new as
+ * the one the caller would read by itself.
+ * Counts are exposed as the "employee.coalescing.loads" and "employee.coalescing.coalesced" metrics with the tag
+ * "read" (employee or page).
+ */
+@Component
+public class EmployeeReadCoalescer implements MeterBinder {
+
+  private final boolean enabled;
+  private final SingleFlight<ReadKey, Optional<EmployeeEntity>> employees;
+  private final SingleFlight<ReadKey, Object> pages;
+
+  @Autowired
+  public EmployeeReadCoalescer(@Value("${employee.coalescing.enabled:true}") boolean enabled,
+                               @Value("${employee.coalescing.stripes:64}") int stripes) {
+    this.enabled = enabled;
+    this.employees = new SingleFlight<>(stripes);
+    this.pages = new SingleFlight<>(stripes);
+  }
+
+  /**
+   * Load the employee from the DB, or wait for the same load in flight.
+   *
+   * @param employeeId           ID of the employee.
+   * @param modificationSequence modification sequence of the service taken before the load.
+   * @param loader               load from the DB. The loaded employee mustn't be modified.
+   */
+  public Optional<EmployeeEntity> loadEmployee(Long employeeId, long modificationSequence,
+                                               Supplier<Optional<EmployeeEntity>> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+    return employees.execute(new ReadKey(employeeId, modificationSequence, ReadRoute.isReplicaAllowed()), loader);
+  }
+
+  /**
+   * Read the page from the DB, or wait for the same read in flight.
+   *
+   * @param query                everything which decides the page, e.g. the filter, the cursor and the page size.
+   *                             Must implement equals and hashCode.
+   * @param modificationSequence modification sequence of the service taken before the read.
+   * @param loader               read from the DB. The page must be immutable.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T loadPage(Object query, long modificationSequence, Supplier<T> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+    // Same query always has the same type of the result.
+    return (T) pages.execute(new ReadKey(query, modificationSequence, ReadRoute.isReplicaAllowed()), loader::get);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    bind(registry, "employee", employees);
+    bind(registry, "page", pages);
+  }
+
+  private static void bind(MeterRegistry registry, String read, SingleFlight<?, ?> flight) {
+    FunctionCounter.builder("employee.coalescing.loads", flight, SingleFlight::getLoadCount)
+      .description("Reads which ran the DB query")
+      .tag("read", read)
+      .register(registry);
+    FunctionCounter.builder("employee.coalescing.coalesced", flight, SingleFlight::getCoalescedCount)
+      .description("Reads which shared the DB query of another read")
+      .tag("read", read)
+      .register(registry);
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class ReadKey {
+    private final Object query;
+    private final long modificationSequence;
+    private final boolean replicaAllowed;
+  }
+}
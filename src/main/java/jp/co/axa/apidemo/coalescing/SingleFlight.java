@@ -0,0 +1,107 @@
+package jp.co.axa.apidemo.coalescing;
+
+import lombok.val;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Table of the loads in flight, so that the concurrent calls with the same key share one load.<br/>
+ * The first caller of the key (leader) runs the load in its own thread, and the callers arriving while it runs
+ * (followers) wait for its result, or its exception. The key is forgotten as soon as the load ends, thus nothing is
+ * cached: the caller arriving after that starts the new load.
+ * The table is split into the stripes, each of which is a ConcurrentHashMap. Joining the flight is a lock-free lookup,
+ * and no lock is held while loading, thus the slow load never blocks the other keys.
+ *
+ * @param <K> key of the load. Must implement equals and hashCode.
+ * @param <V> result of the load. Shared by all the callers, thus should be immutable.
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentHashMap<K, CompletableFuture<V>>[] stripes;
+  private final int mask;
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * @param stripes number of the stripes. Rounded up to the power of 2.
+   */
+  @SuppressWarnings("unchecked")
+  public SingleFlight(int stripes) {
+    val size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    this.stripes = new ConcurrentHashMap[size];
+    for (int i = 0; i < size; i++) {
+      this.stripes[i] = new ConcurrentHashMap<>();
+    }
+    this.mask = size - 1;
+  }
+
+  /**
+   * Run the load, or wait for the same load already in flight.
+   *
+   * @param key    key of the load.
+   * @param loader load to be run if no load of the key is in flight.
+   * @return result of the load.
+   */
+  public V execute(K key, Supplier<V> loader) {
+    val stripe = stripes[spread(key.hashCode()) & mask];
+    CompletableFuture<V> flight = stripe.get(key);
+    if (Objects.isNull(flight)) {
+      val own = new CompletableFuture<V>();
+      flight = stripe.putIfAbsent(key, own);
+      if (Objects.isNull(flight)) {
+        return this.lead(stripe, key, own, loader);
+      }
+    }
+    coalesced.increment();
+    try {
+      return flight.join();
+    } catch (CompletionException e) {
+      // Same exception as the leader got.
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private V lead(ConcurrentHashMap<K, CompletableFuture<V>> stripe, K key, CompletableFuture<V> flight,
+                 Supplier<V> loader) {
+    loads.increment();
+    try {
+      val result = loader.get();
+      flight.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      stripe.remove(key, flight);
+    }
+  }
+
+  /**
+   * @return number of the loads run by the leaders.
+   */
+  public long getLoadCount() {
+    return loads.sum();
+  }
+
+  /**
+   * @return number of the calls which shared the load of another caller.
+   */
+  public long getCoalescedCount() {
+    return coalesced.sum();
+  }
+
+  /**
+   * Spread the higher bits of the hash to the lower ones, since the stripe is chosen by the lower bits.
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -1,103 +1,419 @@
 package jp.co.axa.apidemo.controllers;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import jp.co.axa.apidemo.aggregates.DepartmentStatistics;
+import jp.co.axa.apidemo.bulkheads.EmployeeBulkheads;
+import jp.co.axa.apidemo.caches.EmployeeJsonCache;
+import jp.co.axa.apidemo.datasources.ReadRoute;
 import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.repositories.EmployeeField;
+import jp.co.axa.apidemo.repositories.EmployeeFilter;
 import jp.co.axa.apidemo.services.EmployeeService;
-import jp.co.axa.apidemo.funcs.ResponseExceptionMapper;
+import jp.co.axa.apidemo.funcs.ErrorResponseMapper;
+import jp.co.axa.apidemo.funcs.PageTokenCodec;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
+/**
+ * Employee API.<br/>
+ * Each handler runs the service in the bulkhead of its kind (list, read or write) and returns the future,
+ * so that the servlet thread is released while the DB is accessed.
+ * Employees in the read responses are written from the cache of the serialized JSON.
+ * The expected failures are returned as the preallocated error responses instead of being thrown.
+ * Request and response bodies are JSON, CBOR or Smile by the Content-Type and the Accept headers
+ * (see {@link jp.co.axa.apidemo.formats.BinaryFormatConfiguration}).
+ */
 @RestController
 @RequestMapping("/api/v1")
 @Slf4j
 public class EmployeeController {
 
+  static final int DEFAULT_PAGE_SIZE = 100;
+  static final int MAX_PAGE_SIZE = 1000;
+  static final int MAX_BATCH_SIZE = 1000;
+  static final String NDJSON_VALUE = "application/x-ndjson";
+
+  private static final ResponseEntity<?> INVALID_PAGE_SIZE = ErrorResponseMapper.of(HttpStatus.BAD_REQUEST,
+    "Page size must be between 1 and " + MAX_PAGE_SIZE);
+  private static final ResponseEntity<?> INVALID_PAGE_TOKEN = ErrorResponseMapper.of(HttpStatus.BAD_REQUEST,
+    "Page token is not correct.");
+  private static final ResponseEntity<?> UNSATISFIABLE_FILTER = ErrorResponseMapper.of(HttpStatus.BAD_REQUEST,
+    "minSalary must not be larger than maxSalary.");
+  private static final ResponseEntity<?> INVALID_FIELDS = ErrorResponseMapper.of(HttpStatus.BAD_REQUEST,
+    "fields must be the comma separated properties of the employee.");
+  private static final ResponseEntity<?> INVALID_EMPLOYEE_ID = ErrorResponseMapper.of(HttpStatus.BAD_REQUEST,
+    "employee ID is not correct");
+  private static final ResponseEntity<?> EMPLOYEE_NOT_FOUND = ErrorResponseMapper.of(HttpStatus.NOT_FOUND,
+    "Employee with the given ID not exists.");
+  private static final ResponseEntity<?> INVALID_PARAMS = ErrorResponseMapper.of(HttpStatus.BAD_REQUEST,
+    "Given params are invalid.");
+  private static final ResponseEntity<?> INCONSISTENT_EMPLOYEE_ID = ErrorResponseMapper.of(HttpStatus.BAD_REQUEST,
+    "Given Employee ID is not correct.");
+  private static final ResponseEntity<?> INVALID_OPERATIONS = ErrorResponseMapper.of(HttpStatus.BAD_REQUEST,
+    "Operations must be given and not more than " + MAX_BATCH_SIZE);
+
   private EmployeeService employeeService;
+  private EmployeeBulkheads bulkheads;
+  private EmployeeJsonCache jsonCache;
+  private ObjectWriter employeeWriter;
+  private ObjectWriter errorWriter;
+  /**
+   * Unique to this process, so that the ETag of the collection issued before the restart never matches.
+   */
+  private final String collectionEtagPrefix = "\"" + Long.toString(System.currentTimeMillis(), 36) + ".";
 
   @Autowired
-  public EmployeeController(EmployeeService employeeService) {
+  public EmployeeController(EmployeeService employeeService, EmployeeBulkheads bulkheads,
+                            EmployeeJsonCache jsonCache, ObjectMapper objectMapper) {
     this.employeeService = employeeService;
+    this.bulkheads = bulkheads;
+    this.jsonCache = jsonCache;
+    // Each line is terminated explicitly, thus no separator is required between the root values.
+    this.employeeWriter = objectMapper.writerFor(EmployeeEntity.class)
+      .withRootValueSeparator("")
+      .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.errorWriter = objectMapper.writerFor(ErrorResponseMapper.ErrorBody.class);
+  }
+
+  /**
+   * Future of the response which is already known without the service, e.g. the validation failure.
+   */
+  private static CompletableFuture<ResponseEntity<?>> completed(ResponseEntity<?> response) {
+    return CompletableFuture.completedFuture(response);
   }
 
 
+  // No @ResponseStatus, because it overwrites 304 of the conditional GET.
   @GetMapping("/employees")
-  @ResponseStatus(code = HttpStatus.OK)
-  @ApiOperation(value = "Method to get all the employee.")
-  public SimpleResponse<List<EmployeeEntity>> getEmployees() {
-    return employeeService.retrieveEmployees().mapLeft(ResponseExceptionMapper.MAPPER)
-      .mapRight(entities -> Collections.singletonMap("fetched", entities))
-      .map(e -> {
-        throw e;
-      }, SimpleResponse::new);
+  @ApiOperation(value = "Method to get the employees page by page in the ascending order of the ID.",
+    notes = "Pass the pageToken in the response to fetch the next page. pageToken is absent in the last page. "
+      + "Filters are combined with AND, and must be the same while fetching the following pages. "
+      + "fields selects the properties of the employees, e.g. \"id,name\". id is always included.")
+  @ApiResponses(value = {@ApiResponse(code = 200, message = "Employees are in \"result.fetched\".",
+    response = EmployeeEntity.class, responseContainer = "List"),
+    @ApiResponse(code = 304, message = "Nothing has been written since the given ETag."),
+    @ApiResponse(code = 400, message = "Page token is malformed, page size is out of range, "
+      + "minSalary is larger than maxSalary or fields contains an unknown property.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 503, message = "Too many list operations are in progress."),
+    @ApiResponse(code = 504, message = "Listing did not finish in time.")})
+  public CompletableFuture<ResponseEntity<?>> getEmployees(
+    @RequestParam(name = "pageToken", required = false) String pageToken,
+    @RequestParam(name = "pageSize", required = false, defaultValue = "" + DEFAULT_PAGE_SIZE) int pageSize,
+    @RequestParam(name = "department", required = false) String department,
+    @RequestParam(name = "minSalary", required = false) Integer minSalary,
+    @RequestParam(name = "maxSalary", required = false) Integer maxSalary,
+    @RequestParam(name = "namePrefix", required = false) String namePrefix,
+    @RequestParam(name = "fields", required = false) String fields,
+    WebRequest webRequest, HttpServletResponse response) {
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+      return completed(INVALID_PAGE_SIZE);
+    }
+    Long cursor = null;
+    if (Objects.nonNull(pageToken)) {
+      val decoded = PageTokenCodec.decode(pageToken);
+      if (!decoded.isPresent()) {
+        return completed(INVALID_PAGE_TOKEN);
+      }
+      cursor = decoded.get();
+    }
+    val filter = new EmployeeFilter(department, minSalary, maxSalary, namePrefix);
+    if (!filter.isSatisfiable()) {
+      return completed(UNSATISFIABLE_FILTER);
+    }
+    val parsed = EmployeeField.parse(fields);
+    if (!parsed.isPresent()) {
+      return completed(INVALID_FIELDS);
+    }
+    val selected = parsed.get();
+    // Before the conditional GET, so that 304 has it as well as 200. ETag is the same for all the formats.
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    // Taken before reading the DB, so that the page is at least as new as the ETag. The sequence is of the primary,
+    // thus no ETag is given to the page from the replica, which may be older than the sequence.
+    if (!ReadRoute.isReplicaAllowed()
+      && webRequest.checkNotModified(collectionEtagPrefix + employeeService.getModificationSequence() + "\"")) {
+      // Nothing has been written since the client got the page. Neither the DB nor the serializer is used.
+      return null;
+    }
+    val lastEmployeeId = cursor;
+    return bulkheads.getList().submit(() -> employeeService
+      .retrieveEmployeeProjections(filter, selected, lastEmployeeId, pageSize)
+      .map(ErrorResponseMapper.MAPPER, page -> ResponseEntity.ok()
+        .body(new SimpleResponse<List<JsonSerializable>>(Collections.singletonMap("fetched", page.getEmployees()
+          .stream()
+          .map(jsonCache::fragmentOf)
+          .collect(Collectors.toList())), PageTokenCodec.encode(page.getNextCursor())))));
+  }
+
+  @GetMapping(value = "/employees:export", produces = NDJSON_VALUE)
+  @ApiOperation(value = "Method to export all the employees as the newline-delimited JSON.",
+    notes = "Employees are written in the ascending order of the ID as soon as they are read from the DB.")
+  @ApiResponses(value = {@ApiResponse(code = 500, message = "Failed before writing any employee.",
+    response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 503, message = "Too many list operations are in progress.")})
+  public CompletableFuture<Void> exportEmployees(HttpServletResponse response) {
+    // No time limit, because the duration depends on how fast the client reads.
+    return bulkheads.getList().submitWithoutTimeout(() -> {
+      try {
+        this.export(response);
+        return null;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private void export(HttpServletResponse response) throws IOException {
+    response.setContentType(NDJSON_VALUE);
+    Either<CRUDErrorStatus, Long> result;
+    try (JsonGenerator generator = employeeWriter.getFactory().createGenerator(response.getOutputStream())) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      // Closing must not flush the response, which commits the status even if nothing has been written.
+      generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+      result = employeeService.exportEmployees(entity -> {
+        try {
+          employeeWriter.writeValue(generator, entity);
+          generator.writeRaw('\n');
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    // After the generator is closed, so that its buffer is not flushed after the error.
+    if (result.isLeft()) {
+      if (response.isCommitted()) {
+        // Status is already sent. Client notices the failure by the truncated body.
+        log.error("Export aborted after the response is committed.");
+        return;
+      }
+      response.reset();
+      val error = ErrorResponseMapper.MAPPER.apply(result.getLeft());
+      response.setStatus(error.getStatusCodeValue());
+      response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+      errorWriter.writeValue(response.getOutputStream(), error.getBody());
+    }
+  }
+
+  @GetMapping("/employees:changes")
+  @ApiOperation(value = "Method to get the employees created, updated or deleted after the given change sequence.",
+    notes = "Start with since=0 and pass nextSince in the response next time. Each employee appears once in its "
+      + "latest state, and the deleted employees are given as the IDs. Fetch again while hasMore is true.")
+  @ApiResponses(value = {@ApiResponse(code = 200, message = "Employees created or updated are in "
+    + "\"result.updated\".", response = EmployeeEntity.class, responseContainer = "List"),
+    @ApiResponse(code = 400,
+      message = "Page size is out of range, or since is ahead of the server. Sync everything again in that case.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 503, message = "Too many list operations are in progress."),
+    @ApiResponse(code = 504, message = "Listing did not finish in time.")})
+  public CompletableFuture<ResponseEntity<?>> getChanges(
+    @RequestParam(name = "since") long since,
+    @RequestParam(name = "pageSize", required = false, defaultValue = "" + DEFAULT_PAGE_SIZE) int pageSize) {
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+      return completed(INVALID_PAGE_SIZE);
+    }
+    return bulkheads.getList().submit(() -> employeeService.retrieveChanges(since, pageSize)
+      .map(ErrorResponseMapper.MAPPER, changes -> {
+        val map = new LinkedHashMap<String, Object>();
+        map.put("updated", changes.getUpdated().stream().map(jsonCache::fragmentOf).collect(Collectors.toList()));
+        map.put("deleted", changes.getDeleted());
+        map.put("nextSince", changes.getNextSince());
+        map.put("hasMore", changes.isHasMore());
+        return ResponseEntity.ok(new SimpleResponse<Object>(map));
+      }));
   }
 
   @GetMapping("/employees/{employeeId}")
-  @ApiResponses(value = {@ApiResponse(code = 400, message = "Employee ID is not numerable or minus."),
-    @ApiResponse(code = 404, message = "Employee specified by the ID is not existing in the DB")})
-  public SimpleResponse<EmployeeEntity> getEmployee(@PathVariable(name = "employeeId") Long employeeId) {
+  @ApiResponses(value = {@ApiResponse(code = 200, message = "Employee is in \"result.fetched\".",
+    response = EmployeeEntity.class),
+    @ApiResponse(code = 304, message = "Employee has not been changed since the given ETag."),
+    @ApiResponse(code = 400, message = "Employee ID is not numerable or minus.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 404, message = "Employee specified by the ID is not existing in the DB",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 503, message = "Too many read operations are in progress."),
+    @ApiResponse(code = 504, message = "Lookup did not finish in time.")})
+  public CompletableFuture<ResponseEntity<?>> getEmployee(@PathVariable(name = "employeeId") Long employeeId) {
     if (Objects.isNull(employeeId) || employeeId < 0) {
-      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "employee ID is not correct");
+      return completed(INVALID_EMPLOYEE_ID);
     }
-    return employeeService.getEmployee(employeeId)
-      .map(entity -> Collections.singletonMap("fetched", entity))
-      .map(SimpleResponse::new)
-      .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Employee with the given ID not exists."));
+    // Spring answers 304 without serializing the body if the ETag matches If-None-Match.
+    // ETag is the same for all the formats, thus the caches must keep them apart by Accept.
+    return bulkheads.getRead().submit(() -> employeeService.getEmployee(employeeId)
+      .<ResponseEntity<?>>map(entity -> ResponseEntity.ok()
+        .eTag(etagOf(entity))
+        .varyBy(HttpHeaders.ACCEPT)
+        .body(new SimpleResponse<>(Collections.singletonMap("fetched", jsonCache.fragmentOf(entity)))))
+      .orElse(EMPLOYEE_NOT_FOUND));
+  }
+
+  /**
+   * Strong ETag of the employee. The version is incremented on every update, thus the same ID and version mean
+   * the same content.
+   */
+  static String etagOf(EmployeeEntity employee) {
+    return "\"" + employee.getId() + "." + employee.getVersion() + "\"";
   }
 
   @PostMapping("/employees")
-  @ResponseStatus(HttpStatus.CREATED)
   @ApiResponses({
-    @ApiResponse(code = 409, message = "The user specified with the ID already exists in the DB."),
-    @ApiResponse(code = 400, message = "Validation failure. The entity may have missed the necessary property.")
+    @ApiResponse(code = 201, message = "Employee is in \"result.created\".", response = EmployeeEntity.class),
+    @ApiResponse(code = 409, message = "The user specified with the ID already exists in the DB.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 400, message = "Validation failure. The entity may have missed the necessary property.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 503, message = "Too many write operations are in progress. Nothing is written."),
+    @ApiResponse(code = 504, message = "Write did not finish in time. It may or may not have been applied.")
   })
-  public SimpleResponse<EmployeeEntity> saveEmployee(@RequestBody EmployeeEntity employee) {
+  public CompletableFuture<ResponseEntity<?>> saveEmployee(@RequestBody EmployeeEntity employee) {
     if(Objects.isNull(employee) || (Objects.nonNull(employee.getId()) && employee.getId() < 0)) {
-      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Given params are invalid.");
+      return completed(INVALID_PARAMS);
     }
-    return employeeService.saveEmployee(employee).mapLeft(ResponseExceptionMapper.MAPPER)
-      .mapRight(entity -> Collections.singletonMap("created", entity))
-      .map(e -> {
-        throw e;
-      }, SimpleResponse::new);
+    return bulkheads.getWrite().submit(() -> employeeService.saveEmployee(employee)
+      .map(ErrorResponseMapper.MAPPER, entity -> ResponseEntity.status(HttpStatus.CREATED)
+        .body(new SimpleResponse<>(Collections.singletonMap("created", entity)))));
   }
 
-  @ResponseStatus(HttpStatus.OK)
   @DeleteMapping("/employees/{employeeId}")
-  public SimpleResponse<EmployeeEntity> deleteEmployee(@PathVariable(name = "employeeId") Long employeeId) {
-    return employeeService.deleteEmployee(employeeId)
+  @ApiResponses({@ApiResponse(code = 200, message = "Deleted employee is in \"result.deleted\", which is null if "
+    + "it has not existed.", response = EmployeeEntity.class),
+    @ApiResponse(code = 409, message = "The employee has been modified by another request.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 503, message = "Too many write operations are in progress. Nothing is written."),
+    @ApiResponse(code = 504, message = "Write did not finish in time. It may or may not have been applied.")})
+  public CompletableFuture<ResponseEntity<?>> deleteEmployee(@PathVariable(name = "employeeId") Long employeeId) {
+    // Mapped before map(), since the employee is null if it has not existed.
+    return bulkheads.getWrite().submit(() -> employeeService.deleteEmployee(employeeId)
       .mapRight(entity -> Collections.singletonMap("deleted", entity))
-      .mapLeft(ResponseExceptionMapper.MAPPER)
-      .map(e -> {
-        throw e;
-      }, SimpleResponse::new);
+      .map(ErrorResponseMapper.MAPPER, result -> ResponseEntity.ok(new SimpleResponse<>(result))));
   }
 
   @PutMapping("/employees/{employeeId}")
-  public SimpleResponse<EmployeeEntity> updateEmployee(@RequestBody EmployeeEntity employee,
-                                                       @PathVariable(name = "employeeId") Long employeeId) {
-    if (Objects.isNull(employeeId) || Objects.isNull(employee) || Objects.equals(employee.getId(), employeeId)) {
-      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Given Employee ID is not correct.");
+  @ApiResponses({
+    @ApiResponse(code = 200, message = "Employees before and after the update are in \"result.old\" and "
+      + "\"result.updated\".", response = EmployeeEntity.class),
+    @ApiResponse(code = 400, message = "Employee ID in the body is different from the path, or validation failure.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 404, message = "Employee specified by the ID is not existing in the DB",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 409, message = "Given version is not the current one, or modified by another request.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 503, message = "Too many write operations are in progress. Nothing is written."),
+    @ApiResponse(code = 504, message = "Write did not finish in time. It may or may not have been applied.")
+  })
+  public CompletableFuture<ResponseEntity<?>> updateEmployee(
+    @RequestBody EmployeeEntity employee, @PathVariable(name = "employeeId") Long employeeId) {
+    if (Objects.isNull(employeeId) || Objects.isNull(employee)
+      || (Objects.nonNull(employee.getId()) && !Objects.equals(employee.getId(), employeeId))) {
+      return completed(INCONSISTENT_EMPLOYEE_ID);
     }
 
-    return employeeService.updateEmployee(employee).mapRight(result -> {
-      val map = new HashMap<String, EmployeeEntity>();
-      map.put("old", result.getOld());
-      map.put("updated", result.getUpdated());
-      return Collections.unmodifiableMap(map);
-    }).mapLeft(ResponseExceptionMapper.MAPPER)
-      .map(e -> {
-        throw e;
-      }, SimpleResponse::new);
+    return bulkheads.getWrite().submit(() -> employeeService.updateEmployee(employee.withId(employeeId))
+      .map(ErrorResponseMapper.MAPPER, result -> {
+        val map = new HashMap<String, EmployeeEntity>();
+        map.put("old", result.getOld());
+        map.put("updated", result.getUpdated());
+        return ResponseEntity.ok(new SimpleResponse<>(Collections.unmodifiableMap(map)));
+      }));
+  }
+
+  @PostMapping("/employees:batch")
+  @ApiOperation(value = "Method to create, update and delete many employees in one transaction.",
+    notes = "Each operation has its own status in the result. If the DB fails, none of the operations is applied.")
+  @ApiResponses({
+    @ApiResponse(code = 200, message = "Result of each operation is in \"result.results\" in the same order, with "
+      + "\"status\" and the employees in the same form as the single operation."),
+    @ApiResponse(code = 400, message = "Operations are missing or too many.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 409, message = "Targets have been modified by another request. None of the operations is "
+      + "applied.", response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 500, message = "DB failed and none of the operations is applied.",
+      response = ErrorResponseMapper.ErrorBody.class),
+    @ApiResponse(code = 503, message = "Too many write operations are in progress. Nothing is written."),
+    @ApiResponse(code = 504, message = "Batch did not finish in time. It may or may not have been applied.")
+  })
+  public CompletableFuture<ResponseEntity<?>> batchEmployees(@RequestBody BatchRequest request) {
+    if (Objects.isNull(request) || Objects.isNull(request.getOperations())
+      || request.getOperations().size() > MAX_BATCH_SIZE) {
+      return completed(INVALID_OPERATIONS);
+    }
+    val operations = request.getOperations();
+    return bulkheads.getWrite().submit(() -> employeeService.processBatch(operations)
+      .map(ErrorResponseMapper.MAPPER, results -> {
+        val items = new ArrayList<Map<String, Object>>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+          items.add(toBatchItem(operations.get(i), results.get(i)));
+        }
+        return ResponseEntity.ok(new SimpleResponse<>(Collections.singletonMap("results", items)));
+      }));
+  }
+
+  @GetMapping("/employees:aggregates")
+  @ResponseStatus(HttpStatus.OK)
+  @ApiOperation(value = "Method to get the headcount and min/max/sum/average salary of each department.",
+    notes = "Statistics are kept in memory and updated on every write, thus this does not scan the employees.")
+  public SimpleResponse<List<DepartmentStatistics>> getDepartmentStatistics() {
+    // No DB access, thus served in the servlet thread without the bulkhead.
+    return new SimpleResponse<>(Collections.singletonMap("departments",
+      employeeService.retrieveDepartmentStatistics()));
+  }
+
+  /**
+   * Convert the result of each batch operation into the same form as the response of the single operation.
+   */
+  private static Map<String, Object> toBatchItem(EmployeeService.BatchOperation operation,
+                                                 Either<CRUDErrorStatus, EmployeeService.UpdateResult> result) {
+    val item = new LinkedHashMap<String, Object>();
+    result.apply(error -> item.put("status", error), updateResult -> {
+      item.put("status", "OK");
+      switch (operation.getType()) {
+        case CREATE:
+          item.put("created", updateResult.getUpdated());
+          break;
+        case UPDATE:
+          item.put("old", updateResult.getOld());
+          item.put("updated", updateResult.getUpdated());
+          break;
+        case DELETE:
+          item.put("deleted", updateResult.getOld());
+          break;
+      }
+    });
+    return item;
+  }
+
+  @Getter
+  @Setter
+  @NoArgsConstructor
+  private static class BatchRequest {
+    private List<EmployeeService.BatchOperation> operations;
   }
 
   /**
@@ -105,7 +421,16 @@ public class EmployeeController {
    */
   @Getter
   @AllArgsConstructor
+  @JsonInclude(JsonInclude.Include.NON_NULL)
   private static class SimpleResponse<T> {
     private final Map<String, T> result;
+    /**
+     * Token to fetch the next page. Only present in the paginated response which has the next page.
+     */
+    private final String pageToken;
+
+    SimpleResponse(Map<String, T> result) {
+      this(result, null);
+    }
   }
 }
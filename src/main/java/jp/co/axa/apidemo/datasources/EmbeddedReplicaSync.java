@@ -0,0 +1,143 @@
+package jp.co.axa.apidemo.datasources;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.services.EmployeeChangeLog;
+import jp.co.axa.apidemo.services.EmployeeService;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Replication into the embedded H2 replicas, standing in for the replication of the DB when testing locally.<br/>
+ * On the startup, each replica gets the copy of the primary by the SCRIPT command of H2. Then the replica follows
+ * the delta sync ({@link EmployeeService#retrieveChanges(long, int)}) every "employee.datasource.embedded-sync.interval",
+ * which is the lag of the replicas. Only the employees are kept up to date.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "employee.datasource.embedded-sync.enabled", havingValue = "true")
+public class EmbeddedReplicaSync implements DisposableBean {
+
+  private static final String MERGE_EMPLOYEE = "MERGE INTO EMPLOYEE (ID, EMPLOYEE_NAME, EMPLOYEE_SALARY, DEPARTMENT, "
+    + "VERSION) KEY (ID) VALUES (?, ?, ?, ?, ?)";
+  private static final String DELETE_EMPLOYEE = "DELETE FROM EMPLOYEE WHERE ID = ?";
+
+  private final DataSource primary;
+  private final List<Replica> replicas;
+  private final EmployeeService employeeService;
+  private final EmployeeChangeLog changeLog;
+  private final Duration interval;
+  private final int pageSize;
+  private final ScheduledExecutorService scheduler;
+
+  @Autowired
+  public EmbeddedReplicaSync(ReplicaRoutingDataSource dataSource, EmployeeService employeeService,
+                             EmployeeChangeLog changeLog,
+                             @Value("${employee.datasource.embedded-sync.interval:PT0.5S}") Duration interval,
+                             @Value("${employee.datasource.embedded-sync.page-size:1000}") int pageSize) {
+    this.primary = dataSource.getPrimary();
+    this.replicas = dataSource.getReplicas().stream().map(Replica::new).collect(Collectors.toList());
+    this.employeeService = employeeService;
+    this.changeLog = changeLog;
+    this.interval = interval;
+    this.pageSize = pageSize;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      val thread = new Thread(runnable, "replica-sync");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Copy the primary into the replicas, then keep them in sync.
+   */
+  @EventListener(ContextRefreshedEvent.class)
+  public void start() {
+    replicas.forEach(this::copy);
+    scheduler.scheduleWithFixedDelay(this::syncAll, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void copy(Replica replica) {
+    // Changes after this are replayed, including the ones already in the copy. Replaying is idempotent.
+    val since = changeLog.getStableSequence();
+    val script = new JdbcTemplate(primary).queryForList("SCRIPT", String.class);
+    script.forEach(replica.jdbcTemplate::execute);
+    replica.since = since;
+    log.info("Copied {} statements into the replica {} at the change sequence {}.", script.size(),
+      replica.dataSource, since);
+  }
+
+  void syncAll() {
+    for (Replica replica : replicas) {
+      try {
+        this.sync(replica);
+      } catch (Exception e) {
+        log.warn("Failed in syncing the replica {}. Retried later.", replica.dataSource, e);
+      }
+    }
+  }
+
+  private void sync(Replica replica) {
+    for (;;) {
+      val result = employeeService.retrieveChanges(replica.since, pageSize);
+      if (result.isLeft()) {
+        log.warn("Changes since {} for the replica {} are not available: {}", replica.since, replica.dataSource,
+          result.getLeft());
+        return;
+      }
+      val changes = result.getRight();
+      val merged = new ArrayList<Object[]>();
+      for (EmployeeEntity employee : changes.getUpdated()) {
+        merged.add(new Object[]{employee.getId(), employee.getName(), employee.getSalary(), employee.getDepartment(),
+          employee.getVersion()});
+      }
+      if (!merged.isEmpty()) {
+        replica.jdbcTemplate.batchUpdate(MERGE_EMPLOYEE, merged);
+      }
+      if (!changes.getDeleted().isEmpty()) {
+        replica.jdbcTemplate.batchUpdate(DELETE_EMPLOYEE, changes.getDeleted().stream()
+          .map(id -> new Object[]{id})
+          .collect(Collectors.toList()));
+      }
+      replica.since = changes.getNextSince();
+      if (!changes.isHasMore()) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Replica and the change sequence applied to it. Updated only by the thread of the scheduler after the copy.
+   */
+  static class Replica {
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile long since;
+
+    Replica(DataSource dataSource) {
+      this.dataSource = dataSource;
+      this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package jp.co.axa.apidemo.datasources;
+
+import lombok.val;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Whether the reads of the current thread may go to the read replicas.<br/>
+ * Replicas are opt-in: everything goes to the primary unless the request has allowed the replicas
+ * ({@link ReadRoutingFilter}), so that the writes, the startup and the background jobs always see the latest state.
+ * The route is carried over to the threads of the bulkheads by {@link #PROPAGATION}.
+ */
+public final class ReadRoute {
+
+  private static final ThreadLocal<Boolean> REPLICA_ALLOWED = new ThreadLocal<>();
+
+  /**
+   * Run the task with the route of the thread which submitted it.
+   */
+  public static final TaskDecorator PROPAGATION = task -> {
+    val allowed = isReplicaAllowed();
+    return () -> {
+      val previous = REPLICA_ALLOWED.get();
+      REPLICA_ALLOWED.set(allowed);
+      try {
+        task.run();
+      } finally {
+        REPLICA_ALLOWED.set(previous);
+      }
+    };
+  };
+
+  private ReadRoute() {
+  }
+
+  public static boolean isReplicaAllowed() {
+    return Boolean.TRUE.equals(REPLICA_ALLOWED.get());
+  }
+
+  /**
+   * Set the route of the current thread. Must be cleared by {@link #clear()} after use.
+   */
+  public static void set(boolean replicaAllowed) {
+    REPLICA_ALLOWED.set(replicaAllowed);
+  }
+
+  /**
+   * Route the reads of the current thread to the primary again.
+   */
+  public static void clear() {
+    REPLICA_ALLOWED.remove();
+  }
+}
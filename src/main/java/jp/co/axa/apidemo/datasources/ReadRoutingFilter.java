@@ -0,0 +1,111 @@
+package jp.co.axa.apidemo.datasources;
+
+import jp.co.axa.apidemo.admission.ClientIdentifier;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Choose the DataSource of the reads of each request to the employee API.<br/>
+ * Reads go to the replicas, except for the client which has written in "employee.datasource.read-your-writes-window",
+ * so that the client always reads its own writes. The client is identified the same way as the admission control:
+ * the remote address, or "employee.admission.client-header" from "employee.admission.trusted-proxies".
+ * The window starts again when the write completes. Writes and the change feed read from the primary:
+ * the feed must not skip the changes which have not reached the replica yet.
+ */
+@Component
+@ConditionalOnProperty("employee.datasource.replicas")
+public class ReadRoutingFilter extends OncePerRequestFilter {
+
+  static final String PATH = "/api/v1/employees";
+
+  private final ClientIdentifier clients;
+  private final ReadYourWritesTracker tracker;
+
+  @Autowired
+  public ReadRoutingFilter(@Value("${employee.admission.client-header:X-Client-Id}") String clientHeader,
+                           @Value("${employee.admission.trusted-proxies:}") String[] trustedProxies,
+                           @Value("${employee.datasource.read-your-writes-window:PT5S}") Duration window,
+                           @Value("${employee.datasource.client-stripes:4096}") int clientStripes) {
+    this.clients = new ClientIdentifier(clientHeader, trustedProxies);
+    this.tracker = new ReadYourWritesTracker(window, clientStripes);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith(request.getContextPath() + PATH);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+    throws ServletException, IOException {
+    val client = clients.clientOf(request);
+    val method = request.getMethod();
+    if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+      // Reads running while the write is in progress also go to the primary.
+      tracker.recordWrite(client);
+      try {
+        chain.doFilter(request, response);
+      } finally {
+        if (request.isAsyncStarted()) {
+          request.getAsyncContext().addListener(new WriteCompletionListener(tracker, client));
+        } else {
+          tracker.recordWrite(client);
+        }
+      }
+      return;
+    }
+    ReadRoute.set(!request.getRequestURI().endsWith(":changes") && !tracker.isRecentWriter(client));
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      ReadRoute.clear();
+    }
+  }
+
+  /**
+   * Start the window again when the asynchronous write completes.
+   */
+  private static class WriteCompletionListener implements AsyncListener {
+    private final ReadYourWritesTracker tracker;
+    private final String client;
+
+    WriteCompletionListener(ReadYourWritesTracker tracker, String client) {
+      this.tracker = tracker;
+      this.client = client;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      tracker.recordWrite(client);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      // onComplete follows.
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      // onComplete follows.
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
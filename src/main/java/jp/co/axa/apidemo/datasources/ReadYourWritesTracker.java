@@ -0,0 +1,65 @@
+package jp.co.axa.apidemo.datasources;
+
+import lombok.val;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Clients which have written recently, whose reads must go to the primary until the replicas catch up.<br/>
+ * Each stripe is the time until which the clients hashed into it read from the primary. Same as ClientRateLimiter,
+ * the memory does not grow with the number of the clients. Clients sharing a stripe with a writer also read from
+ * the primary for a while, which is only less load on the replicas.
+ */
+public class ReadYourWritesTracker {
+
+  /**
+   * Stripes are placed 64 bytes apart, so that the neighbours are not in the same cache line.
+   */
+  private static final int PADDING = 8;
+
+  private final AtomicLongArray stripes;
+  private final int mask;
+  private final long windowNanos;
+  private final LongSupplier clock;
+  private final long origin;
+
+  /**
+   * @param window  time to read from the primary after the write. Must be longer than the lag of the replicas.
+   * @param stripes number of the stripes. Rounded up to the power of 2.
+   */
+  public ReadYourWritesTracker(Duration window, int stripes) {
+    this(window, stripes, System::nanoTime);
+  }
+
+  ReadYourWritesTracker(Duration window, int stripes, LongSupplier clock) {
+    val size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    this.stripes = new AtomicLongArray(size * PADDING);
+    this.mask = size - 1;
+    this.windowNanos = window.toNanos();
+    this.clock = clock;
+    // Timestamps are relative to this, so that the initial 0 means no recent write.
+    this.origin = clock.getAsLong();
+  }
+
+  /**
+   * Route the reads of the client to the primary for the window from now.
+   */
+  public void recordWrite(String client) {
+    val until = clock.getAsLong() - origin + windowNanos;
+    stripes.accumulateAndGet(stripeOf(client) * PADDING, until, Math::max);
+  }
+
+  /**
+   * @return true if the reads of the client must go to the primary.
+   */
+  public boolean isRecentWriter(String client) {
+    return stripes.get(stripeOf(client) * PADDING) - (clock.getAsLong() - origin) > 0;
+  }
+
+  private int stripeOf(String client) {
+    val hash = client.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
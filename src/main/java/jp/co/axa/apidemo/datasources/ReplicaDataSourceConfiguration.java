@@ -0,0 +1,52 @@
+package jp.co.axa.apidemo.datasources;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+
+/**
+ * DataSources of the primary and the read replicas, enabled by "employee.datasource.replicas" (JDBC URLs separated
+ * by commas).<br/>
+ * The primary is configured by "spring.datasource.*" same as without the replicas. Replicas use the same driver
+ * and credentials as the primary. JPA uses the routing DataSource, thus the repositories need no change.
+ */
+@Configuration
+@ConditionalOnProperty("employee.datasource.replicas")
+public class ReplicaDataSourceConfiguration {
+
+  @Bean
+  @ConfigurationProperties(prefix = "spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                           HikariDataSource primaryDataSource,
+                                                           @Value("${employee.datasource.replicas}") String[] urls) {
+    val replicas = new ArrayList<DataSource>();
+    for (int i = 0; i < urls.length; i++) {
+      val replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(urls[i].trim()).build();
+      replica.setPoolName("replica-" + (i + 1));
+      replicas.add(replica);
+    }
+    return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    // Connection is taken on the first statement, when the transaction has decided whether it is read-only.
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+}
@@ -0,0 +1,76 @@
+package jp.co.axa.apidemo.datasources;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource which sends the reads to the read replicas in turn, and everything else to the primary.<br/>
+ * A connection goes to the replica only if the current thread allows it ({@link ReadRoute}) and the transaction is
+ * read-only, or there is no transaction. The decision is made when the connection is taken, thus this must be
+ * wrapped with LazyConnectionDataSourceProxy so that the transaction has been set up by then.
+ * Replicas are closed with this DataSource. The primary is not.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+  private static final String PRIMARY = "primary";
+
+  @Getter
+  private final DataSource primary;
+  @Getter
+  private final List<DataSource> replicas;
+  private final AtomicInteger next = new AtomicInteger();
+
+  public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+    this.primary = primary;
+    this.replicas = Collections.unmodifiableList(replicas);
+    val targets = new HashMap<Object, Object>();
+    targets.put(PRIMARY, primary);
+    for (int i = 0; i < replicas.size(); i++) {
+      targets.put(i, replicas.get(i));
+    }
+    this.setTargetDataSources(targets);
+    this.setDefaultTargetDataSource(primary);
+    this.setLenientFallback(false);
+    this.afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (replicas.isEmpty() || !ReadRoute.isReplicaAllowed() || !isReadOnly()) {
+      return PRIMARY;
+    }
+    return Math.floorMod(next.getAndIncrement(), replicas.size());
+  }
+
+  /**
+   * Queries outside of the transaction, e.g. the custom queries of the repository, only read.
+   */
+  private static boolean isReadOnly() {
+    return !TransactionSynchronizationManager.isActualTransactionActive()
+      || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  @Override
+  public void close() {
+    for (DataSource replica : replicas) {
+      if (replica instanceof Closeable) {
+        try {
+          ((Closeable) replica).close();
+        } catch (Exception e) {
+          log.warn("Failed in closing the replica {}.", replica, e);
+        }
+      }
+    }
+  }
+}
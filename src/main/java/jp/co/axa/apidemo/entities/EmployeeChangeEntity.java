@@ -0,0 +1,75 @@
+package jp.co.axa.apidemo.entities;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.val;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+/**
+ * Latest change of each employee, for the delta sync.<br/>
+ * One row per employee which has ever been written. The row of the deleted employee is kept as the tombstone.
+ */
+@Entity
+@Table(name = "EMPLOYEE_CHANGE", indexes = {
+  @Index(name = "IDX_EMPLOYEE_CHANGE_SEQ", columnList = "CHANGE_SEQ", unique = true)
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class EmployeeChangeEntity implements Persistable<Long> {
+
+  @Id
+  @Column(name = "EMPLOYEE_ID")
+  private Long employeeId;
+
+  @Column(name = "CHANGE_SEQ", nullable = false)
+  private Long changeSeq;
+
+  @Column(name = "DELETED", nullable = false)
+  private boolean deleted;
+
+  /**
+   * True until persisted, so that the new row is inserted without selecting it first.
+   */
+  @Transient
+  @Setter(AccessLevel.NONE)
+  @Getter(AccessLevel.NONE)
+  private boolean created;
+
+  /**
+   * Create the row which is not in the DB yet.
+   */
+  public static EmployeeChangeEntity created(Long employeeId, long changeSeq, boolean deleted) {
+    val change = new EmployeeChangeEntity();
+    change.employeeId = employeeId;
+    change.changeSeq = changeSeq;
+    change.deleted = deleted;
+    change.created = true;
+    return change;
+  }
+
+  @PostPersist
+  void markPersisted() {
+    this.created = false;
+  }
+
+  @Override
+  public Long getId() {
+    return this.employeeId;
+  }
+
+  @Override
+  public boolean isNew() {
+    return this.created;
+  }
+}
@@ -4,6 +4,8 @@ import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.*;
 import lombok.experimental.Wither;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.Column;
@@ -11,11 +13,19 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Optional;
 
 @Entity
-@Table(name="EMPLOYEE")
+// Indexes for the filters of the list API. ID is appended to DEPARTMENT, so that the employees of the department are
+// read in the order of the ID from the index without sorting.
+@Table(name="EMPLOYEE", indexes = {
+  @Index(name = "IDX_EMPLOYEE_DEPARTMENT", columnList = "DEPARTMENT, ID"),
+  @Index(name = "IDX_EMPLOYEE_SALARY", columnList = "EMPLOYEE_SALARY"),
+  @Index(name = "IDX_EMPLOYEE_NAME", columnList = "EMPLOYEE_NAME")
+})
 @Setter
 @Getter
 @AllArgsConstructor
@@ -26,7 +36,15 @@ public class EmployeeEntity {
 
     @Getter
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    // Sequence with the pooled optimizer instead of IDENTITY, so that Hibernate can batch the inserts.
+    // The pool is kept for each shard, because each shard has the sequence in the range of its IDs.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+    @GenericGenerator(name = "employee_seq", strategy = "jp.co.axa.apidemo.sharding.ShardAwareSequenceGenerator",
+      parameters = {
+        @Parameter(name = "sequence_name", value = "EMPLOYEE_SEQ"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled")
+      })
     @ApiModelProperty(value = "ID of employee. Optional when creating the new record.", dataType = "Number", allowableValues = "Numbers larger than 0")
     private Long id;
 
@@ -45,6 +63,30 @@ public class EmployeeEntity {
     @ApiModelProperty(value = "The department where employee belongs to.")
     private String department;
 
+    @Getter
+    @Version
+    // Not null, because the conditional writes compare and increment it in the DB.
+    @Column(name="VERSION", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    @ApiModelProperty(value = "Version of the record for the optimistic locking. Ignored when creating the new record.",
+      notes = "If given when updating, the update fails with 409 unless it is the current version.", dataType = "Number")
+    private Long version;
+
+    /**
+     * Create the entity whose version is not known yet.
+     */
+    public EmployeeEntity(Long id, String name, Integer salary, String department) {
+      this(id, name, salary, department, null);
+    }
+
+    /**
+     * Create the copy of this entity which is not managed by any persistence context.
+     *
+     * @return new instance with the same properties.
+     */
+    public EmployeeEntity copy() {
+      return new EmployeeEntity(this.id, this.name, this.salary, this.department, this.version);
+    }
+
     // FIXME better to isolate the validation logic from the entity
     public boolean validateSelf() {
       if (StringUtils.isEmpty(this.name)) {
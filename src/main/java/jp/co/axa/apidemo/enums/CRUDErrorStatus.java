@@ -4,7 +4,8 @@ public enum CRUDErrorStatus {
   UNKNOWN_FAILURE(1),
   ALREADY_EXISTS(2),
   TARGET_NOT_FOUND(3),
-  VALIDATION_FAILURE(4);
+  VALIDATION_FAILURE(4),
+  VERSION_CONFLICT(5);
   private final int status;
   CRUDErrorStatus(int status) {
     this.status = status;
@@ -2,17 +2,21 @@ package jp.co.axa.apidemo.fanctor;
 
 import lombok.NonNull;
 
-import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
- * Functor class to express either of success result or error status.
+ * Functor class to express either of success result or error status.<br/>
+ * Implemented as the dedicated Left and Right variants which hold the value directly, so that mapping does not
+ * allocate anything but the resulting Either, and mapping the other side allocates nothing.
  *
  * @param <L> Type of wrong result. expected to be Exception or error status.
  * @param <R> Type of correct result. Right value is nullable.
  */
-public class Either<L, R> {
+public abstract class Either<L, R> {
+
+  private static final Either<?, ?> RIGHT_NULL = new Right<>(null);
+
   /**
    * Create the Either type with the wrong/error result.
    *
@@ -20,7 +24,7 @@ public class Either<L, R> {
    * @return Either with error value.
    */
   public static <L, R> Either<L, R> left(@NonNull L value) {
-    return new Either<>(Optional.of(value), Optional.empty());
+    return new Left<>(value);
   }
 
   /**
@@ -29,57 +33,134 @@ public class Either<L, R> {
    * @param value correct result. Though this is functor, null is acceptable,
    * @return Either with the correct value.
    */
+  @SuppressWarnings("unchecked")
   public static <L, R> Either<L, R> right(R value) {
-    return new Either<>(Optional.empty(), Optional.ofNullable(value));
+    if (value == null) {
+      return (Either<L, R>) RIGHT_NULL;
+    }
+    return new Right<>(value);
   }
 
-  private final Optional<L> left;
-  private final Optional<R> right;
-
-  private Either(Optional<L> l, Optional<R> r) {
-    left = l;
-    right = r;
+  private Either() {
   }
 
-  public boolean isLeft() {
-    return this.left.isPresent();
-  }
+  public abstract boolean isLeft();
 
   public boolean isRight() {
-    return !this.left.isPresent();
+    return !this.isLeft();
   }
 
-  public L getLeft() {
-    return this.left.orElse(null);
-  }
+  public abstract L getLeft();
 
-  public R getRight() {
-    return this.right.orElse(null);
-  }
+  public abstract R getRight();
 
-  public <T> T map(
+  /**
+   * Fold the either into the single value.
+   *
+   * @return result of lFunc or rFunc. Null if this is the right with null, without calling rFunc.
+   */
+  public abstract <T> T map(
     Function<? super L, ? extends T> lFunc,
-    Function<? super R, ? extends T> rFunc) {
-    return left.<T>map(lFunc).orElseGet(() -> right.map(rFunc).orElse(null));
-  }
+    Function<? super R, ? extends T> rFunc);
 
-  public <T> Either<T, R> mapLeft(Function<? super L, ? extends T> lFunc) {
-    return new Either<>(left.map(lFunc), right);
-  }
+  /**
+   * Map the left value. If lFunc returns null, the result is the right with null.
+   */
+  public abstract <T> Either<T, R> mapLeft(Function<? super L, ? extends T> lFunc);
+
+  /**
+   * Map the right value. rFunc is called even if the right value is null.
+   */
+  public abstract <T> Either<L, T> mapRight(Function<? super R, ? extends T> rFunc);
+
+  public abstract void apply(Consumer<? super L> lFunc, Consumer<? super R> rFunc);
+
+  private static final class Left<L, R> extends Either<L, R> {
+    private final L value;
+
+    private Left(L value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean isLeft() {
+      return true;
+    }
+
+    @Override
+    public L getLeft() {
+      return value;
+    }
+
+    @Override
+    public R getRight() {
+      return null;
+    }
+
+    @Override
+    public <T> T map(Function<? super L, ? extends T> lFunc, Function<? super R, ? extends T> rFunc) {
+      return lFunc.apply(value);
+    }
+
+    @Override
+    public <T> Either<T, R> mapLeft(Function<? super L, ? extends T> lFunc) {
+      T mapped = lFunc.apply(value);
+      return mapped == null ? Either.right(null) : new Left<>(mapped);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Either<L, T> mapRight(Function<? super R, ? extends T> rFunc) {
+      return (Either<L, T>) this;
+    }
 
-  public <T> Either<L, T> mapRight(Function<? super R, ? extends T> rFunc) {
-    if (!left.isPresent() && !right.isPresent()) {
-      return new Either<>(left, Optional.ofNullable(rFunc.apply(null)));
+    @Override
+    public void apply(Consumer<? super L> lFunc, Consumer<? super R> rFunc) {
+      lFunc.accept(value);
     }
-    return new Either<>(left, right.map(rFunc));
   }
 
-  public void apply(Consumer<? super L> lFunc, Consumer<? super R> rFunc) {
-    left.ifPresent(lFunc);
-    if (!left.isPresent() && !right.isPresent()) {
-      rFunc.accept(null);
-    } else {
-      right.ifPresent(rFunc);
+  private static final class Right<L, R> extends Either<L, R> {
+    private final R value;
+
+    private Right(R value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean isLeft() {
+      return false;
+    }
+
+    @Override
+    public L getLeft() {
+      return null;
+    }
+
+    @Override
+    public R getRight() {
+      return value;
+    }
+
+    @Override
+    public <T> T map(Function<? super L, ? extends T> lFunc, Function<? super R, ? extends T> rFunc) {
+      return value == null ? null : rFunc.apply(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Either<T, R> mapLeft(Function<? super L, ? extends T> lFunc) {
+      return (Either<T, R>) this;
+    }
+
+    @Override
+    public <T> Either<L, T> mapRight(Function<? super R, ? extends T> rFunc) {
+      return Either.right(rFunc.apply(value));
+    }
+
+    @Override
+    public void apply(Consumer<? super L> lFunc, Consumer<? super R> rFunc) {
+      rFunc.accept(value);
     }
   }
 }
@@ -0,0 +1,38 @@
+package jp.co.axa.apidemo.formats;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary formats of the request and response bodies, chosen by the Accept and Content-Type headers.<br/>
+ * CBOR ({@value #CBOR_VALUE}) and Smile ({@value #SMILE_VALUE}) are served besides JSON by the same handlers.
+ * The mappers are built from the builder of Spring Boot, so that the "spring.jackson.*" properties apply to all the
+ * formats the same way. The converters replace the default ones of Spring MVC, which ignore those properties.
+ */
+@Configuration
+public class BinaryFormatConfiguration {
+
+  public static final String CBOR_VALUE = "application/cbor";
+  public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+  /**
+   * @param builder prototype bean, thus not shared with the other mappers.
+   */
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+  }
+
+  /**
+   * @param builder prototype bean, thus not shared with the other mappers.
+   */
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+  }
+}
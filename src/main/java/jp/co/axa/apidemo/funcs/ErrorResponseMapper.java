@@ -0,0 +1,84 @@
+package jp.co.axa.apidemo.funcs;
+
+
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.val;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Function;
+
+/**
+ * Class to map the error status in the service layer to the response in the controller.<br/>
+ * The responses are created once and shared, since both the ResponseEntity and the body are immutable. No exception
+ * is thrown for the expected failures, so that neither the stack trace nor the exception resolvers of Spring are
+ * paid on the error path. The body has the same status, error and message as the error page of Spring Boot,
+ * without the timestamp and the path which would differ on every request.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ErrorResponseMapper implements Function<CRUDErrorStatus, ResponseEntity<ErrorResponseMapper.ErrorBody>> {
+
+  public static ErrorResponseMapper MAPPER = new ErrorResponseMapper();
+
+  private static final ResponseEntity<ErrorBody>[] RESPONSES = responses();
+
+  @SuppressWarnings("unchecked")
+  private static ResponseEntity<ErrorBody>[] responses() {
+    val statuses = CRUDErrorStatus.values();
+    ResponseEntity<ErrorBody>[] responses = new ResponseEntity[statuses.length];
+    for (CRUDErrorStatus status : statuses) {
+      responses[status.ordinal()] = create(status);
+    }
+    return responses;
+  }
+
+  private static ResponseEntity<ErrorBody> create(CRUDErrorStatus status) {
+    switch (status) {
+      case ALREADY_EXISTS:
+        return of(HttpStatus.CONFLICT, "Target entity already exists.");
+      case TARGET_NOT_FOUND:
+        return of(HttpStatus.NOT_FOUND, "Target entity not found");
+      case VERSION_CONFLICT:
+        return of(HttpStatus.CONFLICT, "Target entity has been modified by another request.");
+      case VALIDATION_FAILURE:
+        return of(HttpStatus.BAD_REQUEST, "Given data is not valid.");
+      case UNKNOWN_FAILURE:
+      default:
+        return of(HttpStatus.INTERNAL_SERVER_ERROR, "Unknown Error occurred in the server.");
+    }
+  }
+
+  /**
+   * Create the error response. Meant to be called once and kept in the constant.
+   *
+   * @param status  HTTP status of the response.
+   * @param message message of the body.
+   */
+  public static ResponseEntity<ErrorBody> of(HttpStatus status, String message) {
+    return new ResponseEntity<>(new ErrorBody(status, message), status);
+  }
+
+  @Override
+  public ResponseEntity<ErrorBody> apply(CRUDErrorStatus status) {
+    return RESPONSES[status.ordinal()];
+  }
+
+  /**
+   * Body of the error response.
+   */
+  @Getter
+  public static final class ErrorBody {
+    private final int status;
+    private final String error;
+    private final String message;
+
+    private ErrorBody(HttpStatus status, String message) {
+      this.status = status.value();
+      this.error = status.getReasonPhrase();
+      this.message = message;
+    }
+  }
+}
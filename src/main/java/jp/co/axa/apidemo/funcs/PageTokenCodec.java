@@ -0,0 +1,53 @@
+package jp.co.axa.apidemo.funcs;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Class to convert the pagination cursor into the opaque page token and vice versa.<br/>
+ * The token is not meant to be parsed by the API caller, so that the cursor format can be changed without
+ * breaking the backward compatibility.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class PageTokenCodec {
+
+  /**
+   * Encode the cursor into the page token.
+   *
+   * @param cursor ID of the last employee in the page. Nullable.
+   * @return page token, or null if the cursor is null (i.e. there is no next page).
+   */
+  public static String encode(Long cursor) {
+    if (cursor == null) {
+      return null;
+    }
+    return Base64.getUrlEncoder().withoutPadding()
+      .encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(cursor).array());
+  }
+
+  /**
+   * Decode the page token into the cursor.
+   *
+   * @param token page token returned by {@link PageTokenCodec#encode(Long)}.
+   * @return cursor wrapped with Optional, or empty if the token is malformed.
+   */
+  public static Optional<Long> decode(String token) {
+    if (token == null) {
+      return Optional.empty();
+    }
+    try {
+      val bytes = Base64.getUrlDecoder().decode(token);
+      if (bytes.length != Long.BYTES) {
+        return Optional.empty();
+      }
+      return Optional.of(ByteBuffer.wrap(bytes).getLong());
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+}
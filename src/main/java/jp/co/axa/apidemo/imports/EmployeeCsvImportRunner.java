@@ -0,0 +1,61 @@
+package jp.co.axa.apidemo.imports;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Import "employee.import.file" on the startup, e.g.<br/>
+ * java -jar api-demo.jar --employee.import.file=employees.csv --employee.import.exit=true<br/>
+ * Rejected rows are written into "employee.import.reject-file" (default: the file name + ".rejects.csv").
+ * With "employee.import.exit", the application exits after the import (status 1 if any row is rejected),
+ * otherwise it keeps serving the API.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("employee.import.file")
+public class EmployeeCsvImportRunner implements ApplicationRunner {
+
+  private final ApplicationContext context;
+  private final EmployeeCsvImporter importer;
+  private final String file;
+  private final String rejectFile;
+  private final boolean exit;
+
+  @Autowired
+  public EmployeeCsvImportRunner(ApplicationContext context,
+                                 EmployeeCsvImporter importer,
+                                 @Value("${employee.import.file}") String file,
+                                 @Value("${employee.import.reject-file:}") String rejectFile,
+                                 @Value("${employee.import.exit:false}") boolean exit) {
+    this.context = context;
+    this.importer = importer;
+    this.file = file;
+    this.rejectFile = rejectFile;
+    this.exit = exit;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws IOException {
+    val csv = Paths.get(file);
+    val rejects = StringUtils.hasText(rejectFile) ? Paths.get(rejectFile) : Paths.get(file + ".rejects.csv");
+    val report = importer.importFile(csv, rejects);
+    if (report.getRejected() > 0) {
+      log.warn("{} rows are rejected. See {}.", report.getRejected(), rejects);
+    }
+    if (exit) {
+      System.exit(SpringApplication.exit(context, () -> report.getRejected() > 0 ? 1 : 0));
+    }
+  }
+}
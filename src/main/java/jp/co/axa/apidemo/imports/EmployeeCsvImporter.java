@@ -0,0 +1,363 @@
+package jp.co.axa.apidemo.imports;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.services.EmployeeService;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Importer of the large CSV file of the employees (see {@link EmployeeCsvParser} for the format).<br/>
+ * The file goes through the pipeline of three stages connected with the bounded queues:
+ * one thread reads the file into the chunks of whole lines with NIO, several threads parse and validate the chunks,
+ * and the calling thread inserts the valid employees with {@link EmployeeService#importEmployees} in the
+ * transactions of "employee.import.batch-size" rows. Each stage waits while the next one is full, thus the memory
+ * use depends only on the chunk size, the number of the parsers and the batch size, not on the file size.
+ * Rejected rows are written into the reject file with the line number and the reason, and the progress is logged
+ * periodically. The order of the inserts is not the order of the lines.
+ * If the reader or a parser fails, the failure is passed to the calling thread, which stops the other stages.
+ */
+@Slf4j
+@Component
+public class EmployeeCsvImporter {
+
+  private static final String REJECT_HEADER = "line,reason,row";
+  private static final String BOM = "\uFEFF";
+
+  private final EmployeeService employeeService;
+  private final int parsers;
+  private final int chunkSize;
+  private final int batchSize;
+  private final long progressIntervalNanos;
+
+  @Autowired
+  public EmployeeCsvImporter(EmployeeService employeeService,
+                             @Value("${employee.import.parsers:0}") int parsers,
+                             @Value("${employee.import.chunk-size:1048576}") int chunkSize,
+                             @Value("${employee.import.batch-size:5000}") int batchSize,
+                             @Value("${employee.import.progress-interval:PT5S}") Duration progressInterval) {
+    this.employeeService = employeeService;
+    this.parsers = parsers > 0 ? parsers : Runtime.getRuntime().availableProcessors();
+    this.chunkSize = chunkSize;
+    this.batchSize = batchSize;
+    this.progressIntervalNanos = progressInterval.toNanos();
+  }
+
+  /**
+   * Import all the rows of the file. Batches inserted before the failure are not rolled back.
+   *
+   * @param csv        CSV file in UTF-8.
+   * @param rejectFile file to write the rejected rows into. Overwritten if exists.
+   * @return numbers of the imported and the rejected rows.
+   * @throws IOException if the file can't be read or parsed, or the reject file can't be written.
+   */
+  public ImportReport importFile(Path csv, Path rejectFile) throws IOException {
+    val fileSize = Files.size(csv);
+    val chunks = new ArrayBlockingQueue<Chunk>(parsers * 2);
+    val parsed = new ArrayBlockingQueue<ParsedChunk>(parsers * 2);
+    val count = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(parsers + 1, runnable -> {
+      val thread = new Thread(runnable, "employee-import-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    log.info("Importing the employees from {} ({} bytes) with {} parsers.", csv, fileSize, parsers);
+    try (Writer rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8)) {
+      rejects.write(REJECT_HEADER);
+      rejects.write('\n');
+      val stages = new ArrayList<Future<?>>(parsers + 1);
+      stages.add(executor.submit(() -> {
+        this.read(csv, chunks, parsed);
+        return null;
+      }));
+      for (int i = 0; i < parsers; i++) {
+        stages.add(executor.submit(() -> {
+          this.parse(chunks, parsed);
+          return null;
+        }));
+      }
+      val report = this.write(parsed, rejects, fileSize);
+      // All the stages have ended, unless one of them failed after its last chunk.
+      for (Future<?> stage : stages) {
+        stage.get();
+      }
+      log.info("Imported the employees from {}: {}", csv, report);
+      return report;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Import is interrupted.");
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Stage 1: split the file into the chunks which end at the line break.<br/>
+   * The failure is passed to the last stage directly, because the parsers may not be taking the chunks anymore.
+   */
+  private void read(Path csv, BlockingQueue<Chunk> chunks, BlockingQueue<ParsedChunk> parsed)
+    throws IOException, InterruptedException {
+    try {
+      this.read(csv, chunks);
+    } catch (IOException | RuntimeException | Error e) {
+      parsed.put(new ParsedChunk(e));
+      throw e;
+    }
+    for (int i = 0; i < parsers; i++) {
+      chunks.put(Chunk.END);
+    }
+  }
+
+  private void read(Path csv, BlockingQueue<Chunk> chunks) throws IOException, InterruptedException {
+    try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+      byte[] carry = new byte[0];
+      long firstLine = 1;
+      for (;;) {
+        // Grows only if one line does not fit in the chunk.
+        val buffer = ByteBuffer.allocate(Math.max(chunkSize, carry.length * 2));
+        buffer.put(carry);
+        int read = 0;
+        while (buffer.hasRemaining() && (read = channel.read(buffer)) >= 0) {
+          // Fill the buffer.
+        }
+        val eof = read < 0;
+        val bytes = buffer.array();
+        val length = buffer.position();
+        val end = eof ? length : lastLineBreak(bytes, length) + 1;
+        if (end > 0) {
+          chunks.put(new Chunk(bytes, end, firstLine));
+          firstLine += countLineBreaks(bytes, end);
+        }
+        carry = Arrays.copyOfRange(bytes, end, length);
+        if (eof) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Stage 2: parse and validate each line of the chunk.<br/>
+   * Nothing is put after the interruption, because the importer is stopping and the queue may never be taken.
+   */
+  private void parse(BlockingQueue<Chunk> chunks, BlockingQueue<ParsedChunk> parsed) throws InterruptedException {
+    try {
+      for (Chunk chunk = chunks.take(); chunk != Chunk.END; chunk = chunks.take()) {
+        parsed.put(this.parse(chunk));
+      }
+    } catch (RuntimeException | Error e) {
+      parsed.put(new ParsedChunk(e));
+      throw e;
+    }
+    parsed.put(ParsedChunk.END);
+  }
+
+  ParsedChunk parse(Chunk chunk) {
+    val text = new String(chunk.bytes, 0, chunk.length, StandardCharsets.UTF_8);
+    val rows = new ArrayList<Row>();
+    long line = chunk.firstLine;
+    for (int from = 0; from < text.length(); line++) {
+      int to = text.indexOf('\n', from);
+      if (to < 0) {
+        to = text.length();
+      }
+      val end = to > from && text.charAt(to - 1) == '\r' ? to - 1 : to;
+      String row = text.substring(from, end);
+      from = to + 1;
+      if (line == 1 && row.startsWith(BOM)) {
+        row = row.substring(1);
+      }
+      if (row.trim().isEmpty() || (line == 1 && EmployeeCsvParser.isHeader(row))) {
+        continue;
+      }
+      val result = EmployeeCsvParser.parse(row);
+      rows.add(result.isLeft() ? new Row(line, row, result.getLeft(), null) : new Row(line, row, null,
+        result.getRight()));
+    }
+    return new ParsedChunk(rows, chunk.length);
+  }
+
+  /**
+   * Stage 3: insert the valid employees in batches, and write the rejected rows.
+   */
+  private ImportReport write(BlockingQueue<ParsedChunk> parsed, Writer rejects, long fileSize)
+    throws IOException, InterruptedException {
+    val start = System.nanoTime();
+    long nextProgress = start + progressIntervalNanos;
+    val progress = new Progress();
+    val batch = new ArrayList<Row>(batchSize);
+    for (int ended = 0; ended < parsers; ) {
+      val chunk = parsed.take();
+      if (chunk == ParsedChunk.END) {
+        ended++;
+        continue;
+      }
+      if (chunk.failure != null) {
+        // Rest of the file is not imported. The other stages are stopped by the caller.
+        throw chunk.failure instanceof IOException ? (IOException) chunk.failure
+          : new IOException("Failed in reading or parsing the file.", chunk.failure);
+      }
+      for (Row row : chunk.rows) {
+        if (row.employee == null) {
+          this.reject(rejects, row, row.reason, progress);
+          continue;
+        }
+        batch.add(row);
+        if (batch.size() >= batchSize) {
+          this.insert(batch, rejects, progress);
+        }
+      }
+      progress.bytes += chunk.bytes;
+      val now = System.nanoTime();
+      if (now - nextProgress >= 0) {
+        nextProgress = now + progressIntervalNanos;
+        log.info("Imported {} employees and rejected {} rows. {}% of the file, {} rows/s.", progress.imported,
+          progress.rejected, fileSize == 0 ? 100 : progress.bytes * 100 / fileSize,
+          (long) ((progress.imported + progress.rejected) * 1e9 / (now - start)));
+      }
+    }
+    this.insert(batch, rejects, progress);
+    return new ImportReport(progress.imported, progress.rejected, progress.bytes,
+      Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  private void insert(List<Row> batch, Writer rejects, Progress progress) throws IOException {
+    if (batch.isEmpty()) {
+      return;
+    }
+    val result = employeeService.importEmployees(batch.stream().map(row -> row.employee)
+      .collect(Collectors.toList()));
+    if (result.isRight()) {
+      progress.imported += batch.size();
+    } else {
+      for (Row row : batch) {
+        this.reject(rejects, row, "Failed to write into the DB: " + result.getLeft(), progress);
+      }
+    }
+    batch.clear();
+  }
+
+  private void reject(Writer rejects, Row row, String reason, Progress progress) throws IOException {
+    rejects.write(Long.toString(row.line));
+    rejects.write(',');
+    rejects.write(quote(reason));
+    rejects.write(',');
+    rejects.write(quote(row.text));
+    rejects.write('\n');
+    progress.rejected++;
+  }
+
+  private static String quote(String field) {
+    return "\"" + field.replace("\"", "\"\"") + "\"";
+  }
+
+  private static int lastLineBreak(byte[] bytes, int length) {
+    for (int i = length - 1; i >= 0; i--) {
+      if (bytes[i] == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static long countLineBreaks(byte[] bytes, int length) {
+    long lines = 0;
+    for (int i = 0; i < length; i++) {
+      if (bytes[i] == '\n') {
+        lines++;
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Lines read from the file. Line break never appears inside the multi-byte character of UTF-8,
+   * thus the chunk can be decoded independently.
+   */
+  static class Chunk {
+    static final Chunk END = new Chunk(new byte[0], 0, 0);
+
+    final byte[] bytes;
+    final int length;
+    final long firstLine;
+
+    Chunk(byte[] bytes, int length, long firstLine) {
+      this.bytes = bytes;
+      this.length = length;
+      this.firstLine = firstLine;
+    }
+  }
+
+  /**
+   * Rows of the chunk, or the failure of the stage which produced it.
+   */
+  static class ParsedChunk {
+    static final ParsedChunk END = new ParsedChunk(Collections.emptyList(), 0);
+
+    final List<Row> rows;
+    final long bytes;
+    final Throwable failure;
+
+    ParsedChunk(List<Row> rows, long bytes) {
+      this.rows = rows;
+      this.bytes = bytes;
+      this.failure = null;
+    }
+
+    ParsedChunk(Throwable failure) {
+      this.rows = Collections.emptyList();
+      this.bytes = 0;
+      this.failure = failure;
+    }
+  }
+
+  /**
+   * One line of the file. Either of the reason or the employee is present.
+   */
+  static class Row {
+    final long line;
+    final String text;
+    final String reason;
+    final EmployeeEntity employee;
+
+    Row(long line, String text, String reason, EmployeeEntity employee) {
+      this.line = line;
+      this.text = text;
+      this.reason = reason;
+      this.employee = employee;
+    }
+  }
+
+  private static class Progress {
+    private long imported;
+    private long rejected;
+    private long bytes;
+  }
+}
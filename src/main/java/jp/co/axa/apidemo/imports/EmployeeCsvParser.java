@@ -0,0 +1,89 @@
+package jp.co.axa.apidemo.imports;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.fanctor.Either;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser of one line of the employee CSV: "name,salary,department" (RFC 4180).<br/>
+ * Fields may be quoted with '"', and '"' in the quoted field is escaped as '""'. Line breaks in the field are not
+ * supported. Empty salary and department mean null. The header line is the same as the column names.
+ */
+final class EmployeeCsvParser {
+
+  static final String HEADER = "name,salary,department";
+  private static final int COLUMNS = 3;
+
+  private EmployeeCsvParser() {
+  }
+
+  static boolean isHeader(String line) {
+    return HEADER.equalsIgnoreCase(line.trim());
+  }
+
+  /**
+   * @param line line without the line terminator.
+   * @return Either of the reason of the rejection or the employee which passed {@link EmployeeEntity#validateSelf()}.
+   */
+  static Either<String, EmployeeEntity> parse(String line) {
+    val columns = split(line);
+    if (columns == null) {
+      return Either.left("Quote is not closed.");
+    }
+    if (columns.size() != COLUMNS) {
+      return Either.left("Expected " + COLUMNS + " columns but found " + columns.size() + ".");
+    }
+    Integer salary = null;
+    val salaryText = columns.get(1).trim();
+    if (!salaryText.isEmpty()) {
+      try {
+        salary = Integer.valueOf(salaryText);
+      } catch (NumberFormatException e) {
+        return Either.left("Salary is not an integer.");
+      }
+    }
+    val department = columns.get(2).isEmpty() ? null : columns.get(2);
+    val employee = new EmployeeEntity(null, columns.get(0), salary, department);
+    if (!employee.validateSelf()) {
+      return Either.left("Name is empty or salary is negative.");
+    }
+    return Either.right(employee);
+  }
+
+  /**
+   * @return fields of the line, or null if the quote is not closed.
+   */
+  static List<String> split(String line) {
+    val fields = new ArrayList<String>(COLUMNS);
+    val field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      return null;
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+}
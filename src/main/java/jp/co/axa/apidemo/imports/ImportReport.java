@@ -0,0 +1,34 @@
+package jp.co.axa.apidemo.imports;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * Result of the import of one file.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ImportReport {
+  /**
+   * Number of the employees inserted into the DB.
+   */
+  private final long imported;
+  /**
+   * Number of the rows written into the reject file.
+   */
+  private final long rejected;
+  /**
+   * Size of the file read.
+   */
+  private final long bytes;
+  private final Duration elapsed;
+
+  @ToString.Include
+  public double getRowsPerSecond() {
+    return elapsed.isZero() ? 0 : (imported + rejected) * 1e9 / elapsed.toNanos();
+  }
+}
@@ -0,0 +1,30 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.EmployeeChangeEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EmployeeChangeRepository extends JpaRepository<EmployeeChangeEntity, Long> {
+
+  /**
+   * Fetch the changes in the range of the change sequence in the ascending order.<br/>
+   * The DB runs it as the range scan on the unique index of the change sequence.
+   *
+   * @param from     lowest change sequence, inclusive.
+   * @param to       highest change sequence, inclusive.
+   * @param pageable only the page size is expected to be used. Page number must be 0.
+   * @return changes in the range.
+   */
+  List<EmployeeChangeEntity> findByChangeSeqBetweenOrderByChangeSeqAsc(Long from, Long to, Pageable pageable);
+
+  /**
+   * @return highest change sequence recorded, or null if nothing is recorded.
+   */
+  @Query("select max(c.changeSeq) from EmployeeChangeEntity c")
+  Long findMaxChangeSeq();
+}
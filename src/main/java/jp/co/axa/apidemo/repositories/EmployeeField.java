@@ -0,0 +1,67 @@
+package jp.co.axa.apidemo.repositories;
+
+import lombok.Getter;
+import lombok.val;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Fields of the employee which can be selected by the projection, in the order of the JSON of the employee.
+ */
+public enum EmployeeField {
+  ID("id"),
+  NAME("name"),
+  SALARY("salary"),
+  DEPARTMENT("department"),
+  VERSION("version");
+
+  /**
+   * All the fields, i.e. the same as the employee itself.
+   */
+  public static final Set<EmployeeField> ALL = Collections.unmodifiableSet(EnumSet.allOf(EmployeeField.class));
+
+  /**
+   * Name of the attribute of the entity, which is also the name of the JSON property.
+   */
+  @Getter
+  private final String propertyName;
+
+  EmployeeField(String propertyName) {
+    this.propertyName = propertyName;
+  }
+
+  /**
+   * Parse the field names separated by commas, e.g. "id,name".<br/>
+   * ID is always selected, because it is the cursor of the page.
+   *
+   * @param names field names. Null or blank to select all the fields.
+   * @return selected fields, or empty if any name is unknown.
+   */
+  public static Optional<Set<EmployeeField>> parse(String names) {
+    if (Objects.isNull(names) || names.trim().isEmpty()) {
+      return Optional.of(ALL);
+    }
+    val fields = EnumSet.of(ID);
+    for (String name : names.split(",")) {
+      val field = of(name.trim());
+      if (!field.isPresent()) {
+        return Optional.empty();
+      }
+      fields.add(field.get());
+    }
+    return Optional.of(fields.size() == ALL.size() ? ALL : Collections.unmodifiableSet(fields));
+  }
+
+  private static Optional<EmployeeField> of(String propertyName) {
+    for (EmployeeField field : values()) {
+      if (field.propertyName.equals(propertyName)) {
+        return Optional.of(field);
+      }
+    }
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,71 @@
+package jp.co.axa.apidemo.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.Wither;
+
+import java.util.Objects;
+
+/**
+ * Conditions to filter the employees. All the given conditions are combined with AND, and null means no condition.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+@Wither
+public class EmployeeFilter {
+
+  /**
+   * Filter which matches all the employees.
+   */
+  public static final EmployeeFilter NONE = new EmployeeFilter(null, null, null, null);
+
+  /**
+   * Department which the employee belongs to.
+   */
+  private final String department;
+  /**
+   * Inclusive lower bound of the salary.
+   */
+  private final Integer minSalary;
+  /**
+   * Inclusive upper bound of the salary.
+   */
+  private final Integer maxSalary;
+  /**
+   * Prefix of the name. Case sensitive.
+   */
+  private final String namePrefix;
+
+  public boolean isEmpty() {
+    return Objects.isNull(department) && Objects.isNull(minSalary) && Objects.isNull(maxSalary)
+      && Objects.isNull(namePrefix);
+  }
+
+  /**
+   * @return false if no employee can match, e.g. min salary is larger than max salary.
+   */
+  public boolean isSatisfiable() {
+    return Objects.isNull(minSalary) || Objects.isNull(maxSalary) || minSalary <= maxSalary;
+  }
+
+  /**
+   * Smallest string which is larger than all the strings starting with the given prefix.<br/>
+   * "name LIKE 'prefix%'" is expressed as "name >= prefix AND name < upperBound", so that any DB can use the index
+   * on the name for the range scan regardless of the escaping and the bind parameters.
+   *
+   * @return upper bound of the prefix, or null if there is no upper bound (prefix is empty or consists of U+FFFF).
+   */
+  public static String upperBoundOf(String prefix) {
+    for (int i = prefix.length() - 1; i >= 0; i--) {
+      char c = prefix.charAt(i);
+      if (c != Character.MAX_VALUE) {
+        return prefix.substring(0, i) + (char) (c + 1);
+      }
+    }
+    return null;
+  }
+}
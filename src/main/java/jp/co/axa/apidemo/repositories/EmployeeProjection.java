@@ -0,0 +1,131 @@
+package jp.co.axa.apidemo.repositories;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Read-only view of the employee, built from the selected columns without the managed entity.<br/>
+ * Neither the persistence context nor its snapshot for the dirty checking holds the row, thus the listing costs only
+ * this object per employee. Only the selected fields are written to the JSON, in the same order and with the same
+ * names as the employee, thus the view of all the fields is the same JSON as the employee.
+ * The fields which are not selected are null.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = false)
+@ToString
+public final class EmployeeProjection extends JsonSerializable.Base {
+
+  /**
+   * Selected fields. Shared by all the employees of the same query.
+   */
+  private final Set<EmployeeField> fields;
+  private final Long id;
+  private final String name;
+  private final Integer salary;
+  private final String department;
+  private final Long version;
+
+  public EmployeeProjection(Set<EmployeeField> fields, Long id, String name, Integer salary, String department,
+                            Long version) {
+    this.fields = fields;
+    this.id = id;
+    this.name = name;
+    this.salary = salary;
+    this.department = department;
+    this.version = version;
+  }
+
+  /**
+   * @param fields selected fields.
+   * @param row    values of the selected fields in the order of the fields.
+   */
+  public static EmployeeProjection of(Set<EmployeeField> fields, Object[] row) {
+    Long id = null;
+    String name = null;
+    Integer salary = null;
+    String department = null;
+    Long version = null;
+    int column = 0;
+    for (EmployeeField field : fields) {
+      Object value = row[column++];
+      switch (field) {
+        case ID:
+          id = (Long) value;
+          break;
+        case NAME:
+          name = (String) value;
+          break;
+        case SALARY:
+          salary = (Integer) value;
+          break;
+        case DEPARTMENT:
+          department = (String) value;
+          break;
+        case VERSION:
+          version = (Long) value;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown field: " + field);
+      }
+    }
+    return new EmployeeProjection(fields, id, name, salary, department, version);
+  }
+
+  /**
+   * @return true if all the fields are selected.
+   */
+  public boolean isComplete() {
+    return fields.size() == EmployeeField.ALL.size();
+  }
+
+  @Override
+  public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    gen.writeStartObject();
+    for (EmployeeField field : fields) {
+      gen.writeFieldName(field.getPropertyName());
+      switch (field) {
+        case ID:
+          writeNumber(gen, id);
+          break;
+        case NAME:
+          gen.writeString(name);
+          break;
+        case SALARY:
+          writeNumber(gen, salary);
+          break;
+        case DEPARTMENT:
+          gen.writeString(department);
+          break;
+        case VERSION:
+          writeNumber(gen, version);
+          break;
+        default:
+          throw new IllegalStateException("Unknown field: " + field);
+      }
+    }
+    gen.writeEndObject();
+  }
+
+  @Override
+  public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+    throws IOException {
+    // Employee has no type information.
+    this.serialize(gen, serializers);
+  }
+
+  private static void writeNumber(JsonGenerator gen, Number value) throws IOException {
+    if (value == null) {
+      gen.writeNull();
+    } else {
+      gen.writeNumber(value.longValue());
+    }
+  }
+}
@@ -1,9 +1,100 @@
 package jp.co.axa.apidemo.repositories;
 
 import jp.co.axa.apidemo.entities.EmployeeEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface EmployeeRepository extends JpaRepository<EmployeeEntity,Long> {
+public interface EmployeeRepository extends JpaRepository<EmployeeEntity,Long>, EmployeeRepositoryCustom {
+
+  /**
+   * Number of the rows fetched from the DB at once while streaming.
+   */
+  String STREAM_FETCH_SIZE = "1000";
+
+  /**
+   * Fetch the employees whose ID is greater than the given cursor in the ascending order of the ID.<br/>
+   * This is the keyset pagination query. The DB runs it as the range scan on the primary key without OFFSET,
+   * thus the cost of each page does not depend on how deep the page is.
+   *
+   * @param id       cursor. ID of the last employee in the previous page.
+   * @param pageable only the page size is expected to be used. Page number must be 0.
+   * @return employees after the cursor.
+   */
+  List<EmployeeEntity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+  /**
+   * Stream all the employees in the ascending order of the ID with the forward-only cursor.<br/>
+   * Must be called in the transaction, and the returned stream must be closed after use.
+   * Entities are loaded as read-only and not kept in the persistence context longer than needed
+   * as long as the caller detaches them.
+   *
+   * @return stream of all the employees.
+   */
+  @QueryHints({
+    @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+    @QueryHint(name = HINT_READONLY, value = "true"),
+    @QueryHint(name = HINT_CACHEABLE, value = "false")
+  })
+  @Query("select e from EmployeeEntity e order by e.id")
+  Stream<EmployeeEntity> streamAllByOrderByIdAsc();
+
+  /**
+   * Count the employees of each pair of the department and the salary.<br/>
+   * The result is as small as the number of the distinct salaries, and enough to rebuild the statistics of the
+   * departments including min and max.
+   *
+   * @return count of each pair of the department and the salary.
+   */
+  @Query("select e.department as department, e.salary as salary, count(e) as headcount from EmployeeEntity e "
+    + "group by e.department, e.salary")
+  List<DepartmentSalaryCount> countByDepartmentAndSalary();
+
+  /**
+   * Update the employee only if the record still has the given version, and increment the version.<br/>
+   * Conflict is detected by the DB in the same statement, thus no SELECT is required before the update.
+   *
+   * @return number of the updated records. 0 if the record does not exist or has the different version.
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true)
+  @Query("update EmployeeEntity e set e.name = :name, e.salary = :salary, e.department = :department, "
+    + "e.version = e.version + 1 where e.id = :id and e.version = :version")
+  int updateIfVersionMatches(@Param("id") Long id, @Param("version") Long version, @Param("name") String name,
+                             @Param("salary") Integer salary, @Param("department") String department);
+
+  /**
+   * Delete the employee only if the record still has the given version.
+   *
+   * @return number of the deleted records. 0 if the record does not exist or has the different version.
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true)
+  @Query("delete from EmployeeEntity e where e.id = :id and e.version = :version")
+  int deleteIfVersionMatches(@Param("id") Long id, @Param("version") Long version);
+
+  /**
+   * Number of the employees who have the salary in the department.
+   */
+  interface DepartmentSalaryCount {
+    String getDepartment();
+
+    Integer getSalary();
+
+    Long getHeadcount();
+  }
 }
@@ -0,0 +1,49 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Repository methods which cannot be derived by Spring Data and implemented with the EntityManager directly.
+ */
+public interface EmployeeRepositoryCustom {
+
+  /**
+   * Detach the entity from the persistence context so that it can be garbage collected
+   * even while the transaction is still running.
+   *
+   * @param employee entity to be detached.
+   */
+  void detach(EmployeeEntity employee);
+
+  /**
+   * Fetch the employees matching the filter whose ID is greater than the given cursor in the ascending order of
+   * the ID.<br/>
+   * Only the given conditions are put into the query, so that the DB can use the index of the given condition:
+   * (DEPARTMENT, ID) for the department, EMPLOYEE_SALARY for the salary range and EMPLOYEE_NAME for the name prefix.
+   *
+   * @param filter conditions of the employees.
+   * @param id     cursor. ID of the last employee in the previous page.
+   * @param limit  max number of the employees to fetch.
+   * @return employees after the cursor which match the filter.
+   */
+  List<EmployeeEntity> findByFilterAndIdGreaterThan(EmployeeFilter filter, Long id, int limit);
+
+  /**
+   * Same as {@link #findByFilterAndIdGreaterThan} but selects only the given fields into the projections.<br/>
+   * Runs in the read-only transaction, and no entity is managed by the persistence context, thus nothing is flushed
+   * or checked for the changes.
+   *
+   * @param filter conditions of the employees. {@link EmployeeFilter#NONE} to fetch all.
+   * @param fields fields to be selected. Must contain the ID.
+   * @param id     cursor. ID of the last employee in the previous page.
+   * @param limit  max number of the employees to fetch.
+   * @return projections of the employees after the cursor which match the filter.
+   */
+  @Transactional(readOnly = true)
+  List<EmployeeProjection> findProjectionsByFilterAndIdGreaterThan(EmployeeFilter filter, Set<EmployeeField> fields,
+                                                                   Long id, int limit);
+}
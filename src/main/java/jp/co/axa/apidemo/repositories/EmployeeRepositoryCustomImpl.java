@@ -0,0 +1,139 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.val;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of {@link EmployeeRepositoryCustom}. Spring Data merges this class into {@link EmployeeRepository}.
+ */
+public class EmployeeRepositoryCustomImpl implements EmployeeRepositoryCustom {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Whether the cursor is hidden from the planner of H2 (see {@link #filtered}). Other DBs are left to their planner.
+   */
+  private boolean cursorHiddenFromPlanner;
+
+  @PostConstruct
+  public void init() {
+    this.cursorHiddenFromPlanner = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+      .getJdbcServices().getDialect() instanceof H2Dialect;
+  }
+
+  @Override
+  public void detach(EmployeeEntity employee) {
+    entityManager.detach(employee);
+  }
+
+  @Override
+  public List<EmployeeEntity> findByFilterAndIdGreaterThan(EmployeeFilter filter, Long cursor, int limit) {
+    val builder = entityManager.getCriteriaBuilder();
+    val query = builder.createQuery(EmployeeEntity.class);
+    val employee = query.from(EmployeeEntity.class);
+    query.select(employee);
+    return this.filtered(builder, query, employee, filter, cursor, limit).getResultList();
+  }
+
+  @Override
+  public List<EmployeeProjection> findProjectionsByFilterAndIdGreaterThan(EmployeeFilter filter,
+                                                                          Set<EmployeeField> fields, Long cursor,
+                                                                          int limit) {
+    val builder = entityManager.getCriteriaBuilder();
+    // Tuple instead of Object[], which Hibernate returns as the bare value when only the ID is selected.
+    val query = builder.createTupleQuery();
+    val employee = query.from(EmployeeEntity.class);
+    // Scalar columns only, so that no entity is instantiated nor put into the persistence context.
+    query.multiselect(fields.stream()
+      .map(field -> employee.get(field.getPropertyName()))
+      .collect(Collectors.<Selection<?>>toList()));
+    val rows = this.filtered(builder, query, employee, filter, cursor, limit).getResultList();
+    val projections = new ArrayList<EmployeeProjection>(rows.size());
+    for (Tuple row : rows) {
+      projections.add(EmployeeProjection.of(fields, row.toArray()));
+    }
+    return projections;
+  }
+
+  /**
+   * Put the conditions of the filter and the cursor into the query, and create the query with their values.
+   */
+  private <T> TypedQuery<T> filtered(CriteriaBuilder builder, CriteriaQuery<T> query, Root<EmployeeEntity> employee,
+                                     EmployeeFilter filter, Long cursor, int limit) {
+    // Values are given as the parameters, so that the statement is the same for any value of the same conditions.
+    val idParam = builder.parameter(Long.class);
+    val predicates = new ArrayList<Predicate>();
+    val id = employee.<Long>get("id");
+    if (cursorHiddenFromPlanner && Objects.isNull(filter.getDepartment()) && !filter.isEmpty()) {
+      // The cursor is given as "id + 0 > ?" which can't be used for the index, because H2 prefers the range scan of
+      // the primary key for "ORDER BY id LIMIT" and reads the table until the page is filled.
+      // Then the index of the salary or the name is used, and only the matched rows are sorted.
+      predicates.add(builder.greaterThan(builder.sum(id, 0L), idParam));
+    } else {
+      // (DEPARTMENT, ID) index covers both of the department and the cursor in the order of the ID.
+      // Without any condition, the range scan of the primary key is the best.
+      predicates.add(builder.greaterThan(id, idParam));
+    }
+    val departmentParam = builder.parameter(String.class);
+    if (Objects.nonNull(filter.getDepartment())) {
+      predicates.add(builder.equal(employee.<String>get("department"), departmentParam));
+    }
+    val minSalaryParam = builder.parameter(Integer.class);
+    if (Objects.nonNull(filter.getMinSalary())) {
+      predicates.add(builder.greaterThanOrEqualTo(employee.<Integer>get("salary"), minSalaryParam));
+    }
+    val maxSalaryParam = builder.parameter(Integer.class);
+    if (Objects.nonNull(filter.getMaxSalary())) {
+      predicates.add(builder.lessThanOrEqualTo(employee.<Integer>get("salary"), maxSalaryParam));
+    }
+    val nameFromParam = builder.parameter(String.class);
+    val nameToParam = builder.parameter(String.class);
+    val nameUpperBound = Objects.isNull(filter.getNamePrefix()) ? null
+      : EmployeeFilter.upperBoundOf(filter.getNamePrefix());
+    if (Objects.nonNull(filter.getNamePrefix())) {
+      predicates.add(builder.greaterThanOrEqualTo(employee.<String>get("name"), nameFromParam));
+      if (Objects.nonNull(nameUpperBound)) {
+        predicates.add(builder.lessThan(employee.<String>get("name"), nameToParam));
+      }
+    }
+    query.where(predicates.toArray(new Predicate[0]))
+      .orderBy(builder.asc(id));
+
+    val typedQuery = entityManager.createQuery(query).setParameter(idParam, cursor).setMaxResults(limit);
+    if (Objects.nonNull(filter.getDepartment())) {
+      typedQuery.setParameter(departmentParam, filter.getDepartment());
+    }
+    if (Objects.nonNull(filter.getMinSalary())) {
+      typedQuery.setParameter(minSalaryParam, filter.getMinSalary());
+    }
+    if (Objects.nonNull(filter.getMaxSalary())) {
+      typedQuery.setParameter(maxSalaryParam, filter.getMaxSalary());
+    }
+    if (Objects.nonNull(filter.getNamePrefix())) {
+      typedQuery.setParameter(nameFromParam, filter.getNamePrefix());
+      if (Objects.nonNull(nameUpperBound)) {
+        typedQuery.setParameter(nameToParam, nameUpperBound);
+      }
+    }
+    return typedQuery;
+  }
+}
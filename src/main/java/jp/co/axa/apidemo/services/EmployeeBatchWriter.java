@@ -0,0 +1,241 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.EmployeeService.BatchOperation;
+import jp.co.axa.apidemo.services.EmployeeService.UpdateResult;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Component to write many employees in one transaction with the JDBC batching.<br/>
+ * The existence of all the targets is checked with one query at first. Then the inserts, updates and deletes are
+ * queued in the persistence context and flushed at once, so that Hibernate can send them as JDBC batches.
+ * The queued writes are flushed earlier only when an employee is written again in the same batch.
+ * Every write, including the single ones, is recorded in {@link EmployeeChangeLog} in the same transaction.
+ */
+@Component
+public class EmployeeBatchWriter {
+
+  private EmployeeRepository employeeRepository;
+  private EmployeeChangeLog changeLog;
+
+  @Autowired
+  public EmployeeBatchWriter(EmployeeRepository repository, EmployeeChangeLog changeLog) {
+    this.employeeRepository = repository;
+    this.changeLog = changeLog;
+  }
+
+  /**
+   * Apply the operations in one transaction.
+   *
+   * @param operations operations to be applied in the given order.
+   * @return result of each operation in the same order. Left if the operation is rejected.
+   * @throws RuntimeException if the DB failed. None of the operations is applied in that case.
+   */
+  @Transactional
+  public List<Either<CRUDErrorStatus, UpdateResult>> write(List<BatchOperation> operations) {
+    val targetIds = operations.stream()
+      .map(EmployeeBatchWriter::targetIdOf)
+      .filter(Objects::nonNull)
+      .collect(Collectors.toSet());
+    val current = new HashMap<Long, EmployeeEntity>();
+    employeeRepository.findAllById(targetIds).forEach(employee -> current.put(employee.getId(), employee));
+
+    // IDs of the employees written by the batch so far.
+    val written = new HashSet<Long>();
+    val results = new ArrayList<Either<CRUDErrorStatus, UpdateResult>>(operations.size());
+    for (BatchOperation operation : operations) {
+      results.add(this.apply(operation, current, written));
+    }
+    changeLog.record(results.stream().filter(Either::isRight).map(Either::getRight).collect(Collectors.toList()));
+    employeeRepository.flush();
+    return results;
+  }
+
+  /**
+   * Insert the new employees in one transaction. ID and version are always generated.<br/>
+   * The persistence context ends with the transaction, thus the memory does not grow over the calls.
+   *
+   * @param employees valid employees to be inserted.
+   * @return inserted employees with the generated ID and version, in the same order.
+   * @throws RuntimeException if the DB failed. None of the employees is inserted in that case.
+   */
+  @Transactional
+  public List<EmployeeEntity> insertAll(List<EmployeeEntity> employees) {
+    val inserted = new ArrayList<EmployeeEntity>(employees.size());
+    for (EmployeeEntity employee : employees) {
+      inserted.add(employeeRepository.save(employee.withId(null).withVersion(null)));
+    }
+    changeLog.record(inserted.stream().map(e -> new UpdateResult(null, e)).collect(Collectors.toList()));
+    employeeRepository.flush();
+    return inserted;
+  }
+
+  /**
+   * Insert the new employee unless the employee with the given ID exists. ID and version are always generated.<br/>
+   * The given ID is read in the same transaction as the insert, and only if it is given.
+   *
+   * @return inserted employee with the generated ID and version. Left if the given ID exists.
+   */
+  @Transactional
+  public Either<CRUDErrorStatus, EmployeeEntity> insert(EmployeeEntity employee) {
+    if (Objects.nonNull(employee.getId()) && employeeRepository.findById(employee.getId()).isPresent()) {
+      return Either.left(CRUDErrorStatus.ALREADY_EXISTS);
+    }
+    // Clearing ID and version lets Hibernate insert the record without selecting it first.
+    val saved = employeeRepository.saveAndFlush(employee.withId(null).withVersion(null));
+    changeLog.record(Collections.singletonList(new UpdateResult(null, saved)));
+    return Either.right(saved);
+  }
+
+  /**
+   * Update the employee only if the record is still the same version as the current one.
+   *
+   * @param current employee in the DB.
+   * @param updated new state of the employee.
+   * @return true if updated.
+   */
+  @Transactional
+  public boolean updateIfVersionMatches(EmployeeEntity current, EmployeeEntity updated) {
+    val updatedCount = employeeRepository.updateIfVersionMatches(current.getId(), current.getVersion(),
+      updated.getName(), updated.getSalary(), updated.getDepartment());
+    if (updatedCount > 0) {
+      changeLog.record(Collections.singletonList(new UpdateResult(current, updated)));
+    }
+    return updatedCount > 0;
+  }
+
+  /**
+   * Delete the employee only if the record is still the same version as the current one.
+   *
+   * @param current employee in the DB.
+   * @return true if deleted.
+   */
+  @Transactional
+  public boolean deleteIfVersionMatches(EmployeeEntity current) {
+    val deletedCount = employeeRepository.deleteIfVersionMatches(current.getId(), current.getVersion());
+    if (deletedCount > 0) {
+      changeLog.record(Collections.singletonList(new UpdateResult(current, null)));
+    }
+    return deletedCount > 0;
+  }
+
+  private Either<CRUDErrorStatus, UpdateResult> apply(BatchOperation operation, Map<Long, EmployeeEntity> current,
+                                                     Set<Long> written) {
+    if (Objects.isNull(operation) || Objects.isNull(operation.getType())) {
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    switch (operation.getType()) {
+      case CREATE:
+        return this.create(operation.getEmployee(), current, written);
+      case UPDATE:
+        return this.update(operation.getId(), operation.getEmployee(), current, written);
+      case DELETE:
+        return this.delete(operation.getId(), current, written);
+      default:
+        return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+  }
+
+  private Either<CRUDErrorStatus, UpdateResult> create(EmployeeEntity employee, Map<Long, EmployeeEntity> current,
+                                                      Set<Long> written) {
+    if (Objects.nonNull(employee) && Objects.nonNull(employee.getId()) && current.containsKey(employee.getId())) {
+      return Either.left(CRUDErrorStatus.ALREADY_EXISTS);
+    }
+    if (!isValid(employee)) {
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    // ID and version are always generated for the new record, same as the single creation.
+    // Clearing them here lets Hibernate persist the entity without selecting it first.
+    val created = employeeRepository.save(employee.withId(null).withVersion(null));
+    current.put(created.getId(), created);
+    written.add(created.getId());
+    // created is managed, and may be changed by the later operations of the batch.
+    return Either.right(new UpdateResult(null, created.copy()));
+  }
+
+  private Either<CRUDErrorStatus, UpdateResult> update(Long id, EmployeeEntity employee,
+                                                      Map<Long, EmployeeEntity> current, Set<Long> written) {
+    if (Objects.isNull(id) || Objects.isNull(employee)
+      || (Objects.nonNull(employee.getId()) && !Objects.equals(id, employee.getId()))) {
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    val target = current.get(id);
+    if (Objects.isNull(target)) {
+      return Either.left(CRUDErrorStatus.TARGET_NOT_FOUND);
+    }
+    if (!isValid(employee)) {
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    this.flushIfWritten(id, written);
+    if (Objects.nonNull(employee.getVersion()) && !Objects.equals(employee.getVersion(), target.getVersion())) {
+      return Either.left(CRUDErrorStatus.VERSION_CONFLICT);
+    }
+    val old = target.copy();
+    // target is managed, thus the update is issued by the dirty checking on flush with the version check.
+    target.setName(employee.getName());
+    target.setSalary(employee.getSalary());
+    target.setDepartment(employee.getDepartment());
+    written.add(id);
+    // Version is incremented once by the flush, because the target is flushed before it is written again.
+    return Either.right(new UpdateResult(old,
+      target.copy().withVersion(Optional.ofNullable(old.getVersion()).map(version -> version + 1).orElse(null))));
+  }
+
+  private Either<CRUDErrorStatus, UpdateResult> delete(Long id, Map<Long, EmployeeEntity> current,
+                                                      Set<Long> written) {
+    if (Objects.isNull(id)) {
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    val target = current.remove(id);
+    if (Objects.isNull(target)) {
+      return Either.right(new UpdateResult(null, null));
+    }
+    this.flushIfWritten(id, written);
+    employeeRepository.delete(target);
+    return Either.right(new UpdateResult(target, null));
+  }
+
+  /**
+   * Flush the earlier write of the employee in the batch, so that the employee in the persistence context has the
+   * version in the DB before it is written again.
+   */
+  private void flushIfWritten(Long id, Set<Long> written) {
+    if (written.contains(id)) {
+      employeeRepository.flush();
+    }
+  }
+
+  /**
+   * @return ID of the employee which the operation targets, or null if none, e.g. the creation without the ID.
+   */
+  static Long targetIdOf(BatchOperation operation) {
+    if (Objects.isNull(operation)) {
+      return null;
+    }
+    if (operation.getType() == EmployeeService.BatchOperationType.CREATE) {
+      return Optional.ofNullable(operation.getEmployee()).map(EmployeeEntity::getId).orElse(null);
+    }
+    return operation.getId();
+  }
+
+  private static boolean isValid(EmployeeEntity employee) {
+    return Optional.ofNullable(employee).filter(EmployeeEntity::validateSelf).isPresent();
+  }
+}
@@ -0,0 +1,173 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.EmployeeChangeEntity;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.repositories.EmployeeChangeRepository;
+import jp.co.axa.apidemo.services.EmployeeService.UpdateResult;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Change sequence of each employee for the delta sync.<br/>
+ * Every write records the next change sequence of the written employees in the same transaction as the write
+ * ({@link EmployeeChangeEntity}), and the deletion leaves the tombstone. The sequence is issued in this process and
+ * restored from the DB on the startup, thus this process must be the only writer.
+ * A transaction may commit after another one which has the larger sequence, so the readers must not go beyond
+ * {@link #getStableSequence()}, which is lower than any sequence of the transactions still in progress.
+ * When sharded, each shard keeps the changes of its employees, and the sequence is shared by all the shards.
+ */
+@Slf4j
+@Component
+public class EmployeeChangeLog {
+
+  private final EmployeeChangeRepository changeRepository;
+  private final EmployeeShards shards;
+  private final AtomicLong sequence = new AtomicLong();
+  /**
+   * Value of the sequence before each transaction in progress took its first number, and the number of such
+   * transactions.
+   */
+  private final ConcurrentSkipListMap<Long, Integer> floors = new ConcurrentSkipListMap<>();
+
+  @Autowired
+  public EmployeeChangeLog(EmployeeChangeRepository changeRepository, EmployeeShards shards) {
+    this.changeRepository = changeRepository;
+    this.shards = shards;
+  }
+
+  /**
+   * Continue the sequence from the DB. Expected to be called only while no write is accepted, e.g. on the startup.
+   */
+  @EventListener(ContextRefreshedEvent.class)
+  public void restore() {
+    val latest = shards.scatter(changeRepository::findMaxChangeSeq).stream()
+      .filter(Objects::nonNull)
+      .max(Comparator.naturalOrder())
+      .orElse(0L);
+    sequence.accumulateAndGet(latest, Math::max);
+    log.info("Restored the change sequence {}.", latest);
+  }
+
+  /**
+   * Record the writes applied in the current transaction. The numbers stay unstable until the transaction ends.
+   *
+   * @param results writes applied to the DB. Results without old and updated (deletion of nothing) are ignored.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void record(Collection<UpdateResult> results) {
+    val floor = this.joinTransaction();
+    try {
+      // Rows of the existing employees are loaded at once and updated on flush, so that Hibernate batches them.
+      val changes = new HashMap<Long, EmployeeChangeEntity>();
+      val modifiedIds = results.stream()
+        .map(UpdateResult::getOld)
+        .filter(Objects::nonNull)
+        .map(EmployeeEntity::getId)
+        .collect(Collectors.toSet());
+      if (!modifiedIds.isEmpty()) {
+        changeRepository.findAllById(modifiedIds).forEach(change -> changes.put(change.getEmployeeId(), change));
+      }
+      for (UpdateResult result : results) {
+        val employee = Objects.nonNull(result.getUpdated()) ? result.getUpdated() : result.getOld();
+        if (Objects.isNull(employee)) {
+          continue;
+        }
+        val deleted = Objects.isNull(result.getUpdated());
+        val change = changes.get(employee.getId());
+        if (Objects.isNull(change)) {
+          // New employee, or written before the change log existed.
+          val created = EmployeeChangeEntity.created(employee.getId(), sequence.incrementAndGet(), deleted);
+          changeRepository.save(created);
+          changes.put(employee.getId(), created);
+        } else {
+          change.setChangeSeq(sequence.incrementAndGet());
+          change.setDeleted(deleted);
+        }
+      }
+    } finally {
+      floor.ifPresent(this::leave);
+    }
+  }
+
+  /**
+   * @return highest change sequence whose transaction has ended. Changes up to this are all visible.
+   */
+  public long getStableSequence() {
+    // Sequence first. The transaction which is not in the floors yet takes a larger number than this.
+    val current = sequence.get();
+    val lowest = floors.firstEntry();
+    return Objects.isNull(lowest) ? current : Math.min(current, lowest.getKey());
+  }
+
+  /**
+   * @return highest change sequence issued, including the transactions in progress.
+   */
+  public long getLatestSequence() {
+    return sequence.get();
+  }
+
+  /**
+   * @param since lowest change sequence, exclusive.
+   * @param until highest change sequence, inclusive.
+   * @param limit max number of the changes.
+   * @return changes in the ascending order of the change sequence.
+   */
+  public List<EmployeeChangeEntity> findChanges(long since, long until, int limit) {
+    return EmployeeShards.merge(shards.scatter(() ->
+        changeRepository.findByChangeSeqBetweenOrderByChangeSeqAsc(since + 1, until, PageRequest.of(0, limit))),
+      Comparator.comparing(EmployeeChangeEntity::getChangeSeq), limit);
+  }
+
+  /**
+   * Keep the sequence unstable until the current transaction ends.
+   *
+   * @return floor to be left by the caller if there is no transaction to bind it to.
+   */
+  private Optional<Long> joinTransaction() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return Optional.of(this.enter());
+    }
+    if (!TransactionSynchronizationManager.hasResource(this)) {
+      val floor = this.enter();
+      TransactionSynchronizationManager.bindResource(this, floor);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(EmployeeChangeLog.this);
+          EmployeeChangeLog.this.leave(floor);
+        }
+      });
+    }
+    return Optional.empty();
+  }
+
+  private long enter() {
+    val floor = sequence.get();
+    floors.merge(floor, 1, Integer::sum);
+    return floor;
+  }
+
+  private void leave(long floor) {
+    floors.computeIfPresent(floor, (key, count) -> count == 1 ? null : count - 1);
+  }
+}
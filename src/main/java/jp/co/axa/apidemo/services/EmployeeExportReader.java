@@ -0,0 +1,45 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Component to read all the employees of one DB with the cursor in one read-only transaction.<br/>
+ * Each shard is read in its own transaction, thus the transaction is started here instead of the service.
+ */
+@Component
+public class EmployeeExportReader {
+
+  private EmployeeRepository employeeRepository;
+
+  @Autowired
+  public EmployeeExportReader(EmployeeRepository repository) {
+    this.employeeRepository = repository;
+  }
+
+  /**
+   * Pass every employee to the consumer in the ascending order of the ID.
+   * Each employee is detached after the consumer, thus the memory does not grow with the number of the employees.
+   *
+   * @return number of the employees.
+   */
+  @Transactional(readOnly = true)
+  public long forEach(Consumer<EmployeeEntity> consumer) {
+    try (Stream<EmployeeEntity> employees = employeeRepository.streamAllByOrderByIdAsc()) {
+      long count = 0;
+      for (Iterator<EmployeeEntity> iterator = employees.iterator(); iterator.hasNext(); count++) {
+        EmployeeEntity employee = iterator.next();
+        consumer.accept(employee);
+        employeeRepository.detach(employee);
+      }
+      return count;
+    }
+  }
+}
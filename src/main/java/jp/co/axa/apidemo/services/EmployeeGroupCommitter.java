@@ -0,0 +1,230 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.services.EmployeeService.BatchOperation;
+import jp.co.axa.apidemo.services.EmployeeService.UpdateResult;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Component to commit the concurrent writes together (group commit).<br/>
+ * Operations submitted by many threads are queued, and one committer thread collects them for the window counted
+ * from the first one, or until the batch size is reached, then applies them with {@link EmployeeBatchWriter} in one
+ * transaction. Each caller waits a little longer, but the number of the commits is divided by the batch size.
+ * Operations on the same employee are never put into the same batch, so that each of them sees the result of the
+ * previous one. If the batch fails in the DB, its operations are retried one by one, so that one bad operation does
+ * not fail the others. When sharded, the batch is split by the shard, and each part is committed on its shard.
+ * If the committer itself fails, the operations in hand are failed instead of being left waiting. It stops on the
+ * Error, and fails all the queued ones.
+ * Disabled by default ("employee.group-commit.enabled"), and nothing is started in that case.
+ */
+@Slf4j
+@Component
+public class EmployeeGroupCommitter implements DisposableBean {
+
+  private static final long POLL_INTERVAL_MILLIS = 100;
+
+  private final EmployeeBatchWriter batchWriter;
+  private final EmployeeShards shards;
+  @Getter
+  private final boolean enabled;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  /**
+   * How long the caller waits for the result. The operation may still be committed after that.
+   */
+  @Getter
+  private final Duration timeout;
+  private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+  private final Thread committer;
+  private volatile boolean running = true;
+
+  @Autowired
+  public EmployeeGroupCommitter(EmployeeBatchWriter batchWriter, EmployeeShards shards,
+                                @Value("${employee.group-commit.enabled:false}") boolean enabled,
+                                @Value("${employee.group-commit.window:PT0.002S}") Duration window,
+                                @Value("${employee.group-commit.max-batch-size:50}") int maxBatchSize,
+                                @Value("${employee.group-commit.timeout:PT4S}") Duration timeout) {
+    this.batchWriter = batchWriter;
+    this.shards = shards;
+    this.enabled = enabled;
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    this.timeout = timeout;
+    if (enabled) {
+      this.committer = new Thread(this::run, "employee-group-commit");
+      this.committer.setDaemon(true);
+      this.committer.start();
+    } else {
+      this.committer = null;
+    }
+  }
+
+  /**
+   * Queue the operation to be committed with the others.
+   *
+   * @param operation operation to be applied.
+   * @return future of the result of the operation, same as the result of {@link EmployeeBatchWriter#write}.
+   * Completed exceptionally with the exception of the DB if the operation failed even alone.
+   */
+  public CompletableFuture<Either<CRUDErrorStatus, UpdateResult>> submit(BatchOperation operation) {
+    val pending = new Pending(operation);
+    if (!enabled || !running) {
+      pending.future.completeExceptionally(notRunning());
+      return pending.future;
+    }
+    queue.add(pending);
+    // Committer may have drained the queue after the check above.
+    if (!running && queue.remove(pending)) {
+      pending.future.completeExceptionally(notRunning());
+    }
+    return pending.future;
+  }
+
+  private static IllegalStateException notRunning() {
+    return new IllegalStateException("Group commit is not running.");
+  }
+
+  private void run() {
+    // Operations deferred to the next batch because their employee is already in the batch. Kept in order.
+    val deferred = new ArrayDeque<Pending>();
+    val batch = new ArrayList<Pending>(maxBatchSize);
+    try {
+      while (running || !queue.isEmpty() || !deferred.isEmpty()) {
+        try {
+          batch.clear();
+          this.collectBatch(batch, deferred);
+          if (batch.isEmpty()) {
+            continue;
+          }
+          shards.scatterBy(batch, this::shardOf, part -> {
+            this.commit(part);
+            return part;
+          });
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch (Exception e) {
+          log.error("Unexpected error in the group commit.", e);
+          // Already completed ones are not affected.
+          batch.forEach(pending -> pending.future.completeExceptionally(e));
+          deferred.forEach(pending -> pending.future.completeExceptionally(e));
+          deferred.clear();
+        }
+      }
+    } catch (Error e) {
+      log.error("Group commit stopped by the error.", e);
+      batch.forEach(pending -> pending.future.completeExceptionally(e));
+      throw e;
+    } finally {
+      running = false;
+      // Submitted while stopping, or left by the interruption or the error.
+      deferred.forEach(pending -> pending.future.completeExceptionally(notRunning()));
+      for (Pending pending = queue.poll(); Objects.nonNull(pending); pending = queue.poll()) {
+        pending.future.completeExceptionally(notRunning());
+      }
+    }
+  }
+
+  /**
+   * Collect the deferred and the queued operations into the batch for the window counted from the first one.
+   * Returns without any if nothing is queued within the poll interval.
+   */
+  private void collectBatch(List<Pending> batch, ArrayDeque<Pending> deferred) throws InterruptedException {
+    val first = deferred.isEmpty() ? queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS) : deferred.poll();
+    if (Objects.isNull(first)) {
+      return;
+    }
+    val deadline = System.nanoTime() + windowNanos;
+    val targets = new HashSet<Long>();
+    this.collect(first, batch, targets, deferred);
+    for (int i = deferred.size(); i > 0; i--) {
+      this.collect(deferred.poll(), batch, targets, deferred);
+    }
+    while (batch.size() < maxBatchSize) {
+      val remaining = deadline - System.nanoTime();
+      val next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+      if (Objects.isNull(next)) {
+        break;
+      }
+      this.collect(next, batch, targets, deferred);
+    }
+  }
+
+  /**
+   * Add the operation to the batch, or defer it if the batch is full or its employee is already in the batch
+   * or deferred.
+   */
+  private void collect(Pending pending, List<Pending> batch, Set<Long> targets, ArrayDeque<Pending> deferred) {
+    val target = EmployeeBatchWriter.targetIdOf(pending.operation);
+    val duplicated = Objects.nonNull(target) && !targets.add(target);
+    if (duplicated || batch.size() >= maxBatchSize) {
+      deferred.add(pending);
+      return;
+    }
+    batch.add(pending);
+  }
+
+  private void commit(List<Pending> batch) {
+    val operations = new ArrayList<BatchOperation>(batch.size());
+    batch.forEach(pending -> operations.add(pending.operation));
+    try {
+      val results = batchWriter.write(operations);
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).future.complete(results.get(i));
+      }
+    } catch (Exception e) {
+      if (batch.size() == 1) {
+        batch.get(0).future.completeExceptionally(e);
+        return;
+      }
+      log.warn("Group commit of {} operations failed. Retrying them one by one.", batch.size(), e);
+      batch.forEach(pending -> this.commit(Collections.singletonList(pending)));
+    }
+  }
+
+  private int shardOf(Pending pending) {
+    val target = EmployeeBatchWriter.targetIdOf(pending.operation);
+    return Objects.isNull(target) ? shards.shardForNew() : shards.shardOf(target);
+  }
+
+  /**
+   * Stop accepting the operations, and wait for the queued ones to be committed.
+   */
+  @Override
+  public void destroy() throws InterruptedException {
+    running = false;
+    if (Objects.nonNull(committer)) {
+      committer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+  }
+
+  private static class Pending {
+    private final BatchOperation operation;
+    private final CompletableFuture<Either<CRUDErrorStatus, UpdateResult>> future = new CompletableFuture<>();
+
+    Pending(BatchOperation operation) {
+      this.operation = operation;
+    }
+  }
+}
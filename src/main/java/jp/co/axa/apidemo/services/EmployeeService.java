@@ -1,14 +1,22 @@
 package jp.co.axa.apidemo.services;
 
+import jp.co.axa.apidemo.aggregates.DepartmentStatistics;
 import jp.co.axa.apidemo.entities.EmployeeEntity;
 import jp.co.axa.apidemo.enums.CRUDErrorStatus;
 import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.repositories.EmployeeField;
+import jp.co.axa.apidemo.repositories.EmployeeFilter;
+import jp.co.axa.apidemo.repositories.EmployeeProjection;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.experimental.Wither;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Class to process the business logic of the employees.<br/>
@@ -22,6 +30,57 @@ public interface EmployeeService {
    */
   Either<CRUDErrorStatus, List<EmployeeEntity>> retrieveEmployees();
 
+  /**
+   * Method to get the employees page by page in the ascending order of the ID.<br/>
+   * The page is specified by the cursor (ID of the last employee in the previous page) instead of the offset,
+   * so that the cost of fetching the page does not depend on how deep the page is.
+   *
+   * @param lastEmployeeId ID of the last employee in the previous page. Null to fetch the first page.
+   * @param pageSize       max number of the employees in the page. Must be larger than 0.
+   * @return Either of the page of the employees or error status.
+   */
+  Either<CRUDErrorStatus, EmployeePage<EmployeeEntity>> retrieveEmployees(Long lastEmployeeId, int pageSize);
+
+  /**
+   * Method to get the employees matching the filter page by page in the ascending order of the ID.<br/>
+   * Same as {@link EmployeeService#retrieveEmployees(Long, int)} except the filter.
+   * The same filter must be given to fetch the following pages.
+   *
+   * @param filter         conditions of the employees. {@link EmployeeFilter#NONE} to fetch all.
+   * @param lastEmployeeId ID of the last employee in the previous page. Null to fetch the first page.
+   * @param pageSize       max number of the employees in the page. Must be larger than 0.
+   * @return Either of the page of the employees or error status.
+   */
+  Either<CRUDErrorStatus, EmployeePage<EmployeeEntity>> retrieveEmployees(EmployeeFilter filter, Long lastEmployeeId,
+                                                                         int pageSize);
+
+  /**
+   * Method to get the read-only projections of the employees matching the filter page by page.<br/>
+   * Same as {@link EmployeeService#retrieveEmployees(EmployeeFilter, Long, int)} except that only the given fields
+   * are read, and no entity is managed, thus the projections cost less memory and nothing is checked for the changes.
+   *
+   * @param filter         conditions of the employees. {@link EmployeeFilter#NONE} to fetch all.
+   * @param fields         fields to be read. ID is always read.
+   * @param lastEmployeeId ID of the last employee in the previous page. Null to fetch the first page.
+   * @param pageSize       max number of the employees in the page. Must be larger than 0.
+   * @return Either of the page of the projections or error status.
+   */
+  Either<CRUDErrorStatus, EmployeePage<EmployeeProjection>> retrieveEmployeeProjections(EmployeeFilter filter,
+                                                                                       Set<EmployeeField> fields,
+                                                                                       Long lastEmployeeId,
+                                                                                       int pageSize);
+
+  /**
+   * Method to export all the employees one by one in the ascending order of the ID.<br/>
+   * Each employee is passed to the consumer as soon as it is read from the DB with the forward-only cursor,
+   * and detached from the persistence context right after that, so that the memory usage does not depend on the
+   * number of the employees.
+   *
+   * @param consumer consumer of each employee. Exception thrown by the consumer aborts the export.
+   * @return Either of the number of the exported employees or error status.
+   */
+  Either<CRUDErrorStatus, Long> exportEmployees(Consumer<EmployeeEntity> consumer);
+
   /**
    * Get an EmployeeEntity specified by the ID.
    *
@@ -60,6 +119,59 @@ public interface EmployeeService {
    */
   Either<CRUDErrorStatus, UpdateResult> updateEmployee(EmployeeEntity employee);
 
+  /**
+   * Method to create, update and delete many employees at once.<br/>
+   * All the operations are processed in one transaction and sent to the DB with the JDBC batching.
+   * Each operation succeeds or fails individually with the same rule as {@link EmployeeService#saveEmployee},
+   * {@link EmployeeService#updateEmployee} and {@link EmployeeService#deleteEmployee}, but if the DB fails,
+   * none of the operations is applied.
+   *
+   * @param operations operations to be processed in the given order.
+   * @return Either of error status or the result of each operation in the same order as the given operations.
+   * The result of each operation is Either of error status or update result: old is null for the creation
+   * and updated is null for the deletion.
+   */
+  Either<CRUDErrorStatus, List<Either<CRUDErrorStatus, UpdateResult>>> processBatch(List<BatchOperation> operations);
+
+  /**
+   * Method to insert many new employees at once, e.g. for the bulk import.<br/>
+   * All the employees are inserted in one transaction with the JDBC batching, or none of them if the DB fails.
+   * Unlike {@link EmployeeService#processBatch}, nothing is read before the insert, because the ID is always generated.
+   *
+   * @param employees employees to be created. Each of them must pass {@link EmployeeEntity#validateSelf()}.
+   * @return Either of error status or the created employees with the generated ID in the same order.
+   */
+  Either<CRUDErrorStatus, List<EmployeeEntity>> importEmployees(List<EmployeeEntity> employees);
+
+  /**
+   * Method to get the employees created, updated or deleted after the given change sequence, for the delta sync.<br/>
+   * Each employee appears once in its latest state, in the order of its latest change. Deleted employees are given
+   * as the IDs. The caller is expected to keep nextSince of the result and pass it next time.
+   *
+   * @param since    change sequence which the caller has already applied. 0 to get everything.
+   * @param pageSize max number of the changes. Must be larger than 0.
+   * @return Either of the changes or error status. VALIDATION_FAILURE if since is ahead of this server, e.g. the
+   * DB has been reset, and the caller needs to sync everything again.
+   */
+  Either<CRUDErrorStatus, EmployeeChanges> retrieveChanges(long since, int pageSize);
+
+  /**
+   * Method to get the headcount and the salary statistics of each department.<br/>
+   * The statistics are kept in memory and updated on every write, thus this method does not access the DB.
+   *
+   * @return statistics of the departments which have any employee, in the order of the name.
+   */
+  List<DepartmentStatistics> retrieveDepartmentStatistics();
+
+  /**
+   * Sequence number which is incremented after every write through this service.<br/>
+   * Anything read after getting the number reflects at least the writes counted in it, thus the number can be used as
+   * the version of any collection of the employees. Writes made by the other processes are not counted.
+   *
+   * @return current modification sequence.
+   */
+  long getModificationSequence();
+
 
   @AllArgsConstructor
   @Wither
@@ -68,4 +180,55 @@ public interface EmployeeService {
     private final EmployeeEntity old;
     private final EmployeeEntity updated;
   }
-}
\ No newline at end of file
+
+  enum BatchOperationType {
+    CREATE, UPDATE, DELETE
+  }
+
+  @AllArgsConstructor
+  @NoArgsConstructor
+  @Setter
+  @Getter
+  class BatchOperation {
+    private BatchOperationType type;
+    /**
+     * ID of the employee to be updated or deleted. Not used for the creation.
+     */
+    private Long id;
+    /**
+     * Employee to be created or updated. Not used for the deletion.
+     */
+    private EmployeeEntity employee;
+  }
+
+  @AllArgsConstructor
+  @Getter
+  class EmployeePage<T> {
+    private final List<T> employees;
+    /**
+     * Cursor to fetch the next page. Null if this is the last page.
+     */
+    private final Long nextCursor;
+  }
+
+  @AllArgsConstructor
+  @Getter
+  class EmployeeChanges {
+    /**
+     * Created or updated employees in their current state.
+     */
+    private final List<EmployeeEntity> updated;
+    /**
+     * IDs of the deleted employees.
+     */
+    private final List<Long> deleted;
+    /**
+     * Change sequence to be given as "since" next time.
+     */
+    private final long nextSince;
+    /**
+     * True if more changes follow nextSince already.
+     */
+    private final boolean hasMore;
+  }
+}
@@ -1,57 +1,205 @@
 package jp.co.axa.apidemo.services;
 
+import jp.co.axa.apidemo.aggregates.DepartmentSalaryAggregates;
+import jp.co.axa.apidemo.aggregates.DepartmentStatistics;
+import jp.co.axa.apidemo.caches.EmployeeCache;
+import jp.co.axa.apidemo.caches.EmployeeJsonCache;
+import jp.co.axa.apidemo.coalescing.EmployeeReadCoalescer;
+import jp.co.axa.apidemo.datasources.ReadRoute;
+import jp.co.axa.apidemo.entities.EmployeeChangeEntity;
 import jp.co.axa.apidemo.entities.EmployeeEntity;
 import jp.co.axa.apidemo.enums.CRUDErrorStatus;
 import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.repositories.EmployeeField;
+import jp.co.axa.apidemo.repositories.EmployeeFilter;
+import jp.co.axa.apidemo.repositories.EmployeeProjection;
 import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class EmployeeServiceImpl implements EmployeeService {
 
+  /**
+   * Max number of the attempts of the conditional write.
+   * The first attempt may use the cached record, and the second one uses the record read from the DB.
+   */
+  private static final int MAX_WRITE_ATTEMPTS = 2;
+
   private EmployeeRepository employeeRepository;
+  private EmployeeBatchWriter batchWriter;
+  private EmployeeExportReader exportReader;
+  private EmployeeGroupCommitter groupCommitter;
+  private EmployeeChangeLog changeLog;
+  private EmployeeCache employeeCache;
+  private EmployeeJsonCache jsonCache;
+  private DepartmentSalaryAggregates departmentAggregates;
+  private EmployeeShards shards;
+  private EmployeeReadCoalescer coalescer;
+  /**
+   * Incremented after every write, including the failed ones which might have changed something.
+   */
+  private final AtomicLong modificationSequence = new AtomicLong();
 
   @Autowired
-  public EmployeeServiceImpl(EmployeeRepository repository) {
+  public EmployeeServiceImpl(EmployeeRepository repository, EmployeeBatchWriter batchWriter,
+                             EmployeeExportReader exportReader, EmployeeGroupCommitter groupCommitter,
+                             EmployeeChangeLog changeLog, EmployeeCache employeeCache, EmployeeJsonCache jsonCache,
+                             DepartmentSalaryAggregates departmentAggregates, EmployeeShards shards,
+                             EmployeeReadCoalescer coalescer) {
     this.employeeRepository = repository;
+    this.batchWriter = batchWriter;
+    this.exportReader = exportReader;
+    this.groupCommitter = groupCommitter;
+    this.changeLog = changeLog;
+    this.employeeCache = employeeCache;
+    this.jsonCache = jsonCache;
+    this.departmentAggregates = departmentAggregates;
+    this.shards = shards;
+    this.coalescer = coalescer;
   }
 
 
   @Override
   public Either<CRUDErrorStatus, List<EmployeeEntity>> retrieveEmployees() {
     try {
-      return Either.right(Optional.ofNullable(employeeRepository.findAll()).orElse(Collections.emptyList()));
+      val employees = shards.scatter(() ->
+        Optional.ofNullable(employeeRepository.findAll()).orElse(Collections.<EmployeeEntity>emptyList()));
+      if (employees.size() == 1) {
+        return Either.right(employees.get(0));
+      }
+      return Either.right(employees.stream()
+        .flatMap(List::stream)
+        .sorted(Comparator.comparing(EmployeeEntity::getId))
+        .collect(Collectors.toList()));
     } catch (Exception e) {
       log.error("Unknown Error Occurred while fetching all the employees.", e);
       return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
     }
   }
 
+  @Override
+  public Either<CRUDErrorStatus, EmployeePage<EmployeeEntity>> retrieveEmployees(Long lastEmployeeId, int pageSize) {
+    return this.retrieveEmployees(EmployeeFilter.NONE, lastEmployeeId, pageSize);
+  }
+
+  @Override
+  public Either<CRUDErrorStatus, EmployeePage<EmployeeEntity>> retrieveEmployees(@NonNull EmployeeFilter filter,
+                                                                                 Long lastEmployeeId, int pageSize) {
+    return this.retrievePage(filter, lastEmployeeId, pageSize, EmployeeEntity::getId, (cursor, limit) ->
+      filter.isEmpty()
+        ? employeeRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, limit))
+        : employeeRepository.findByFilterAndIdGreaterThan(filter, cursor, limit));
+  }
+
+  @Override
+  public Either<CRUDErrorStatus, EmployeePage<EmployeeProjection>> retrieveEmployeeProjections(
+    @NonNull EmployeeFilter filter, @NonNull Set<EmployeeField> fields, Long lastEmployeeId, int pageSize) {
+    if (!fields.contains(EmployeeField.ID)) {
+      log.warn("ID must be selected as the cursor, but the fields were {}", fields);
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    // Projections are immutable, thus the same page can be shared by the concurrent callers.
+    return coalescer.loadPage(Arrays.asList(filter, fields, lastEmployeeId, pageSize), modificationSequence.get(),
+      () -> this.retrievePage(filter, lastEmployeeId, pageSize, EmployeeProjection::getId, (cursor, limit) ->
+        employeeRepository.findProjectionsByFilterAndIdGreaterThan(filter, fields, cursor, limit)));
+  }
+
+  /**
+   * Fetch the page from all the shards by the query, which returns up to the limit of the rows after the cursor in
+   * the order of the ID.
+   */
+  private <T> Either<CRUDErrorStatus, EmployeePage<T>> retrievePage(EmployeeFilter filter, Long lastEmployeeId,
+                                                                    int pageSize, Function<T, Long> idOf,
+                                                                    BiFunction<Long, Integer, List<T>> query) {
+    if (pageSize < 1) {
+      log.warn("Page size must be larger than 0, but was {}", pageSize);
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    if (!filter.isSatisfiable()) {
+      log.warn("Filter never matches any employee: {}", filter);
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    try {
+      val cursor = Optional.ofNullable(lastEmployeeId).orElse(Long.MIN_VALUE);
+      // Fetch one more row than the page size to know whether the next page exists without another query.
+      // Each shard returns up to the same number of rows, and the first ones of them in the order of the ID are taken.
+      val fetched = EmployeeShards.merge(shards.scatterAfter(cursor, () ->
+        Optional.ofNullable(query.apply(cursor, pageSize + 1)).orElse(Collections.<T>emptyList())),
+        Comparator.comparing(idOf), pageSize + 1);
+      if (fetched.size() <= pageSize) {
+        return Either.right(new EmployeePage<>(fetched, null));
+      }
+      val page = fetched.subList(0, pageSize);
+      return Either.right(new EmployeePage<>(page, idOf.apply(page.get(pageSize - 1))));
+    } catch (Exception e) {
+      log.error("Unknown Error Occurred while fetching the employees after ID {}.", lastEmployeeId, e);
+      return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    }
+  }
+
+  @Override
+  public Either<CRUDErrorStatus, Long> exportEmployees(@NonNull Consumer<EmployeeEntity> consumer) {
+    try {
+      long count = 0;
+      // Shards are read one by one in their order, which is also the order of the ID.
+      for (int shard = 0; shard < shards.size(); shard++) {
+        count += shards.on(shard, () -> exportReader.forEach(consumer));
+      }
+      return Either.right(count);
+    } catch (Exception e) {
+      log.error("Unknown Error Occurred while exporting the employees.", e);
+      return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    }
+  }
+
   @Override
   public Optional<EmployeeEntity> getEmployee(Long employeeId) {
-    return
-      Optional.ofNullable(employeeId)
-        .flatMap(id -> employeeRepository.findById(id));
+    if (Objects.isNull(employeeId)) {
+      return Optional.empty();
+    }
+    Function<Long, Optional<EmployeeEntity>> loader = key -> coalescer.loadEmployee(key, modificationSequence.get(),
+      () -> shards.on(shards.shardOf(key), () -> employeeRepository.findById(key)));
+    // Replica may be behind the writes, e.g. the one whose failure has just invalidated the cache.
+    return ReadRoute.isReplicaAllowed()
+      ? employeeCache.getWithoutFill(employeeId, loader)
+      : employeeCache.get(employeeId, loader);
   }
 
   @Override
   public Either<CRUDErrorStatus, EmployeeEntity> saveEmployee(@NonNull EmployeeEntity employee) {
     try {
-      val emp = Optional.ofNullable(employee).map(EmployeeEntity::getId).flatMap(this::getEmployee);
-      if (emp.isPresent()) {
-        log.error("Employee with the given ID is already present, id is {}", emp.get().getId());
-        return Either.left(CRUDErrorStatus.ALREADY_EXISTS);
+      if (groupCommitter.isEnabled()) {
+        return this.commitInGroup(new BatchOperation(BatchOperationType.CREATE, null, employee))
+          .mapRight(UpdateResult::getUpdated);
       }
-      return this.validateAndSave(employee);
+      return this.validateAndInsert(employee);
     } catch (Exception e) {
       log.error("Failed in saving the employee with ID {}",
         Optional.ofNullable(employee)
@@ -59,44 +207,287 @@ public class EmployeeServiceImpl implements EmployeeService {
           .map(Object::toString)
           .orElse(""), e);
       return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    } finally {
+      modificationSequence.incrementAndGet();
     }
   }
 
   @Override
   public Either<CRUDErrorStatus, EmployeeEntity> deleteEmployee(Long employeeId) {
     try {
-      val old = this.getEmployee(employeeId);
-      if (old.isPresent()) {
-        employeeRepository.deleteById(employeeId);
-        return Either.right(old.get());
+      for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+        val old = this.getEmployee(employeeId);
+        if (!old.isPresent()) {
+          return Either.right(null);
+        }
+        val deleted = shards.on(shards.shardOf(employeeId), () -> batchWriter.deleteIfVersionMatches(old.get()));
+        if (deleted) {
+          employeeCache.putDeleted(employeeId);
+          jsonCache.invalidate(employeeId);
+          departmentAggregates.apply(old.get(), null);
+          return Either.right(old.get());
+        }
+        // Cached record may be stale. Next attempt reads the record from the DB.
+        employeeCache.invalidate(employeeId);
       }
-      return Either.right(null);
+      log.warn("Employee with ID {} has been modified by another request while deleting.", employeeId);
+      return Either.left(CRUDErrorStatus.VERSION_CONFLICT);
     } catch (Exception e) {
-      log.error("Error occurred while deleting the employee with ID {}", employeeId);
+      employeeCache.invalidate(employeeId);
+      log.error("Error occurred while deleting the employee with ID {}", employeeId, e);
       return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    } finally {
+      modificationSequence.incrementAndGet();
     }
   }
 
   @Override
   public Either<CRUDErrorStatus, UpdateResult> updateEmployee(EmployeeEntity employee) {
     try {
-      val old = Optional.ofNullable(employee).map(EmployeeEntity::getId).flatMap(this::getEmployee);
-      if (!old.isPresent()) {
-        return Either.left(CRUDErrorStatus.TARGET_NOT_FOUND);
+      if (groupCommitter.isEnabled() && Objects.nonNull(employee)) {
+        return this.commitInGroup(new BatchOperation(BatchOperationType.UPDATE, employee.getId(), employee));
       }
-      return this.validateAndSave(employee).mapRight((updated) -> new UpdateResult(old.get(), updated));
+      for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+        val old = Optional.ofNullable(employee).map(EmployeeEntity::getId).flatMap(this::getEmployee);
+        if (!old.isPresent()) {
+          return Either.left(CRUDErrorStatus.TARGET_NOT_FOUND);
+        }
+        if (!isValid(employee)) {
+          log.warn("Failed in updating an employee record due to the validation failure.");
+          return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+        }
+        val current = old.get();
+        // Version given by the caller is the precondition of the update. The update is applied only if the record
+        // in the DB is still the same as "current", so that "current" is exactly the state before the update.
+        if (Objects.isNull(employee.getVersion()) || Objects.equals(employee.getVersion(), current.getVersion())) {
+          val updated = employee.withVersion(current.getVersion() + 1);
+          if (shards.on(shards.shardOf(current.getId()), () -> batchWriter.updateIfVersionMatches(current, updated))) {
+            employeeCache.put(updated);
+            // JSON of the old version is never written again.
+            jsonCache.invalidate(current.getId());
+            departmentAggregates.apply(current, updated);
+            return Either.right(new UpdateResult(current, updated));
+          }
+        }
+        // Cached record may be stale. Next attempt reads the record from the DB.
+        employeeCache.invalidate(current.getId());
+      }
+      log.warn("Employee with ID {} has been modified by another request while updating.", employee.getId());
+      return Either.left(CRUDErrorStatus.VERSION_CONFLICT);
     } catch (Exception e) {
+      Optional.ofNullable(employee).map(EmployeeEntity::getId).ifPresent(employeeCache::invalidate);
       log.error("Failed in updating the employee with ID {}",
-        Optional.ofNullable(employee).map(EmployeeEntity::getId).orElse(null));
+        Optional.ofNullable(employee).map(EmployeeEntity::getId).orElse(null), e);
       return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    } finally {
+      modificationSequence.incrementAndGet();
     }
   }
 
-  private Either<CRUDErrorStatus, EmployeeEntity> validateAndSave(EmployeeEntity employee) {
-    if (!Optional.ofNullable(employee).filter(EmployeeEntity::validateSelf).isPresent()) {
+  @Override
+  public Either<CRUDErrorStatus, List<Either<CRUDErrorStatus, UpdateResult>>> processBatch(
+    List<BatchOperation> operations) {
+    if (Objects.isNull(operations)) {
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    try {
+      val results = shards.scatterBy(operations, this::shardOf,
+        part -> this.writePart(part, part.size() == operations.size()));
+      results.forEach(result -> result.apply(error -> {
+      }, this::reflectWrite));
+      return Either.right(results);
+    } catch (OptimisticLockingFailureException e) {
+      log.warn("Employees of the batch have been modified by another request while writing.", e);
+      this.invalidateTargets(operations);
+      return Either.left(CRUDErrorStatus.VERSION_CONFLICT);
+    } catch (Exception e) {
+      log.error("Failed in processing the batch of {} operations.", operations.size(), e);
+      return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    } finally {
+      modificationSequence.incrementAndGet();
+    }
+  }
+
+  @Override
+  public Either<CRUDErrorStatus, List<EmployeeEntity>> importEmployees(List<EmployeeEntity> employees) {
+    if (Objects.isNull(employees) || !employees.stream().allMatch(EmployeeServiceImpl::isValid)) {
+      log.warn("Failed in importing the employees due to the validation failure.");
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    try {
+      val inserted = shards.on(shards.shardForNew(), () -> batchWriter.insertAll(employees));
+      for (EmployeeEntity employee : inserted) {
+        // Absence of the ID may have been cached. The imported employees are not cached to keep the hot ones.
+        employeeCache.invalidate(employee.getId());
+        departmentAggregates.apply(null, employee);
+      }
+      return Either.right(inserted);
+    } catch (Exception e) {
+      log.error("Failed in importing {} employees.", employees.size(), e);
+      return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    } finally {
+      modificationSequence.incrementAndGet();
+    }
+  }
+
+  @Override
+  public Either<CRUDErrorStatus, EmployeeChanges> retrieveChanges(long since, int pageSize) {
+    if (pageSize < 1 || since < 0 || since > changeLog.getLatestSequence()) {
+      log.warn("Changes since {} can't be fetched by the page of {}.", since, pageSize);
+      return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
+    }
+    try {
+      val stable = changeLog.getStableSequence();
+      if (since >= stable) {
+        return Either.right(new EmployeeChanges(Collections.emptyList(), Collections.emptyList(), since, false));
+      }
+      // Fetch one more row than the page size to know whether more changes follow.
+      val fetched = changeLog.findChanges(since, stable, pageSize + 1);
+      val hasMore = fetched.size() > pageSize;
+      val changes = hasMore ? fetched.subList(0, pageSize) : fetched;
+      // Filled by the shards in parallel.
+      val current = new ConcurrentHashMap<Long, EmployeeEntity>();
+      val ids = changes.stream()
+        .filter(change -> !change.isDeleted())
+        .map(EmployeeChangeEntity::getEmployeeId)
+        .collect(Collectors.toList());
+      shards.scatterBy(ids, shards::shardOf, part -> {
+        employeeRepository.findAllById(part).forEach(employee -> current.put(employee.getId(), employee));
+        return part;
+      });
+      val updated = new ArrayList<EmployeeEntity>();
+      val deleted = new ArrayList<Long>();
+      for (EmployeeChangeEntity change : changes) {
+        val employee = current.get(change.getEmployeeId());
+        if (Objects.isNull(employee)) {
+          // Deleted, possibly after the change was read. Its tombstone follows in that case.
+          deleted.add(change.getEmployeeId());
+        } else {
+          updated.add(employee);
+        }
+      }
+      val nextSince = hasMore ? changes.get(changes.size() - 1).getChangeSeq() : stable;
+      return Either.right(new EmployeeChanges(updated, deleted, nextSince, hasMore));
+    } catch (Exception e) {
+      log.error("Unknown Error Occurred while fetching the changes since {}.", since, e);
+      return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    }
+  }
+
+  @Override
+  public List<DepartmentStatistics> retrieveDepartmentStatistics() {
+    return departmentAggregates.statistics();
+  }
+
+  @Override
+  public long getModificationSequence() {
+    return modificationSequence.get();
+  }
+
+  private Either<CRUDErrorStatus, EmployeeEntity> validateAndInsert(EmployeeEntity employee) {
+    if (!isValid(employee)) {
       log.warn("Failed in creating an employee record due to the validation failure.");
       return Either.left(CRUDErrorStatus.VALIDATION_FAILURE);
     }
-    return Either.right(employeeRepository.saveAndFlush(employee));
+    val id = employee.getId();
+    // Given ID is checked on its shard, same as the creation in the batch.
+    val inserted = shards.on(Objects.isNull(id) ? shards.shardForNew() : shards.shardOf(id),
+      () -> batchWriter.insert(employee));
+    inserted.apply(error -> log.error("Employee with the given ID is already present, id is {}", id), saved -> {
+      employeeCache.put(saved);
+      departmentAggregates.apply(null, saved);
+    });
+    return inserted;
+  }
+
+  private static boolean isValid(EmployeeEntity employee) {
+    return Optional.ofNullable(employee).filter(EmployeeEntity::validateSelf).isPresent();
+  }
+
+  /**
+   * @return shard of the employee written by the operation. New employees are spread over the shards.
+   */
+  private int shardOf(BatchOperation operation) {
+    val target = EmployeeBatchWriter.targetIdOf(operation);
+    return Objects.isNull(target) ? shards.shardForNew() : shards.shardOf(target);
+  }
+
+  /**
+   * Apply the part of the batch on its shard. Each part is atomic, but the batch spanning the shards is not.
+   *
+   * @param whole true if the part is the whole batch. Failure of the DB fails the batch in that case.
+   * @return results of the operations of the part. Failure of the DB fails only the operations of the part.
+   */
+  private List<Either<CRUDErrorStatus, UpdateResult>> writePart(List<BatchOperation> part, boolean whole) {
+    if (whole) {
+      return batchWriter.write(part);
+    }
+    CRUDErrorStatus status;
+    try {
+      return batchWriter.write(part);
+    } catch (OptimisticLockingFailureException e) {
+      log.warn("Employees of the batch on a shard have been modified by another request while writing.", e);
+      this.invalidateTargets(part);
+      status = CRUDErrorStatus.VERSION_CONFLICT;
+    } catch (Exception e) {
+      log.error("Failed in processing {} operations of the batch on a shard.", part.size(), e);
+      status = CRUDErrorStatus.UNKNOWN_FAILURE;
+    }
+    return part.stream()
+      .map(operation -> Either.<CRUDErrorStatus, UpdateResult>left(status))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Invalidate the cached employees which the operations target. They may be stale after the version conflict.
+   */
+  private void invalidateTargets(List<BatchOperation> operations) {
+    operations.stream()
+      .map(EmployeeBatchWriter::targetIdOf)
+      .filter(Objects::nonNull)
+      .forEach(employeeCache::invalidate);
+  }
+
+  /**
+   * Apply the operation together with the concurrent ones, and wait for the result.
+   * Same as the batch of one operation, except the concurrent modification is reported as the version conflict.
+   * The result is reflected in the caches by the committer, so that they follow the DB even after the caller has
+   * given up waiting.
+   */
+  private Either<CRUDErrorStatus, UpdateResult> commitInGroup(BatchOperation operation) {
+    val reflected = groupCommitter.submit(operation).thenApply(result -> {
+      result.apply(error -> {
+      }, this::reflectWrite);
+      return result;
+    });
+    try {
+      return reflected.get(groupCommitter.getTimeout().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    } catch (TimeoutException e) {
+      log.error("Group commit of the employee with ID {} did not finish in time. It may or may not be applied.",
+        operation.getId());
+      return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof OptimisticLockingFailureException) {
+        log.warn("Employee with ID {} has been modified by another request while writing.", operation.getId());
+        employeeCache.invalidate(operation.getId());
+        return Either.left(CRUDErrorStatus.VERSION_CONFLICT);
+      }
+      throw new CompletionException(e.getCause());
+    }
+  }
+
+  private void reflectWrite(UpdateResult result) {
+    if (Objects.nonNull(result.getUpdated())) {
+      employeeCache.put(result.getUpdated());
+    } else if (Objects.nonNull(result.getOld())) {
+      employeeCache.invalidate(result.getOld().getId());
+    }
+    if (Objects.nonNull(result.getOld())) {
+      jsonCache.invalidate(result.getOld().getId());
+    }
+    departmentAggregates.apply(result.getOld(), result.getUpdated());
   }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package jp.co.axa.apidemo.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Schema of the embedded H2 shards, standing in for the schema management of the shards when testing locally.<br/>
+ * The schema is generated only in the first shard, thus each of the other shards gets its copy by the SCRIPT command
+ * of H2. Then the sequence of the employee ID of each shard is moved into the range of the shard.
+ * Runs after the schema generation and before the application reads the shards.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "employee.sharding.initialize-embedded", havingValue = "true")
+public class EmbeddedShardInitializer implements SmartInitializingSingleton {
+
+  private static final String SEQUENCE_NAME = "EMPLOYEE_SEQ";
+
+  private final List<JdbcTemplate> shards;
+  private final ShardingStrategy strategy;
+
+  @Autowired
+  public EmbeddedShardInitializer(ShardRoutingDataSource dataSource, ShardingStrategy strategy) {
+    this.shards = dataSource.getShards().stream().map(JdbcTemplate::new).collect(Collectors.toList());
+    this.strategy = strategy;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    val first = shards.get(0);
+    for (int shard = 1; shard < shards.size(); shard++) {
+      val jdbcTemplate = shards.get(shard);
+      if (!hasEmployeeTable(jdbcTemplate)) {
+        val script = first.queryForList("SCRIPT NODATA", String.class);
+        script.forEach(jdbcTemplate::execute);
+        log.info("Copied {} statements of the schema into the shard {}.", script.size(), shard);
+      }
+    }
+    for (int shard = 0; shard < shards.size(); shard++) {
+      this.moveSequence(shards.get(shard), shard);
+    }
+  }
+
+  private static boolean hasEmployeeTable(JdbcTemplate jdbcTemplate) {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+      + "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = 'EMPLOYEE'", Integer.class) > 0;
+  }
+
+  /**
+   * Restart the sequence so that the pooled optimizer issues the lowest ID of the shard first.
+   * The sequence already in the range is kept, e.g. the one of the shard which is not empty.
+   */
+  private void moveSequence(JdbcTemplate jdbcTemplate, int shard) {
+    val sequence = jdbcTemplate.queryForMap("SELECT CURRENT_VALUE, INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES "
+      + "WHERE SEQUENCE_SCHEMA = SCHEMA() AND SEQUENCE_NAME = ?", SEQUENCE_NAME);
+    val current = ((Number) sequence.get("CURRENT_VALUE")).longValue();
+    val increment = ((Number) sequence.get("INCREMENT")).longValue();
+    val lowest = strategy.lowestIdOf(shard);
+    if (current >= lowest) {
+      return;
+    }
+    // The pooled optimizer takes the value of the sequence as the highest ID of the pool.
+    jdbcTemplate.execute("ALTER SEQUENCE " + SEQUENCE_NAME + " RESTART WITH " + (lowest + increment - 1));
+    log.info("Moved the sequence of the shard {} to the range from {}.", shard, lowest);
+  }
+}
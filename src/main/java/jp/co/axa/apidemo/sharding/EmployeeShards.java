@@ -0,0 +1,229 @@
+package jp.co.axa.apidemo.sharding;
+
+import lombok.val;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Shards of the employees, and the routing of the DB access to them.<br/>
+ * The access to one employee runs on the shard of its ID ({@link #on}), and the new employees are spread over the
+ * shards in turn. The access to many employees runs on the shards in parallel ({@link #scatter}), and the results
+ * are merged by the caller, e.g. in the order of the ID by {@link #merge}. Parts of the scatter run on the pool of
+ * "employee.sharding.scatter-threads", or in the calling thread if the pool is busy.
+ * Without the {@link ShardingStrategy} there is only one shard, and everything runs in the calling thread as is.
+ */
+@Component
+public class EmployeeShards implements DisposableBean {
+
+  private final ShardingStrategy strategy;
+  private final ThreadPoolExecutor executor;
+  private final AtomicInteger next = new AtomicInteger();
+
+  @Autowired
+  public EmployeeShards(Optional<ShardingStrategy> strategy,
+                        @Value("${employee.sharding.scatter-threads:16}") int scatterThreads) {
+    this.strategy = strategy.orElseGet(() -> new IdRangeSharding(1, Long.MAX_VALUE));
+    if (this.strategy.getShardCount() == 1) {
+      this.executor = null;
+      return;
+    }
+    val count = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(scatterThreads, scatterThreads, 0, TimeUnit.MILLISECONDS,
+      new SynchronousQueue<>(), runnable -> {
+      val thread = new Thread(runnable, "employee-shard-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   * @return shards of the single DB, i.e. no sharding.
+   */
+  public static EmployeeShards single() {
+    return new EmployeeShards(Optional.empty(), 0);
+  }
+
+  public int size() {
+    return strategy.getShardCount();
+  }
+
+  /**
+   * @return shard of the existing employee.
+   */
+  public int shardOf(long employeeId) {
+    return strategy.shardOf(employeeId);
+  }
+
+  /**
+   * @return shard to insert the new employee into. Each call returns the next shard.
+   */
+  public int shardForNew() {
+    return this.size() == 1 ? 0 : Math.floorMod(next.getAndIncrement(), this.size());
+  }
+
+  /**
+   * Run the task on the shard. The transaction must start in the task, so that its connection is of the shard.
+   */
+  public <T> T on(int shard, Supplier<T> task) {
+    if (this.size() == 1) {
+      return task.get();
+    }
+    val previous = ShardRoute.current();
+    ShardRoute.set(shard);
+    try {
+      return task.get();
+    } finally {
+      ShardRoute.set(previous);
+    }
+  }
+
+  /**
+   * Run the task on all the shards in parallel.
+   *
+   * @return results in the order of the shards, which is also the order of their IDs.
+   */
+  public <T> List<T> scatter(Supplier<T> task) {
+    return this.scatter(IntStream.range(0, this.size()).boxed().collect(Collectors.toList()), shard -> task.get());
+  }
+
+  /**
+   * Run the task in parallel on the shards which may have the IDs greater than the cursor. The others are skipped.
+   *
+   * @param cursor ID of the last employee already read.
+   * @return results in the order of the shards.
+   */
+  public <T> List<T> scatterAfter(long cursor, Supplier<T> task) {
+    return this.scatter(IntStream.range(0, this.size())
+      .filter(shard -> strategy.highestIdOf(shard) > cursor)
+      .boxed()
+      .collect(Collectors.toList()), shard -> task.get());
+  }
+
+  /**
+   * Split the items by the shard, and run the task on each part in parallel on its shard.
+   *
+   * @param items       items to be split.
+   * @param shardOfItem shard of each item.
+   * @param task        function returning one result for each item of the part, in the same order.
+   * @return results in the order of the items.
+   */
+  public <T, R> List<R> scatterBy(List<T> items, ToIntFunction<T> shardOfItem, Function<List<T>, List<R>> task) {
+    if (this.size() == 1) {
+      return task.apply(items);
+    }
+    val shards = items.stream().mapToInt(shardOfItem).toArray();
+    val parts = new TreeMap<Integer, List<T>>();
+    for (int i = 0; i < items.size(); i++) {
+      parts.computeIfAbsent(shards[i], shard -> new ArrayList<>()).add(items.get(i));
+    }
+    val targets = new ArrayList<Integer>(parts.keySet());
+    val results = this.scatter(targets, shard -> task.apply(parts.get(shard)));
+    // Put the results back in the order of the items.
+    val remaining = new HashMap<Integer, Iterator<R>>();
+    for (int i = 0; i < targets.size(); i++) {
+      remaining.put(targets.get(i), results.get(i).iterator());
+    }
+    val merged = new ArrayList<R>(items.size());
+    for (int shard : shards) {
+      merged.add(remaining.get(shard).next());
+    }
+    return merged;
+  }
+
+  private <T> List<T> scatter(List<Integer> targets, IntFunction<T> task) {
+    if (targets.size() <= 1) {
+      return targets.stream().map(shard -> this.on(shard, () -> task.apply(shard))).collect(Collectors.toList());
+    }
+    val futures = new ArrayList<CompletableFuture<T>>(targets.size());
+    for (Integer shard : targets.subList(1, targets.size())) {
+      futures.add(CompletableFuture.supplyAsync(() -> this.on(shard, () -> task.apply(shard)), executor));
+    }
+    // The first part runs in the calling thread instead of waiting.
+    val results = new ArrayList<T>(targets.size());
+    RuntimeException failure = null;
+    try {
+      val first = targets.get(0);
+      results.add(this.on(first, () -> task.apply(first)));
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+    // Every part is waited for even on the failure, so that nothing runs on the shards after returning.
+    for (CompletableFuture<T> future : futures) {
+      try {
+        results.add(future.join());
+      } catch (CompletionException e) {
+        if (Objects.isNull(failure)) {
+          failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+      }
+    }
+    if (Objects.nonNull(failure)) {
+      throw failure;
+    }
+    return results;
+  }
+
+  /**
+   * Merge the lists each of which is sorted in the order.
+   *
+   * @param lists results of the shards.
+   * @param order order of the elements.
+   * @param limit max number of the elements of the result.
+   * @return up to the limit of the first elements in the order.
+   */
+  public static <T> List<T> merge(List<List<T>> lists, Comparator<? super T> order, int limit) {
+    if (lists.size() == 1) {
+      val list = lists.get(0);
+      return list.size() <= limit ? list : list.subList(0, limit);
+    }
+    // Head of each list, ordered by the element.
+    val heads = new PriorityQueue<int[]>((a, b) -> order.compare(lists.get(a[0]).get(a[1]), lists.get(b[0]).get(b[1])));
+    for (int i = 0; i < lists.size(); i++) {
+      if (!lists.get(i).isEmpty()) {
+        heads.add(new int[]{i, 0});
+      }
+    }
+    val merged = new ArrayList<T>();
+    while (!heads.isEmpty() && merged.size() < limit) {
+      val head = heads.poll();
+      val list = lists.get(head[0]);
+      merged.add(list.get(head[1]));
+      if (head[1] + 1 < list.size()) {
+        heads.add(new int[]{head[0], head[1] + 1});
+      }
+    }
+    return merged;
+  }
+
+  @Override
+  public void destroy() {
+    if (Objects.nonNull(executor)) {
+      executor.shutdown();
+    }
+  }
+}
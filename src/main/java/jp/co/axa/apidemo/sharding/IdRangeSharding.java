@@ -0,0 +1,40 @@
+package jp.co.axa.apidemo.sharding;
+
+import lombok.Getter;
+
+/**
+ * Shards owning the ranges of the same size in the order of the ID: shard k owns from k * rangeSize + 1 to
+ * (k + 1) * rangeSize. The last shard also owns everything above, and the first one everything below.
+ */
+public class IdRangeSharding implements ShardingStrategy {
+
+  @Getter
+  private final int shardCount;
+  private final long rangeSize;
+
+  public IdRangeSharding(int shardCount, long rangeSize) {
+    if (shardCount < 1 || rangeSize < 1) {
+      throw new IllegalArgumentException("Shard count and range size must be positive.");
+    }
+    this.shardCount = shardCount;
+    this.rangeSize = rangeSize;
+  }
+
+  @Override
+  public int shardOf(long employeeId) {
+    if (employeeId < 1) {
+      return 0;
+    }
+    return (int) Math.min((employeeId - 1) / rangeSize, shardCount - 1);
+  }
+
+  @Override
+  public long lowestIdOf(int shard) {
+    return shard * rangeSize + 1;
+  }
+
+  @Override
+  public long highestIdOf(int shard) {
+    return shard == shardCount - 1 ? Long.MAX_VALUE : (shard + 1) * rangeSize;
+  }
+}
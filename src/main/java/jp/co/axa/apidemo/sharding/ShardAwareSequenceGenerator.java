@@ -0,0 +1,47 @@
+package jp.co.axa.apidemo.sharding;
+
+import lombok.val;
+import org.hibernate.MappingException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sequence generator which keeps the pool of the IDs of each shard separately.<br/>
+ * Each shard has its own sequence in the range of its IDs, thus the IDs fetched from one shard must not be used for
+ * the inserts into another one. Without the shard, e.g. when not sharded, this is the same as SequenceStyleGenerator.
+ */
+public class ShardAwareSequenceGenerator extends SequenceStyleGenerator {
+
+  private final ConcurrentMap<Integer, Optimizer> optimizers = new ConcurrentHashMap<>();
+  private String optimizerType;
+  private Class<?> returnClass;
+  private int incrementSize;
+
+  @Override
+  public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+    super.configure(type, params, serviceRegistry);
+    this.optimizerType = this.getOptimizer().getClass().getName();
+    this.returnClass = type.getReturnedClass();
+    this.incrementSize = this.getOptimizer().getIncrementSize();
+  }
+
+  @Override
+  public Serializable generate(SharedSessionContractImplementor session, Object object) {
+    val shard = ShardRoute.current();
+    if (shard == null) {
+      return super.generate(session, object);
+    }
+    val optimizer = optimizers.computeIfAbsent(shard,
+      key -> OptimizerFactory.buildOptimizer(optimizerType, returnClass, incrementSize, -1));
+    return optimizer.generate(this.getDatabaseStructure().buildCallback(session));
+  }
+}
@@ -0,0 +1,27 @@
+package jp.co.axa.apidemo.sharding;
+
+/**
+ * Shard which the DB access of the current thread goes to. Set only by {@link EmployeeShards}.
+ */
+final class ShardRoute {
+
+  private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+  private ShardRoute() {
+  }
+
+  /**
+   * @return shard of the current thread, or null if not chosen.
+   */
+  static Integer current() {
+    return SHARD.get();
+  }
+
+  static void set(Integer shard) {
+    if (shard == null) {
+      SHARD.remove();
+    } else {
+      SHARD.set(shard);
+    }
+  }
+}
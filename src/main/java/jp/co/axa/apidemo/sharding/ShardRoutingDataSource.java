@@ -0,0 +1,57 @@
+package jp.co.axa.apidemo.sharding;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * DataSource which sends the connection to the shard chosen by {@link EmployeeShards} on the current thread.<br/>
+ * The first shard also serves the connections taken outside of any shard, e.g. the schema generation on the startup.
+ * Shards other than the first are closed with this DataSource.
+ */
+@Slf4j
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+  /**
+   * DataSources in the order of the shards.
+   */
+  @Getter
+  private final List<DataSource> shards;
+
+  public ShardRoutingDataSource(List<DataSource> shards) {
+    this.shards = Collections.unmodifiableList(shards);
+    val targets = new HashMap<Object, Object>();
+    for (int i = 0; i < shards.size(); i++) {
+      targets.put(i, shards.get(i));
+    }
+    this.setTargetDataSources(targets);
+    this.setDefaultTargetDataSource(shards.get(0));
+    this.setLenientFallback(false);
+    this.afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return ShardRoute.current();
+  }
+
+  @Override
+  public void close() {
+    for (DataSource shard : shards.subList(1, shards.size())) {
+      if (shard instanceof Closeable) {
+        try {
+          ((Closeable) shard).close();
+        } catch (Exception e) {
+          log.warn("Failed in closing the shard {}.", shard, e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package jp.co.axa.apidemo.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+
+/**
+ * DataSources of the shards, enabled by "employee.sharding.additional-shards" (JDBC URLs of the shards other than
+ * the first one, separated by commas).<br/>
+ * The first shard is configured by "spring.datasource.*" same as without the sharding. The other shards use the same
+ * driver and credentials as the first one. Each shard owns the range of "employee.sharding.range-size" IDs in the
+ * order of the shards. JPA uses the routing DataSource, thus the repositories need no change.
+ */
+@Configuration
+@ConditionalOnProperty("employee.sharding.additional-shards")
+public class ShardingConfiguration {
+
+  @Bean
+  public ShardingStrategy shardingStrategy(@Value("${employee.sharding.additional-shards}") String[] urls,
+                                           @Value("${employee.sharding.range-size:1000000000000}") long rangeSize) {
+    return new IdRangeSharding(urls.length + 1, rangeSize);
+  }
+
+  @Bean
+  @ConfigurationProperties(prefix = "spring.datasource.hikari")
+  public HikariDataSource firstShardDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  @Primary
+  public ShardRoutingDataSource dataSource(DataSourceProperties properties, HikariDataSource firstShardDataSource,
+                                           @Value("${employee.sharding.additional-shards}") String[] urls) {
+    val shards = new ArrayList<DataSource>();
+    shards.add(firstShardDataSource);
+    for (int i = 0; i < urls.length; i++) {
+      val shard = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(urls[i].trim()).build();
+      shard.setPoolName("shard-" + (i + 2));
+      shards.add(shard);
+    }
+    // No lazy proxy is needed, because the shard is chosen before the transaction takes the connection.
+    return new ShardRoutingDataSource(shards);
+  }
+}
@@ -0,0 +1,29 @@
+package jp.co.axa.apidemo.sharding;
+
+/**
+ * How the employees are distributed over the shards by the ID.<br/>
+ * Each shard owns the contiguous range of the IDs, and issues the IDs of the new employees from its range,
+ * so that the shard of any employee is known from the ID alone. The ranges are in the order of the shards.
+ */
+public interface ShardingStrategy {
+
+  /**
+   * @return number of the shards. At least 1.
+   */
+  int getShardCount();
+
+  /**
+   * @return shard which owns the employee with the ID.
+   */
+  int shardOf(long employeeId);
+
+  /**
+   * @return lowest ID owned by the shard.
+   */
+  long lowestIdOf(int shard);
+
+  /**
+   * @return highest ID owned by the shard.
+   */
+  long highestIdOf(int shard);
+}
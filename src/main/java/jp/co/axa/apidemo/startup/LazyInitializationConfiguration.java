@@ -0,0 +1,27 @@
+package jp.co.axa.apidemo.startup;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Arrays;
+
+/**
+ * Lazy initialization of the beans, enabled by "employee.startup.lazy-initialization".<br/>
+ * Beans listed in "employee.startup.eager-beans" are still created on the startup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "employee.startup.lazy-initialization", havingValue = "true")
+public class LazyInitializationConfiguration {
+
+  /**
+   * Static, because the post processor is created before the other beans. The property is read from the
+   * environment for the same reason.
+   */
+  @Bean
+  public static LazyInitializationPostProcessor lazyInitializationPostProcessor(Environment environment) {
+    return new LazyInitializationPostProcessor(Arrays.asList(
+      environment.getProperty("employee.startup.eager-beans", String[].class, new String[]{"entityManagerFactory"})));
+  }
+}
@@ -0,0 +1,64 @@
+package jp.co.axa.apidemo.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Make the singletons lazy, so that each of them is created when it is used first instead of on the startup.<br/>
+ * Beans which must run on the startup by themselves are kept eager: SmartInitializingSingleton, the infrastructure
+ * of Spring and the given names, e.g. the EntityManagerFactory which is built in the background.
+ * Beans used on the startup anyway, e.g. the servlet filters and the listeners of ContextRefreshedEvent, are still
+ * created on the startup.
+ */
+@Slf4j
+public class LazyInitializationPostProcessor implements BeanFactoryPostProcessor {
+
+  private final Set<String> eagerBeans;
+
+  public LazyInitializationPostProcessor(Collection<String> eagerBeans) {
+    this.eagerBeans = new HashSet<>(eagerBeans);
+  }
+
+  @Override
+  public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+    int lazy = 0;
+    for (String name : beanFactory.getBeanDefinitionNames()) {
+      val definition = beanFactory.getBeanDefinition(name);
+      if (eagerBeans.contains(name) || definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE
+        || isSmartInitializingSingleton(definition, beanFactory.getBeanClassLoader())) {
+        continue;
+      }
+      definition.setLazyInit(true);
+      lazy++;
+    }
+    log.info("Made {} beans lazy.", lazy);
+  }
+
+  /**
+   * Judged by the declared type, without creating the bean.
+   */
+  private static boolean isSmartInitializingSingleton(BeanDefinition definition, ClassLoader classLoader) {
+    val factoryMethod = definition instanceof AnnotatedBeanDefinition
+      ? ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata() : null;
+    val typeName = Objects.nonNull(factoryMethod) ? factoryMethod.getReturnTypeName() : definition.getBeanClassName();
+    if (Objects.isNull(typeName)) {
+      return false;
+    }
+    try {
+      return SmartInitializingSingleton.class.isAssignableFrom(ClassUtils.forName(typeName, classLoader));
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,15 @@
+-- Schema of the employees, same as the one generated by Hibernate from the entities.
+-- Used by the production profile, which validates the schema instead of generating it.
+CREATE SEQUENCE IF NOT EXISTS EMPLOYEE_SEQ START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS EMPLOYEE (ID BIGINT NOT NULL, DEPARTMENT VARCHAR(255), EMPLOYEE_NAME VARCHAR(255),
+  EMPLOYEE_SALARY INTEGER, VERSION BIGINT DEFAULT 0 NOT NULL, PRIMARY KEY (ID));
+-- Table created before VERSION was made NOT NULL. Rows without the version start from 0.
+UPDATE EMPLOYEE SET VERSION = 0 WHERE VERSION IS NULL;
+ALTER TABLE EMPLOYEE ALTER COLUMN VERSION SET DEFAULT 0;
+ALTER TABLE EMPLOYEE ALTER COLUMN VERSION SET NOT NULL;
+CREATE TABLE IF NOT EXISTS EMPLOYEE_CHANGE (EMPLOYEE_ID BIGINT NOT NULL, CHANGE_SEQ BIGINT NOT NULL,
+  DELETED BOOLEAN NOT NULL, PRIMARY KEY (EMPLOYEE_ID));
+CREATE INDEX IF NOT EXISTS IDX_EMPLOYEE_DEPARTMENT ON EMPLOYEE (DEPARTMENT, ID);
+CREATE INDEX IF NOT EXISTS IDX_EMPLOYEE_SALARY ON EMPLOYEE (EMPLOYEE_SALARY);
+CREATE INDEX IF NOT EXISTS IDX_EMPLOYEE_NAME ON EMPLOYEE (EMPLOYEE_NAME);
+ALTER TABLE EMPLOYEE_CHANGE ADD CONSTRAINT IF NOT EXISTS IDX_EMPLOYEE_CHANGE_SEQ UNIQUE (CHANGE_SEQ);
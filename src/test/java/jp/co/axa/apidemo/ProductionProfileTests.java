@@ -0,0 +1,42 @@
+package jp.co.axa.apidemo;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.services.EmployeeService;
+import lombok.val;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The production profile validates the schema, thus this fails if db/schema.sql does not match the entities.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:production;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("production")
+public class ProductionProfileTests {
+
+  @Autowired
+  private ApplicationContext context;
+
+  @Autowired
+  private EmployeeService employeeService;
+
+  @Test
+  public void testSchemaValidatedAndUsable() {
+    val saved = employeeService.saveEmployee(new EmployeeEntity(null, "Chiakma", 1000, "Some Dept"));
+    assertThat(saved.isRight(), is(true));
+    assertThat(employeeService.getEmployee(saved.getRight().getId()).isPresent(), is(true));
+  }
+
+  @Test
+  public void testSwaggerDisabled() {
+    assertThat(context.getBeanNamesForType(SwaggerConfiguration.class).length, is(0));
+  }
+}
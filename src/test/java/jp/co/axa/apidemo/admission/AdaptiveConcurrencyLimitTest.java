@@ -0,0 +1,110 @@
+package jp.co.axa.apidemo.admission;
+
+import lombok.val;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class AdaptiveConcurrencyLimitTest {
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  private AdaptiveConcurrencyLimit newLimit() {
+    return new AdaptiveConcurrencyLimit("test", 20, 4, 100, Duration.ofSeconds(1), nanos::get);
+  }
+
+  /**
+   * Run one window with the given number of the concurrent requests which take the given time.
+   */
+  private void window(AdaptiveConcurrencyLimit limit, int concurrency, long rttMillis, boolean dropped) {
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < concurrency; i++) {
+        assertThat(limit.tryAcquire(), is(true));
+      }
+      for (int i = 0; i < concurrency; i++) {
+        limit.release(TimeUnit.MILLISECONDS.toNanos(rttMillis), dropped);
+      }
+    }
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    limit.tryAcquire();
+    limit.release(TimeUnit.MILLISECONDS.toNanos(rttMillis), dropped);
+  }
+
+  @Test
+  public void testAcquireUpToLimit() {
+    val limit = this.newLimit();
+    for (int i = 0; i < 20; i++) {
+      assertThat(limit.tryAcquire(), is(true));
+    }
+    assertThat(limit.tryAcquire(), is(false));
+    limit.release(1, false);
+    assertThat(limit.tryAcquire(), is(true));
+    assertThat(limit.getInFlight(), is(20));
+  }
+
+  @Test
+  public void testGrowsWhileLatencyIsStable() {
+    val limit = this.newLimit();
+    for (int i = 0; i < 5; i++) {
+      this.window(limit, limit.getLimit(), 10, false);
+    }
+    assertThat(limit.getLimit() > 20, is(true));
+  }
+
+  @Test
+  public void testDoesNotGrowWithoutUsage() {
+    val limit = this.newLimit();
+    for (int i = 0; i < 5; i++) {
+      this.window(limit, 2, 10, false);
+    }
+    assertThat(limit.getLimit(), is(20));
+  }
+
+  @Test
+  public void testShrinksWhenLatencyRises() {
+    val limit = this.newLimit();
+    for (int i = 0; i < 5; i++) {
+      this.window(limit, 15, 10, false);
+    }
+    val stable = limit.getLimit();
+    for (int i = 0; i < 5; i++) {
+      this.window(limit, 4, 100, false);
+    }
+    assertThat(limit.getLimit() < stable, is(true));
+  }
+
+  @Test
+  public void testShrinksOnDropsDownToMin() {
+    val limit = this.newLimit();
+    for (int i = 0; i < 50; i++) {
+      this.window(limit, 4, 10, true);
+    }
+    assertThat(limit.getLimit(), is(4));
+  }
+
+  @Test
+  public void testReleaseWithoutSampleDoesNotShrink() {
+    val limit = this.newLimit();
+    for (int i = 0; i < 5; i++) {
+      this.window(limit, 15, 10, false);
+    }
+    val stable = limit.getLimit();
+    for (int i = 0; i < 5; i++) {
+      // Slow exports alongside. Only the slot is released.
+      for (int j = 0; j < 4; j++) {
+        assertThat(limit.tryAcquire(), is(true));
+      }
+      for (int j = 0; j < 4; j++) {
+        limit.releaseWithoutSample(false);
+      }
+      this.window(limit, 15, 10, false);
+    }
+    assertThat(limit.getLimit() >= stable, is(true));
+    assertThat(limit.getInFlight(), is(0));
+  }
+}
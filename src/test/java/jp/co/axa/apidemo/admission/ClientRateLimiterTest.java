@@ -0,0 +1,51 @@
+package jp.co.axa.apidemo.admission;
+
+import lombok.val;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ClientRateLimiterTest {
+
+  private final AtomicLong nanos = new AtomicLong(-TimeUnit.HOURS.toNanos(1));
+
+  @Test
+  public void testBurstAndRefill() {
+    // 10 requests per second, 3 at once.
+    val limiter = new ClientRateLimiter(10, 3, 16, nanos::get);
+    assertThat(limiter.tryAcquire("a"), is(0L));
+    assertThat(limiter.tryAcquire("a"), is(0L));
+    assertThat(limiter.tryAcquire("a"), is(0L));
+    assertThat(limiter.tryAcquire("a"), is(TimeUnit.MILLISECONDS.toNanos(100)));
+
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    assertThat(limiter.tryAcquire("a"), is(0L));
+    assertThat(limiter.tryAcquire("a") > 0, is(true));
+
+    // Does not accumulate beyond the burst while idle.
+    nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+    for (int i = 0; i < 3; i++) {
+      assertThat(limiter.tryAcquire("a"), is(0L));
+    }
+    assertThat(limiter.tryAcquire("a") > 0, is(true));
+  }
+
+  @Test
+  public void testClientsAreIndependent() {
+    val limiter = new ClientRateLimiter(1, 1, 16, nanos::get);
+    assertThat(limiter.tryAcquire("a"), is(0L));
+    assertThat(limiter.tryAcquire("a") > 0, is(true));
+    assertThat(limiter.tryAcquire("b"), is(0L));
+  }
+
+  @Test
+  public void testRetryAfterSeconds() {
+    assertThat(ClientRateLimiter.toRetryAfterSeconds(1), is(1L));
+    assertThat(ClientRateLimiter.toRetryAfterSeconds(TimeUnit.SECONDS.toNanos(2)), is(2L));
+    assertThat(ClientRateLimiter.toRetryAfterSeconds(TimeUnit.SECONDS.toNanos(2) + 1), is(3L));
+  }
+}
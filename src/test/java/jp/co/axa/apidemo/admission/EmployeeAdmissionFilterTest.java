@@ -0,0 +1,122 @@
+package jp.co.axa.apidemo.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class EmployeeAdmissionFilterTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  /**
+   * Filter which trusts the client header from the default remote address of the mock requests.
+   */
+  private EmployeeAdmissionFilter newFilter(int clientBurst, int limit) {
+    return this.newFilter(clientBurst, limit, new MockHttpServletRequest().getRemoteAddr());
+  }
+
+  private EmployeeAdmissionFilter newFilter(int clientBurst, int limit, String... trustedProxies) {
+    return new EmployeeAdmissionFilter(registry, true, "X-Client-Id", trustedProxies, 1, clientBurst, 16, limit, 1,
+      limit, Duration.ofSeconds(1));
+  }
+
+  private static MockHttpServletRequest request(String method, String uri, String client) {
+    val request = new MockHttpServletRequest(method, uri);
+    request.addHeader("X-Client-Id", client);
+    return request;
+  }
+
+  private static MockHttpServletResponse filter(EmployeeAdmissionFilter filter, MockHttpServletRequest request)
+    throws Exception {
+    val response = new MockHttpServletResponse();
+    filter.doFilter(request, response, new MockFilterChain());
+    return response;
+  }
+
+  @Test
+  public void testRateLimitedPerClient() throws Exception {
+    val filter = this.newFilter(2, 10);
+    assertThat(filter(filter, request("GET", "/api/v1/employees/1", "a")).getStatus(), is(200));
+    assertThat(filter(filter, request("GET", "/api/v1/employees/1", "a")).getStatus(), is(200));
+    val rejected = filter(filter, request("GET", "/api/v1/employees/1", "a"));
+    assertThat(rejected.getStatus(), is(429));
+    assertThat(rejected.getHeader("Retry-After"), is("1"));
+    assertThat(filter(filter, request("GET", "/api/v1/employees/1", "b")).getStatus(), is(200));
+    assertThat(registry.get("employee.admission.rejected").tags("operation", "read", "reason", "rate").counter().count(), is(1.0));
+  }
+
+  @Test
+  public void testClientHeaderIgnoredFromUntrustedAddress() throws Exception {
+    val filter = this.newFilter(1, 10, "10.0.0.1");
+    assertThat(filter(filter, request("GET", "/api/v1/employees/1", "a")).getStatus(), is(200));
+    // Same remote address, thus the same bucket whatever the header says.
+    assertThat(filter(filter, request("GET", "/api/v1/employees/1", "b")).getStatus(), is(429));
+
+    val proxied = request("GET", "/api/v1/employees/1", "b");
+    proxied.setRemoteAddr("10.0.0.1");
+    assertThat(filter(filter, proxied).getStatus(), is(200));
+  }
+
+  @Test
+  public void testExportHoldsSlotOfList() throws Exception {
+    val filter = this.newFilter(100, 1);
+    val rejected = new MockHttpServletResponse();
+    filter.doFilter(request("GET", "/api/v1/employees:export", "a"), new MockHttpServletResponse(),
+      (req, res) -> filter.doFilter(request("GET", "/api/v1/employees", "b"), rejected, new MockFilterChain()));
+    assertThat(rejected.getStatus(), is(503));
+    // Released after the export.
+    assertThat(filter(filter, request("GET", "/api/v1/employees", "b")).getStatus(), is(200));
+  }
+
+  @Test
+  public void testOverloadedPerOperation() throws Exception {
+    val filter = this.newFilter(100, 1);
+    val entered = new CountDownLatch(1);
+    val leave = new CountDownLatch(1);
+    // Holds the only slot of the writes.
+    val holder = new Thread(() -> {
+      try {
+        filter.doFilter(request("POST", "/api/v1/employees", "a"), new MockHttpServletResponse(), (req, res) -> {
+          entered.countDown();
+          try {
+            leave.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    holder.start();
+    entered.await(5, TimeUnit.SECONDS);
+
+    val rejected = filter(filter, request("PUT", "/api/v1/employees/1", "b"));
+    assertThat(rejected.getStatus(), is(503));
+    assertThat(rejected.getHeader("Retry-After"), is("1"));
+    // Other operation classes are not affected.
+    assertThat(filter(filter, request("GET", "/api/v1/employees", "b")).getStatus(), is(200));
+
+    leave.countDown();
+    holder.join();
+    assertThat(filter(filter, request("PUT", "/api/v1/employees/1", "b")).getStatus(), is(200));
+  }
+
+  @Test
+  public void testOtherPathsAreNotFiltered() throws Exception {
+    val filter = this.newFilter(1, 1);
+    for (int i = 0; i < 3; i++) {
+      assertThat(filter(filter, request("GET", "/actuator/health", "a")).getStatus(), is(200));
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package jp.co.axa.apidemo.aggregates;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class DepartmentSalaryAggregatesTest {
+  @Mock
+  private EmployeeRepository employeeRepository;
+
+  private DepartmentSalaryAggregates aggregates;
+
+  @Before
+  public void before() {
+    MockitoAnnotations.initMocks(this);
+    this.aggregates = new DepartmentSalaryAggregates(employeeRepository, EmployeeShards.single());
+  }
+
+  @Test
+  public void testMinAndMaxAfterRemoval() {
+    val low = new EmployeeEntity(1L, "Low", 100, "Dept");
+    val middle = new EmployeeEntity(2L, "Middle", 200, "Dept");
+    val high = new EmployeeEntity(3L, "High", 300, "Dept");
+    aggregates.apply(null, low);
+    aggregates.apply(null, middle);
+    aggregates.apply(null, high);
+    aggregates.apply(low, null);
+    aggregates.apply(high, high.withSalary(250));
+
+    val statistics = aggregates.statistics().get(0);
+    assertThat(statistics.getHeadcount(), is(2L));
+    assertThat(statistics.getMinSalary(), is(200));
+    assertThat(statistics.getMaxSalary(), is(250));
+    assertThat(statistics.getSumSalary(), is(450L));
+    assertThat(statistics.getAverageSalary(), is(225.0));
+  }
+
+  @Test
+  public void testWithoutDepartmentOrSalary() {
+    aggregates.apply(null, new EmployeeEntity(1L, "No Dept", 100, null));
+    aggregates.apply(null, new EmployeeEntity(2L, "No Salary", null, "Dept"));
+
+    val statistics = aggregates.statistics();
+    assertThat(statistics, hasSize(2));
+    assertThat(statistics.get(0).getDepartment(), is(nullValue()));
+    assertThat(statistics.get(0).getSumSalary(), is(100L));
+    assertThat(statistics.get(1).getHeadcount(), is(1L));
+    assertThat(statistics.get(1).getAverageSalary(), is(nullValue()));
+  }
+
+  @Test
+  public void testRebuild() {
+    aggregates.apply(null, new EmployeeEntity(1L, "Before Rebuild", 100, "Old Dept"));
+    when(employeeRepository.countByDepartmentAndSalary()).thenReturn(Arrays.asList(
+      count("B", 100, 2), count("A", 300, 1), count("A", 100, 1)));
+    aggregates.rebuild();
+
+    val statistics = aggregates.statistics();
+    assertThat(statistics, hasSize(2));
+    assertThat(statistics.get(0), is(new DepartmentStatistics("A", 2, 100, 300, 400L, 200.0)));
+    assertThat(statistics.get(1), is(new DepartmentStatistics("B", 2, 100, 100, 200L, 100.0)));
+  }
+
+  private static EmployeeRepository.DepartmentSalaryCount count(String department, Integer salary, long headcount) {
+    return new EmployeeRepository.DepartmentSalaryCount() {
+      @Override
+      public String getDepartment() {
+        return department;
+      }
+
+      @Override
+      public Integer getSalary() {
+        return salary;
+      }
+
+      @Override
+      public Long getHeadcount() {
+        return headcount;
+      }
+    };
+  }
+}
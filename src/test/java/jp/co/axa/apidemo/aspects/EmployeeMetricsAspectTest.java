@@ -0,0 +1,65 @@
+package jp.co.axa.apidemo.aspects;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.EmployeeService;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.Optional;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class EmployeeMetricsAspectTest {
+  @Mock
+  private EmployeeService employeeService;
+  @Mock
+  private EmployeeRepository employeeRepository;
+
+  private SimpleMeterRegistry registry;
+
+  @Before
+  public void before() {
+    MockitoAnnotations.initMocks(this);
+    this.registry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  public void testServiceErrorCounter() {
+    when(employeeService.deleteEmployee(ArgumentMatchers.anyLong()))
+      .thenReturn(Either.left(CRUDErrorStatus.VERSION_CONFLICT), Either.right(null));
+    val service = this.proxy(employeeService);
+    service.deleteEmployee(1L);
+    service.deleteEmployee(1L);
+    assertThat(registry.get(EmployeeMetricsAspect.SERVICE_ERRORS)
+      .tags("operation", "deleteEmployee", "status", "VERSION_CONFLICT").counter().count(), is(1.0));
+    assertThat(registry.get(EmployeeMetricsAspect.SERVICE_ERRORS)
+      .tags("operation", "deleteEmployee", "status", "UNKNOWN_FAILURE").counter().count(), is(0.0));
+  }
+
+  @Test
+  public void testRepositoryTimer() {
+    when(employeeRepository.findById(1L)).thenReturn(Optional.of(new EmployeeEntity(1L, "Chikama", 1000, "Dept")));
+    val repository = this.proxy(employeeRepository);
+    repository.findById(1L);
+    repository.findById(1L);
+    assertThat(registry.get(EmployeeMetricsAspect.REPOSITORY_TIMER).tag("method", "findById").timer().count(),
+      is(2L));
+  }
+
+  private <T> T proxy(T target) {
+    val factory = new AspectJProxyFactory(target);
+    factory.addAspect(new EmployeeMetricsAspect(registry));
+    return factory.getProxy();
+  }
+}
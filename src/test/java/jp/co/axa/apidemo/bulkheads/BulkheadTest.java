@@ -0,0 +1,88 @@
+package jp.co.axa.apidemo.bulkheads;
+
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BulkheadTest {
+
+  private ScheduledThreadPoolExecutor timer;
+  private CountDownLatch release;
+
+  @Before
+  public void before() {
+    this.timer = new ScheduledThreadPoolExecutor(1);
+    this.release = new CountDownLatch(1);
+  }
+
+  @After
+  public void after() {
+    release.countDown();
+    timer.shutdown();
+  }
+
+  @Test
+  public void testSubmit() throws Exception {
+    val bulkhead = new Bulkhead("test", 1, 1, Duration.ofSeconds(10), timer);
+    assertThat(bulkhead.submit(() -> "done").get(), is("done"));
+    bulkhead.shutdown();
+  }
+
+  @Test
+  public void testRejectedWhenFull() {
+    val bulkhead = new Bulkhead("test", 1, 1, Duration.ofSeconds(10), timer);
+    bulkhead.submit(this::block);
+    bulkhead.submit(this::block);
+    assertThat(statusOf(bulkhead.submit(() -> "rejected")), is(HttpStatus.SERVICE_UNAVAILABLE));
+    bulkhead.shutdown();
+  }
+
+  @Test
+  public void testTimeoutSkipsQueuedTask() throws Exception {
+    val bulkhead = new Bulkhead("test", 1, 2, Duration.ofMillis(100), timer);
+    bulkhead.submit(this::block);
+    val started = new AtomicBoolean();
+    val queued = bulkhead.submit(() -> started.getAndSet(true));
+    assertThat(statusOf(queued), is(HttpStatus.GATEWAY_TIMEOUT));
+    release.countDown();
+    // The queued task is taken after the blocking one, and must be skipped.
+    bulkhead.submit(() -> "after").get();
+    assertThat(started.get(), is(false));
+    bulkhead.shutdown();
+  }
+
+  private String block() {
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return "released";
+  }
+
+  private static HttpStatus statusOf(CompletableFuture<?> future) {
+    try {
+      future.get();
+      fail("Must fail");
+      return null;
+    } catch (ExecutionException e) {
+      return ((ResponseStatusException) e.getCause()).getStatus();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package jp.co.axa.apidemo.caches;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jp.co.axa.apidemo.entities.EmployeeMatchers.sameEmployeeAs;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class EmployeeCacheTest {
+  private static final EmployeeEntity TEST_EMPLOYEE = new EmployeeEntity(1L, "Chiakma", 1000, "Some Dept");
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+  private EmployeeCache cache;
+
+  @Before
+  public void before() {
+    this.cache = new EmployeeCache(10, Duration.ofMinutes(5), Duration.ofSeconds(5), nanos::get);
+  }
+
+  private Optional<EmployeeEntity> load(Long id) {
+    loads.incrementAndGet();
+    return id.equals(TEST_EMPLOYEE.getId()) ? Optional.of(TEST_EMPLOYEE) : Optional.empty();
+  }
+
+  @Test
+  public void testHitAndMiss() {
+    val first = cache.get(1L, this::load);
+    val second = cache.get(1L, this::load);
+    assertThat(first.get(), is(sameEmployeeAs(TEST_EMPLOYEE)));
+    assertThat(first.get(), is(not(sameInstance(TEST_EMPLOYEE))));
+    assertThat(second.get(), is(sameInstance(first.get())));
+    assertThat(loads.get(), is(1));
+    assertThat(cache.stats().hitCount(), is(1L));
+    assertThat(cache.stats().missCount(), is(1L));
+  }
+
+  @Test
+  public void testNegativeEntryExpiresEarlier() {
+    cache.get(1L, this::load);
+    cache.get(2L, this::load);
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    cache.get(1L, this::load);
+    cache.get(2L, this::load);
+    assertThat(loads.get(), is(3));
+  }
+
+  @Test
+  public void testPutAndInvalidate() {
+    cache.put(TEST_EMPLOYEE.withSalary(2000));
+    assertThat(cache.get(1L, this::load).get().getSalary(), is(2000));
+    cache.invalidate(1L);
+    assertThat(cache.get(1L, this::load).get().getSalary(), is(1000));
+    assertThat(loads.get(), is(1));
+  }
+
+  @Test
+  public void testWriteWhileLoadingIsKept() {
+    val written = TEST_EMPLOYEE.withName("Written").withVersion(1L);
+    val result = cache.get(1L, id -> {
+      // Written after the load read the old state from the DB.
+      cache.put(written);
+      return Optional.of(TEST_EMPLOYEE.withVersion(0L));
+    });
+    assertThat(result.get().getName(), is("Written"));
+    assertThat(cache.get(1L, this::load).get().getName(), is("Written"));
+  }
+
+  @Test
+  public void testInvalidateWhileLoadingIsNotCached() {
+    val result = cache.get(1L, id -> {
+      // Write failed and invalidated the entry after the load read the old state from the DB.
+      cache.invalidate(1L);
+      return Optional.of(TEST_EMPLOYEE.withVersion(0L));
+    });
+    assertThat(result.get(), is(sameEmployeeAs(TEST_EMPLOYEE.withVersion(0L))));
+    // Stale one is not cached, thus loaded again.
+    cache.get(1L, this::load);
+    assertThat(loads.get(), is(1));
+    cache.get(1L, this::load);
+    assertThat(loads.get(), is(1));
+  }
+
+  @Test
+  public void testInvalidateAllWhileLoadingIsNotCached() {
+    cache.get(1L, id -> {
+      cache.invalidateAll();
+      return Optional.of(TEST_EMPLOYEE);
+    });
+    cache.get(1L, this::load);
+    assertThat(loads.get(), is(1));
+  }
+
+  @Test
+  public void testConcurrentInvalidateNeverLeavesStaleEntry() throws Exception {
+    val executor = Executors.newSingleThreadExecutor();
+    try {
+      for (int i = 0; i < 100; i++) {
+        val stale = TEST_EMPLOYEE.withVersion((long) i);
+        val loading = new CountDownLatch(1);
+        val invalidated = new CountDownLatch(1);
+        val reader = executor.submit(() -> cache.get(1L, id -> {
+          loading.countDown();
+          await(invalidated);
+          return Optional.of(stale);
+        }));
+        await(loading);
+        cache.invalidate(1L);
+        invalidated.countDown();
+        reader.get(5, TimeUnit.SECONDS);
+        assertThat(cache.get(1L, id -> Optional.of(TEST_EMPLOYEE.withVersion(-1L))).get().getVersion(), is(-1L));
+        cache.invalidate(1L);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void testGetWithoutFill() {
+    assertThat(cache.getWithoutFill(1L, this::load).get(), is(sameEmployeeAs(TEST_EMPLOYEE)));
+    assertThat(cache.getWithoutFill(1L, this::load).isPresent(), is(true));
+    assertThat(loads.get(), is(2));
+    // Filled ones are still used.
+    cache.put(TEST_EMPLOYEE.withSalary(2000));
+    assertThat(cache.getWithoutFill(1L, this::load).get().getSalary(), is(2000));
+    assertThat(loads.get(), is(2));
+  }
+}
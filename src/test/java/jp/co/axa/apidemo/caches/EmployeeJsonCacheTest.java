@@ -0,0 +1,124 @@
+package jp.co.axa.apidemo.caches;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.repositories.EmployeeField;
+import jp.co.axa.apidemo.repositories.EmployeeProjection;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class EmployeeJsonCacheTest {
+  private static final EmployeeEntity TEST_EMPLOYEE = new EmployeeEntity(1L, "Chiakma \"日本\"", 1000, "Some Dept", 0L);
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private EmployeeJsonCache cache;
+
+  @Before
+  public void before() {
+    this.cache = new EmployeeJsonCache(objectMapper, 10);
+  }
+
+  @Test
+  public void testSameAsSerializingEntity() throws Exception {
+    val other = new EmployeeEntity(2L, "No Dept", null, null, 3L);
+    val expected = objectMapper.writeValueAsString(Collections.singletonMap("fetched",
+      Arrays.asList(TEST_EMPLOYEE, other)));
+    // Second time from the cache.
+    for (int i = 0; i < 2; i++) {
+      val actual = objectMapper.writeValueAsString(Collections.singletonMap("fetched",
+        Arrays.asList(cache.fragmentOf(TEST_EMPLOYEE), cache.fragmentOf(other))));
+      assertThat(actual, is(expected));
+    }
+  }
+
+  @Test
+  public void testReusedWhileVersionMatches() throws Exception {
+    val first = cache.bytesOf(TEST_EMPLOYEE);
+    assertThat(cache.bytesOf(TEST_EMPLOYEE.copy()), is(sameInstance(first)));
+
+    val updated = TEST_EMPLOYEE.withName("Updated").withVersion(1L);
+    val second = cache.bytesOf(updated);
+    assertThat(second, is(not(sameInstance(first))));
+    assertThat(second.getValue(), is(objectMapper.writeValueAsString(updated)));
+    // Late reader of the old version does not replace the new one.
+    cache.bytesOf(TEST_EMPLOYEE);
+    assertThat(cache.bytesOf(updated), is(sameInstance(second)));
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    val first = cache.bytesOf(TEST_EMPLOYEE);
+    cache.invalidate(TEST_EMPLOYEE.getId());
+    cache.invalidate(null);
+    assertThat(cache.bytesOf(TEST_EMPLOYEE), is(not(sameInstance(first))));
+  }
+
+  @Test
+  public void testNotCachedWithoutVersion() throws Exception {
+    val unversioned = TEST_EMPLOYEE.withVersion(null);
+    assertThat(cache.bytesOf(unversioned), is(not(sameInstance(cache.bytesOf(unversioned)))));
+  }
+
+  @Test
+  public void testProjectionSharesEntityCache() throws Exception {
+    val projection = new EmployeeProjection(EmployeeField.ALL, TEST_EMPLOYEE.getId(), TEST_EMPLOYEE.getName(),
+      TEST_EMPLOYEE.getSalary(), TEST_EMPLOYEE.getDepartment(), TEST_EMPLOYEE.getVersion());
+    val first = cache.bytesOf(TEST_EMPLOYEE);
+    assertThat(cache.bytesOf(projection), is(sameInstance(first)));
+    assertThat(objectMapper.writeValueAsString(cache.fragmentOf(projection)),
+      is(objectMapper.writeValueAsString(TEST_EMPLOYEE)));
+
+    val partial = new EmployeeProjection(EnumSet.of(EmployeeField.ID), 1L, null, null, null, null);
+    assertThat(cache.fragmentOf(partial), is(sameInstance(partial)));
+  }
+
+  @Test
+  public void testQuotedAsJsonString() throws Exception {
+    val bytes = cache.bytesOf(TEST_EMPLOYEE);
+    // Content of the string whose value is the JSON of the employee.
+    val quoted = objectMapper.writeValueAsString(bytes.getValue());
+    val expected = quoted.substring(1, quoted.length() - 1);
+    assertThat(new String(bytes.asQuotedChars()), is(expected));
+    assertThat(new String(bytes.asQuotedUTF8(), StandardCharsets.UTF_8), is(expected));
+
+    val buffer = new byte[expected.getBytes(StandardCharsets.UTF_8).length + 1];
+    assertThat(bytes.appendQuotedUTF8(buffer, 2), is(-1));
+    assertThat(bytes.appendQuotedUTF8(buffer, 1), is(buffer.length - 1));
+    assertThat(new String(buffer, 1, buffer.length - 1, StandardCharsets.UTF_8), is(expected));
+
+    val chars = new char[expected.length()];
+    assertThat(bytes.appendQuoted(chars, 0), is(chars.length));
+    assertThat(new String(chars), is(expected));
+
+    val out = new ByteArrayOutputStream();
+    assertThat(bytes.writeQuotedUTF8(out), is(out.size()));
+    assertThat(out.toString("UTF-8"), is(expected));
+
+    val byteBuffer = ByteBuffer.allocate(buffer.length - 1);
+    assertThat(bytes.putQuotedUTF8(byteBuffer), is(byteBuffer.capacity()));
+    assertThat(bytes.putQuotedUTF8(byteBuffer), is(-1));
+  }
+
+  @Test
+  public void testBinaryFormatSerializesEntity() throws Exception {
+    val cborMapper = new ObjectMapper(new CBORFactory());
+    // Cached JSON is not mixed into the binary format.
+    cache.bytesOf(TEST_EMPLOYEE);
+    assertThat(cborMapper.writeValueAsBytes(Collections.singletonMap("fetched", cache.fragmentOf(TEST_EMPLOYEE))),
+      is(cborMapper.writeValueAsBytes(Collections.singletonMap("fetched", TEST_EMPLOYEE))));
+  }
+}
@@ -0,0 +1,94 @@
+package jp.co.axa.apidemo.coalescing;
+
+import lombok.val;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(8);
+  private final SingleFlight<String, Integer> flight = new SingleFlight<>(4);
+
+  @After
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentCallsShareOneLoad() throws Exception {
+    val loads = new AtomicInteger();
+    val started = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+    val leader = executor.submit(() -> flight.execute("hot", () -> {
+      started.countDown();
+      await(release);
+      return loads.incrementAndGet();
+    }));
+    started.await();
+    val followers = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < 5; i++) {
+      followers.add(executor.submit(() -> flight.execute("hot", loads::incrementAndGet)));
+    }
+    // Other keys are not blocked by the load in flight.
+    assertThat(flight.execute("cold", () -> 10), is(10));
+    while (flight.getCoalescedCount() < followers.size()) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    assertThat(leader.get(5, TimeUnit.SECONDS), is(1));
+    for (Future<Integer> follower : followers) {
+      assertThat(follower.get(5, TimeUnit.SECONDS), is(1));
+    }
+    assertThat(flight.getLoadCount(), is(2L));
+    // Key is forgotten after the load, thus the next call loads again.
+    assertThat(flight.execute("hot", loads::incrementAndGet), is(2));
+  }
+
+  @Test
+  public void testFailureIsSharedAndForgotten() throws Exception {
+    val started = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+    val leader = executor.submit(() -> flight.execute("key", () -> {
+      started.countDown();
+      await(release);
+      throw new IllegalStateException("DB is down");
+    }));
+    started.await();
+    val follower = executor.submit(() -> flight.execute("key", () -> 1));
+    while (flight.getCoalescedCount() < 1) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    for (Future<Integer> future : Arrays.asList(leader, follower)) {
+      try {
+        future.get(5, TimeUnit.SECONDS);
+        fail();
+      } catch (ExecutionException e) {
+        assertThat(e.getCause() instanceof IllegalStateException, is(true));
+      }
+    }
+    assertThat(flight.execute("key", () -> 2), is(2));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
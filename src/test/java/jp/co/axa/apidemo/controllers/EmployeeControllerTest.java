@@ -0,0 +1,250 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.formats.BinaryFormatConfiguration;
+import jp.co.axa.apidemo.services.EmployeeService;
+import lombok.val;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Employee API through Spring MVC, with the in-memory DB.<br/>
+ * Handlers return the futures, thus each request is dispatched again once the future is completed.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class EmployeeControllerTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * Real service unless stubbed in the test.
+   */
+  @SpyBean
+  private EmployeeService employeeService;
+
+  /**
+   * Perform the request, and wait for the future of the handler if any.
+   */
+  private MvcResult perform(RequestBuilder request) throws Exception {
+    val result = mvc.perform(request).andReturn();
+    if (!result.getRequest().isAsyncStarted()) {
+      return result;
+    }
+    return mvc.perform(asyncDispatch(result)).andReturn();
+  }
+
+  private long create(String name) throws Exception {
+    val result = this.perform(post("/api/v1/employees").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"name\":\"" + name + "\",\"salary\":1000,\"department\":\"Some Dept\"}"));
+    assertThat(result.getResponse().getStatus(), is(201));
+    return objectMapper.readTree(result.getResponse().getContentAsByteArray()).path("result").path("created")
+      .path("id").asLong();
+  }
+
+  /**
+   * Content-Type of the response without the parameters, e.g. the charset.
+   */
+  private static String typeOf(MockHttpServletResponse response) {
+    val type = MediaType.parseMediaType(response.getContentType());
+    return type.getType() + "/" + type.getSubtype();
+  }
+
+  /**
+   * Assert the error response, which has the same fields as the error page of Spring Boot.
+   */
+  private void assertError(MockHttpServletResponse response, int status, String message) throws Exception {
+    assertThat(response.getStatus(), is(status));
+    assertThat(typeOf(response), is(MediaType.APPLICATION_JSON_VALUE));
+    val body = objectMapper.readTree(response.getContentAsByteArray());
+    assertThat(body.path("status").asInt(), is(status));
+    assertThat(body.path("error").asText(), is(HttpStatus.valueOf(status).getReasonPhrase()));
+    assertThat(body.path("message").asText(), is(message));
+  }
+
+  @Test
+  public void testBadRequest() throws Exception {
+    this.assertError(this.perform(get("/api/v1/employees").param("pageSize", "0")).getResponse(), 400,
+      "Page size must be between 1 and 1000");
+    this.assertError(this.perform(get("/api/v1/employees").param("minSalary", "2").param("maxSalary", "1"))
+      .getResponse(), 400, "minSalary must not be larger than maxSalary.");
+    this.assertError(this.perform(get("/api/v1/employees/-1")).getResponse(), 400, "employee ID is not correct");
+  }
+
+  @Test
+  public void testNotFound() throws Exception {
+    this.assertError(this.perform(get("/api/v1/employees/" + Long.MAX_VALUE)).getResponse(), 404,
+      "Employee with the given ID not exists.");
+  }
+
+  @Test
+  public void testVersionConflict() throws Exception {
+    val id = this.create("Chiakma");
+    this.assertError(this.perform(put("/api/v1/employees/" + id).contentType(MediaType.APPLICATION_JSON)
+        .content("{\"name\":\"Updated\",\"salary\":2000,\"department\":\"Some Dept\",\"version\":5}"))
+      .getResponse(), 409, "Target entity has been modified by another request.");
+  }
+
+  @Test
+  public void testAlreadyExists() throws Exception {
+    val id = this.create("Chiakma");
+    this.assertError(this.perform(post("/api/v1/employees").contentType(MediaType.APPLICATION_JSON)
+        .content("{\"id\":" + id + ",\"name\":\"Chiakma\",\"salary\":1000,\"department\":\"Some Dept\"}"))
+      .getResponse(), 409, "Target entity already exists.");
+  }
+
+  @Test
+  public void testServerError() throws Exception {
+    doReturn(Either.left(CRUDErrorStatus.UNKNOWN_FAILURE)).when(employeeService).saveEmployee(any());
+    this.assertError(this.perform(post("/api/v1/employees").contentType(MediaType.APPLICATION_JSON)
+        .content("{\"name\":\"Chiakma\",\"salary\":1000,\"department\":\"Some Dept\"}")).getResponse(), 500,
+      "Unknown Error occurred in the server.");
+  }
+
+  @Test
+  public void testBatchUpdatingSameEmployeeTwice() throws Exception {
+    val id = this.create("Chiakma");
+    val update = "{\"type\":\"UPDATE\",\"id\":" + id + ",\"employee\":{\"name\":\"%s\",\"salary\":%d,"
+      + "\"department\":\"Some Dept\"}}";
+    val response = this.perform(post("/api/v1/employees:batch").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"operations\":[" + String.format(update, "First", 2000) + "," + String.format(update, "Second", 3000)
+        + "]}")).getResponse();
+    assertThat(response.getStatus(), is(200));
+    // Each update increments the version once, and has its own result.
+    val employee = this.perform(get("/api/v1/employees/" + id)).getResponse();
+    assertThat(employee.getHeader(HttpHeaders.ETAG), is("\"" + id + ".2\""));
+    assertThat(objectMapper.readTree(employee.getContentAsByteArray()).path("result").path("fetched").path("name")
+      .asText(), is("Second"));
+    // Same version as in the DB.
+    val updated = this.perform(put("/api/v1/employees/" + id).contentType(MediaType.APPLICATION_JSON)
+      .content("{\"name\":\"Third\",\"salary\":4000,\"department\":\"Some Dept\",\"version\":2}")).getResponse();
+    assertThat(updated.getStatus(), is(200));
+  }
+
+  @Test
+  public void testExport() throws Exception {
+    this.create("Exported");
+    val response = this.perform(get("/api/v1/employees:export")).getResponse();
+    assertThat(response.getStatus(), is(200));
+    val lines = response.getContentAsString().split("\n");
+    assertThat(objectMapper.readTree(lines[lines.length - 1]).path("name").asText(), is("Exported"));
+  }
+
+  @Test
+  public void testExportErrorBody() throws Exception {
+    doReturn(Either.left(CRUDErrorStatus.UNKNOWN_FAILURE)).when(employeeService).exportEmployees(any());
+    this.assertError(this.perform(get("/api/v1/employees:export")).getResponse(), 500,
+      "Unknown Error occurred in the server.");
+  }
+
+  @Test
+  public void testEmployeeNotModified() throws Exception {
+    val id = this.create("Chiakma");
+    val first = this.perform(get("/api/v1/employees/" + id)).getResponse();
+    assertThat(first.getStatus(), is(200));
+    val etag = first.getHeader(HttpHeaders.ETAG);
+    assertThat(etag, is("\"" + id + ".0\""));
+
+    val notModified = this.perform(get("/api/v1/employees/" + id).header(HttpHeaders.IF_NONE_MATCH, etag))
+      .getResponse();
+    assertThat(notModified.getStatus(), is(304));
+    assertThat(notModified.getContentAsByteArray().length, is(0));
+    assertThat(notModified.getHeader(HttpHeaders.VARY), is(HttpHeaders.ACCEPT));
+
+    this.perform(put("/api/v1/employees/" + id).contentType(MediaType.APPLICATION_JSON)
+      .content("{\"name\":\"Updated\",\"salary\":2000,\"department\":\"Some Dept\"}"));
+    val modified = this.perform(get("/api/v1/employees/" + id).header(HttpHeaders.IF_NONE_MATCH, etag))
+      .getResponse();
+    assertThat(modified.getStatus(), is(200));
+    assertThat(modified.getHeader(HttpHeaders.ETAG), is("\"" + id + ".1\""));
+    assertThat(objectMapper.readTree(modified.getContentAsByteArray()).path("result").path("fetched").path("name")
+      .asText(), is("Updated"));
+  }
+
+  @Test
+  public void testListNotModifiedUntilWrite() throws Exception {
+    this.create("Chiakma");
+    val first = this.perform(get("/api/v1/employees")).getResponse();
+    assertThat(first.getStatus(), is(200));
+    val etag = first.getHeader(HttpHeaders.ETAG);
+
+    val notModified = this.perform(get("/api/v1/employees").header(HttpHeaders.IF_NONE_MATCH, etag)).getResponse();
+    assertThat(notModified.getStatus(), is(304));
+    assertThat(notModified.getContentAsByteArray().length, is(0));
+    // Caches keep the formats apart for the same ETag.
+    assertThat(notModified.getHeader(HttpHeaders.VARY), is(HttpHeaders.ACCEPT));
+
+    // Any write bumps the modification sequence.
+    this.create("Sohei");
+    val modified = this.perform(get("/api/v1/employees").header(HttpHeaders.IF_NONE_MATCH, etag)).getResponse();
+    assertThat(modified.getStatus(), is(200));
+    assertThat(modified.getHeader(HttpHeaders.ETAG), is(not(etag)));
+  }
+
+  @Test
+  public void testCborResponse() throws Exception {
+    val cborMapper = new ObjectMapper(new CBORFactory());
+    val id = this.create("Chiakma CBOR");
+    // Employee is written from the cached JSON first, and the CBOR must not be mixed with it.
+    this.perform(get("/api/v1/employees/" + id));
+    val employee = this.perform(get("/api/v1/employees/" + id).accept(BinaryFormatConfiguration.CBOR_VALUE))
+      .getResponse();
+    assertThat(employee.getStatus(), is(200));
+    assertThat(typeOf(employee), is(BinaryFormatConfiguration.CBOR_VALUE));
+    assertThat(employee.getHeader(HttpHeaders.VARY), is(HttpHeaders.ACCEPT));
+    assertThat(cborMapper.readTree(employee.getContentAsByteArray()).path("result").path("fetched").path("name")
+      .asText(), is("Chiakma CBOR"));
+
+    val list = this.perform(get("/api/v1/employees").accept(BinaryFormatConfiguration.CBOR_VALUE)).getResponse();
+    assertThat(list.getStatus(), is(200));
+    assertThat(typeOf(list), is(BinaryFormatConfiguration.CBOR_VALUE));
+    val fetched = cborMapper.readTree(list.getContentAsByteArray()).path("result").path("fetched");
+    assertThat(fetched.isArray(), is(true));
+    assertThat(fetched.get(fetched.size() - 1).path("id").asLong(), is(id));
+  }
+
+  @Test
+  public void testSmileRequest() throws Exception {
+    val smileMapper = new ObjectMapper(new SmileFactory());
+    val body = smileMapper.writeValueAsBytes(new EmployeeEntity(null, "Smile", 3000, "Some Dept"));
+    val response = this.perform(post("/api/v1/employees").contentType(BinaryFormatConfiguration.SMILE_VALUE)
+      .accept(BinaryFormatConfiguration.SMILE_VALUE).content(body)).getResponse();
+    assertThat(response.getStatus(), is(201));
+    assertThat(typeOf(response), is(BinaryFormatConfiguration.SMILE_VALUE));
+    val created = smileMapper.readTree(response.getContentAsByteArray()).path("result").path("created");
+    assertThat(created.path("name").asText(), is("Smile"));
+    assertThat(created.path("salary").asInt(), is(3000));
+  }
+}
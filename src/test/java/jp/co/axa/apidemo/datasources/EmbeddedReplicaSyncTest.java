@@ -0,0 +1,85 @@
+package jp.co.axa.apidemo.datasources;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.services.EmployeeChangeLog;
+import jp.co.axa.apidemo.services.EmployeeService;
+import jp.co.axa.apidemo.services.EmployeeService.EmployeeChanges;
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class EmbeddedReplicaSyncTest {
+
+  @Mock
+  private EmployeeService employeeService;
+  @Mock
+  private EmployeeChangeLog changeLog;
+
+  private EmbeddedDatabase primary;
+  private EmbeddedDatabase replica;
+  private EmbeddedReplicaSync sync;
+
+  @Before
+  public void before() {
+    MockitoAnnotations.initMocks(this);
+    this.primary = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("sync-primary").build();
+    this.replica = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("sync-replica").build();
+    val jdbcTemplate = new JdbcTemplate(primary);
+    jdbcTemplate.execute("CREATE TABLE EMPLOYEE (ID BIGINT PRIMARY KEY, EMPLOYEE_NAME VARCHAR(255), "
+      + "EMPLOYEE_SALARY INT, DEPARTMENT VARCHAR(255), VERSION BIGINT)");
+    jdbcTemplate.update("INSERT INTO EMPLOYEE VALUES (1, 'Chiakma', 1000, 'Some Dept', 0)");
+    jdbcTemplate.update("INSERT INTO EMPLOYEE VALUES (2, 'Chiakma 2', 1500, 'Some Dept 2', 0)");
+    // Sync is driven by the test, not by the scheduler.
+    this.sync = new EmbeddedReplicaSync(new ReplicaRoutingDataSource(primary, Collections.singletonList(replica)),
+      employeeService, changeLog, Duration.ofHours(1), 1);
+  }
+
+  @After
+  public void after() {
+    sync.destroy();
+    primary.shutdown();
+    replica.shutdown();
+  }
+
+  @Test
+  public void testCopyThenFollowChanges() {
+    when(changeLog.getStableSequence()).thenReturn(5L);
+    sync.start();
+    val replicaTemplate = new JdbcTemplate(replica);
+    assertThat(replicaTemplate.queryForObject("SELECT COUNT(*) FROM EMPLOYEE", Integer.class), is(2));
+
+    when(employeeService.retrieveChanges(5L, 1)).thenReturn(Either.right(new EmployeeChanges(
+      Collections.singletonList(new EmployeeEntity(1L, "Chiakma", 2000, "Some Dept", 1L)), Collections.emptyList(),
+      6L, true)));
+    when(employeeService.retrieveChanges(6L, 1)).thenReturn(Either.right(new EmployeeChanges(
+      Collections.singletonList(new EmployeeEntity(3L, "Chiakma 3", 500, "Some Dept", 0L)),
+      Collections.singletonList(2L), 8L, false)));
+    sync.syncAll();
+    assertThat(replicaTemplate.queryForList("SELECT ID FROM EMPLOYEE ORDER BY ID", Long.class),
+      is(Arrays.asList(1L, 3L)));
+    assertThat(replicaTemplate.queryForObject("SELECT EMPLOYEE_SALARY FROM EMPLOYEE WHERE ID = 1", Integer.class),
+      is(2000));
+
+    // Nothing changed since 8.
+    when(employeeService.retrieveChanges(8L, 1)).thenReturn(Either.right(new EmployeeChanges(
+      Collections.emptyList(), Collections.emptyList(), 8L, false)));
+    sync.syncAll();
+    assertThat(replicaTemplate.queryForObject("SELECT COUNT(*) FROM EMPLOYEE", Integer.class), is(2));
+  }
+}
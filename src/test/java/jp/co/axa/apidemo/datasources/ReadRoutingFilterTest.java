@@ -0,0 +1,64 @@
+package jp.co.axa.apidemo.datasources;
+
+import lombok.val;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ReadRoutingFilterTest {
+
+  private static final String PROXY = "10.0.0.1";
+
+  private final ReadRoutingFilter filter = new ReadRoutingFilter("X-Client-Id", new String[]{PROXY},
+    Duration.ofMinutes(1), 16);
+
+  private static MockHttpServletRequest request(String method, String uri, String client) {
+    val request = new MockHttpServletRequest(method, uri);
+    request.setRemoteAddr(PROXY);
+    request.addHeader("X-Client-Id", client);
+    return request;
+  }
+
+  /**
+   * @return whether the request was allowed to read from the replicas.
+   */
+  private boolean filter(MockHttpServletRequest request) throws Exception {
+    val allowed = new AtomicBoolean();
+    filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> allowed.set(ReadRoute.isReplicaAllowed()));
+    assertThat(ReadRoute.isReplicaAllowed(), is(false));
+    return allowed.get();
+  }
+
+  @Test
+  public void testReadYourWrites() throws Exception {
+    assertThat(filter(request("GET", "/api/v1/employees/1", "a")), is(true));
+    assertThat(filter(request("PUT", "/api/v1/employees/1", "a")), is(false));
+    assertThat(filter(request("GET", "/api/v1/employees/1", "a")), is(false));
+    assertThat(filter(request("GET", "/api/v1/employees", "b")), is(true));
+  }
+
+  @Test
+  public void testClientHeaderOnlyFromTrustedProxies() throws Exception {
+    // Address is hashed into another stripe than "a" and "b".
+    val write = request("PUT", "/api/v1/employees/1", "a");
+    write.setRemoteAddr("192.168.0.2");
+    assertThat(filter(write), is(false));
+    // Header from the untrusted address was not the client, which is the address itself.
+    assertThat(filter(request("GET", "/api/v1/employees/1", "a")), is(true));
+    val read = request("GET", "/api/v1/employees/1", "b");
+    read.setRemoteAddr("192.168.0.2");
+    assertThat(filter(read), is(false));
+  }
+
+  @Test
+  public void testChangesFromPrimary() throws Exception {
+    assertThat(filter(request("GET", "/api/v1/employees:changes", "a")), is(false));
+    assertThat(filter(request("GET", "/api/v1/employees:export", "a")), is(true));
+  }
+}
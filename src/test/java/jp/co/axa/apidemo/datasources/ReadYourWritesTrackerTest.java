@@ -0,0 +1,43 @@
+package jp.co.axa.apidemo.datasources;
+
+import lombok.val;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ReadYourWritesTrackerTest {
+
+  private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+  @Test
+  public void testRecentWriterUntilWindowPasses() {
+    val tracker = new ReadYourWritesTracker(Duration.ofSeconds(5), 16, now::get);
+    assertThat(tracker.isRecentWriter("a"), is(false));
+    tracker.recordWrite("a");
+    assertThat(tracker.isRecentWriter("a"), is(true));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+    assertThat(tracker.isRecentWriter("a"), is(true));
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertThat(tracker.isRecentWriter("a"), is(false));
+  }
+
+  @Test
+  public void testWindowExtendedByLaterWrite() {
+    val tracker = new ReadYourWritesTracker(Duration.ofSeconds(5), 1, now::get);
+    tracker.recordWrite("a");
+    now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+    tracker.recordWrite("a");
+    now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+    assertThat(tracker.isRecentWriter("a"), is(true));
+    // Only one stripe, thus shared with the writer.
+    assertThat(tracker.isRecentWriter("b"), is(true));
+    now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    assertThat(tracker.isRecentWriter("a"), is(false));
+  }
+}
@@ -0,0 +1,102 @@
+package jp.co.axa.apidemo.datasources;
+
+import jp.co.axa.apidemo.bulkheads.Bulkhead;
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ReplicaRoutingDataSourceTest {
+
+  private EmbeddedDatabase primary;
+  private EmbeddedDatabase replica1;
+  private EmbeddedDatabase replica2;
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate readOnly;
+  private TransactionTemplate readWrite;
+
+  /**
+   * Each embedded H2 DB knows which one it is.
+   */
+  private static EmbeddedDatabase newDatabase(String name) {
+    val database = new EmbeddedDatabaseBuilder()
+      .setType(EmbeddedDatabaseType.H2)
+      .setName(name)
+      .build();
+    val jdbcTemplate = new JdbcTemplate(database);
+    jdbcTemplate.execute("CREATE TABLE NODE (NAME VARCHAR(16))");
+    jdbcTemplate.update("INSERT INTO NODE VALUES (?)", name);
+    return database;
+  }
+
+  @Before
+  public void before() {
+    this.primary = newDatabase("primary");
+    this.replica1 = newDatabase("replica1");
+    this.replica2 = newDatabase("replica2");
+    val dataSource = new LazyConnectionDataSourceProxy(
+      new ReplicaRoutingDataSource(primary, Arrays.asList(replica1, replica2)));
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    val transactionManager = new DataSourceTransactionManager(dataSource);
+    this.readOnly = new TransactionTemplate(transactionManager);
+    this.readOnly.setReadOnly(true);
+    this.readWrite = new TransactionTemplate(transactionManager);
+  }
+
+  @After
+  public void after() {
+    ReadRoute.clear();
+    primary.shutdown();
+    replica1.shutdown();
+    replica2.shutdown();
+  }
+
+  private String node() {
+    return jdbcTemplate.queryForObject("SELECT NAME FROM NODE", String.class);
+  }
+
+  @Test
+  public void testPrimaryUnlessAllowed() {
+    assertThat(node(), is("primary"));
+    assertThat(readOnly.execute(status -> node()), is("primary"));
+  }
+
+  @Test
+  public void testReadsGoToReplicasInTurn() {
+    ReadRoute.set(true);
+    assertThat(node(), is("replica1"));
+    assertThat(readOnly.execute(status -> node()), is("replica2"));
+    assertThat(readOnly.execute(status -> node()), is("replica1"));
+    // Transaction which may write.
+    assertThat(readWrite.execute(status -> node()), is("primary"));
+  }
+
+  @Test
+  public void testRouteCarriedToBulkhead() throws Exception {
+    val timer = new ScheduledThreadPoolExecutor(1);
+    val bulkhead = new Bulkhead("test", 1, 1, Duration.ofSeconds(10), timer, ReadRoute.PROPAGATION);
+    try {
+      ReadRoute.set(true);
+      assertThat(bulkhead.submit(this::node).get(5, TimeUnit.SECONDS), is("replica1"));
+      ReadRoute.clear();
+      assertThat(bulkhead.submit(this::node).get(5, TimeUnit.SECONDS), is("primary"));
+    } finally {
+      timer.shutdown();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package jp.co.axa.apidemo.entities;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeMatcher;
+
+import java.util.Objects;
+
+/**
+ * Matchers of the employees by the properties, since EmployeeEntity does not implement equals.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class EmployeeMatchers {
+
+  /**
+   * @return matcher of the employee which has the same properties as the expected one.
+   */
+  public static Matcher<EmployeeEntity> sameEmployeeAs(EmployeeEntity expected) {
+    return new TypeSafeMatcher<EmployeeEntity>() {
+      @Override
+      protected boolean matchesSafely(EmployeeEntity actual) {
+        return Objects.equals(actual.getId(), expected.getId())
+          && Objects.equals(actual.getName(), expected.getName())
+          && Objects.equals(actual.getSalary(), expected.getSalary())
+          && Objects.equals(actual.getDepartment(), expected.getDepartment())
+          && Objects.equals(actual.getVersion(), expected.getVersion());
+      }
+
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("employee ").appendValue(describe(expected));
+      }
+
+      @Override
+      protected void describeMismatchSafely(EmployeeEntity actual, Description description) {
+        description.appendText("was ").appendValue(describe(actual));
+      }
+    };
+  }
+
+  private static String describe(EmployeeEntity employee) {
+    return "{id=" + employee.getId() + ", name=" + employee.getName() + ", salary=" + employee.getSalary()
+      + ", department=" + employee.getDepartment() + ", version=" + employee.getVersion() + "}";
+  }
+}
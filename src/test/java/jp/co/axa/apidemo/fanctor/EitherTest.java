@@ -0,0 +1,60 @@
+package jp.co.axa.apidemo.fanctor;
+
+import lombok.val;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class EitherTest {
+  @Test
+  public void testLeft() {
+    Either<String, Integer> either = Either.left("error");
+    assertThat(either.isLeft(), is(true));
+    assertThat(either.isRight(), is(false));
+    assertThat(either.getLeft(), is("error"));
+    assertThat(either.getRight(), is(nullValue()));
+    assertThat(either.mapLeft(String::length).getLeft(), is(5));
+    assertThat(either.mapRight(i -> i + 1).getLeft(), is("error"));
+    assertThat(either.map(l -> "left", r -> "right"), is("left"));
+  }
+
+  @Test
+  public void testRight() {
+    Either<String, Integer> either = Either.right(1);
+    assertThat(either.isRight(), is(true));
+    assertThat(either.getRight(), is(1));
+    assertThat(either.getLeft(), is(nullValue()));
+    assertThat(either.mapRight(i -> i + 1).getRight(), is(2));
+    assertThat(either.mapLeft(String::length).getRight(), is(1));
+    assertThat(either.map(l -> "left", r -> "right"), is("right"));
+  }
+
+  @Test
+  public void testNullRight() {
+    Either<String, Integer> either = Either.right(null);
+    assertThat(either.isRight(), is(true));
+    assertThat(either.getRight(), is(nullValue()));
+    // mapRight and apply pass null to the function, but map does not call it.
+    assertThat(either.mapRight(i -> "mapped").getRight(), is("mapped"));
+    assertThat(either.map(l -> "left", r -> "right"), is(nullValue()));
+    val applied = new AtomicReference<String>("not applied");
+    either.apply(l -> applied.set("left"), r -> applied.set("right"));
+    assertThat(applied.get(), is("right"));
+  }
+
+  @Test
+  public void testLeftMappedToNull() {
+    Either<String, Integer> either = Either.<String, Integer>left("error").mapLeft(l -> null);
+    assertThat(either.isRight(), is(true));
+    assertThat(either.getRight(), is(nullValue()));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullLeft() {
+    Either.left(null);
+  }
+}
@@ -0,0 +1,45 @@
+package jp.co.axa.apidemo.formats;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.val;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class BinaryFormatConfigurationTest {
+  private static final EmployeeEntity TEST_EMPLOYEE = new EmployeeEntity(1L, "Chiakma \"日本\"", 1000, null, 0L);
+
+  private final BinaryFormatConfiguration configuration = new BinaryFormatConfiguration();
+
+  @Test
+  public void testCborRoundTrip() throws Exception {
+    val converter = configuration.cborHttpMessageConverter(new Jackson2ObjectMapperBuilder());
+    val mediaType = MediaType.parseMediaType(BinaryFormatConfiguration.CBOR_VALUE);
+    assertThat(converter.canWrite(EmployeeEntity.class, mediaType), is(true));
+    val output = new MockHttpOutputMessage();
+    converter.write(TEST_EMPLOYEE, mediaType, output);
+    val read = (EmployeeEntity) converter.read(EmployeeEntity.class, new MockHttpInputMessage(output.getBodyAsBytes()));
+    assertThat(read.getName(), is(TEST_EMPLOYEE.getName()));
+    assertThat(read.getDepartment(), is(nullValue()));
+  }
+
+  @Test
+  public void testSmileFollowsBuilder() throws Exception {
+    val builder = new Jackson2ObjectMapperBuilder().serializationInclusion(JsonInclude.Include.NON_NULL);
+    val converter = configuration.smileHttpMessageConverter(builder);
+    val mediaType = MediaType.parseMediaType(BinaryFormatConfiguration.SMILE_VALUE);
+    val output = new MockHttpOutputMessage();
+    converter.write(TEST_EMPLOYEE, mediaType, output);
+    val tree = converter.getObjectMapper().readTree(output.getBodyAsBytes());
+    assertThat(tree.path("name").asText(), is(TEST_EMPLOYEE.getName()));
+    // Same inclusion as the JSON of the builder.
+    assertThat(tree.has("department"), is(false));
+  }
+}
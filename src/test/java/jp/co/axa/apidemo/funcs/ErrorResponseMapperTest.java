@@ -0,0 +1,36 @@
+package jp.co.axa.apidemo.funcs;
+
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import lombok.val;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ErrorResponseMapperTest {
+  @Test
+  public void testMapping() {
+    val notFound = ErrorResponseMapper.MAPPER.apply(CRUDErrorStatus.TARGET_NOT_FOUND);
+    assertThat(notFound.getStatusCode(), is(HttpStatus.NOT_FOUND));
+    val validationFailure = ErrorResponseMapper.MAPPER.apply(CRUDErrorStatus.VALIDATION_FAILURE);
+    assertThat(validationFailure.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+    val conflict = ErrorResponseMapper.MAPPER.apply(CRUDErrorStatus.ALREADY_EXISTS);
+    assertThat(conflict.getStatusCode(), is(HttpStatus.CONFLICT));
+    val versionConflict = ErrorResponseMapper.MAPPER.apply(CRUDErrorStatus.VERSION_CONFLICT);
+    assertThat(versionConflict.getStatusCode(), is(HttpStatus.CONFLICT));
+    val unknown = ErrorResponseMapper.MAPPER.apply(CRUDErrorStatus.UNKNOWN_FAILURE);
+    assertThat(unknown.getStatusCode(), is(HttpStatus.INTERNAL_SERVER_ERROR));
+  }
+
+  @Test
+  public void testBody() {
+    val notFound = ErrorResponseMapper.MAPPER.apply(CRUDErrorStatus.TARGET_NOT_FOUND);
+    assertThat(notFound.getBody().getStatus(), is(404));
+    assertThat(notFound.getBody().getError(), is("Not Found"));
+    assertThat(notFound.getBody().getMessage(), is("Target entity not found"));
+    // Preallocated, thus the same instance every time.
+    assertThat(ErrorResponseMapper.MAPPER.apply(CRUDErrorStatus.TARGET_NOT_FOUND), is(sameInstance(notFound)));
+  }
+}
@@ -0,0 +1,28 @@
+package jp.co.axa.apidemo.funcs;
+
+import lombok.val;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PageTokenCodecTest {
+  @Test
+  public void testRoundTrip() {
+    val token = PageTokenCodec.encode(12345L);
+    assertThat(PageTokenCodec.decode(token).get(), is(12345L));
+  }
+
+  @Test
+  public void testNullCursor() {
+    assertThat(PageTokenCodec.encode(null), is(nullValue()));
+    assertThat(PageTokenCodec.decode(null).isPresent(), is(false));
+  }
+
+  @Test
+  public void testMalformedToken() {
+    assertThat(PageTokenCodec.decode("not a token").isPresent(), is(false));
+    assertThat(PageTokenCodec.decode("AAAA").isPresent(), is(false));
+  }
+}
@@ -0,0 +1,153 @@
+package jp.co.axa.apidemo.imports;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.services.EmployeeService;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static jp.co.axa.apidemo.entities.EmployeeMatchers.sameEmployeeAs;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EmployeeCsvImporterTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Mock
+  private EmployeeService employeeService;
+
+  private final List<EmployeeEntity> imported = Collections.synchronizedList(new ArrayList<>());
+
+  @Before
+  public void before() {
+    MockitoAnnotations.initMocks(this);
+    when(employeeService.importEmployees(ArgumentMatchers.any())).thenAnswer(invocation -> {
+      List<EmployeeEntity> employees = invocation.getArgument(0);
+      if (employees.stream().anyMatch(e -> e.getName().equals("Fail"))) {
+        return Either.left(CRUDErrorStatus.UNKNOWN_FAILURE);
+      }
+      imported.addAll(employees);
+      return Either.right(employees);
+    });
+  }
+
+  private Path write(String content) throws IOException {
+    val csv = folder.newFile().toPath();
+    Files.write(csv, content.getBytes(StandardCharsets.UTF_8));
+    return csv;
+  }
+
+  private List<String> rejectsOf(Path rejectFile) throws IOException {
+    val lines = Files.readAllLines(rejectFile, StandardCharsets.UTF_8);
+    assertThat(lines.get(0), is("line,reason,row"));
+    // Order of the chunks is not kept.
+    return lines.subList(1, lines.size()).stream().sorted().collect(Collectors.toList());
+  }
+
+  @Test
+  public void testImport() throws Exception {
+    val csv = this.write("\uFEFFname,salary,department\r\n"
+      + "Chikama,1000,Some Dept\r\n"
+      + "\r\n"
+      + "Sohei,abc,Some Dept\n"
+      + "\"Name longer than the chunk, with \"\"日本\"\"\",2000,\"Dept, 2\"\n"
+      + "Last,,");
+    val rejects = folder.getRoot().toPath().resolve("rejects.csv");
+    val report = new EmployeeCsvImporter(employeeService, 2, 16, 2, Duration.ZERO).importFile(csv, rejects);
+
+    assertThat(report.getImported(), is(3L));
+    assertThat(report.getRejected(), is(1L));
+    assertThat(report.getBytes(), is(Files.size(csv)));
+    assertThat(imported, containsInAnyOrder(sameEmployeeAs(new EmployeeEntity(null, "Chikama", 1000, "Some Dept")),
+      sameEmployeeAs(new EmployeeEntity(null, "Name longer than the chunk, with \"日本\"", 2000, "Dept, 2")),
+      sameEmployeeAs(new EmployeeEntity(null, "Last", null, null))));
+    assertThat(this.rejectsOf(rejects), is(Collections.singletonList(
+      "4,\"Salary is not an integer.\",\"Sohei,abc,Some Dept\"")));
+  }
+
+  @Test
+  public void testLineNumbersOverManyChunks() throws Exception {
+    val content = new StringBuilder();
+    val expectedRejects = new ArrayList<String>();
+    for (int line = 1; line <= 10000; line++) {
+      if (line % 1000 == 0) {
+        content.append("Rejected,").append(-line).append(",Dept\n");
+        expectedRejects.add(line + ",\"Name is empty or salary is negative.\",\"Rejected," + -line + ",Dept\"");
+      } else {
+        content.append("Employee ").append(line).append(',').append(line).append(",Dept\n");
+      }
+    }
+    val csv = this.write(content.toString());
+    val rejects = folder.getRoot().toPath().resolve("rejects.csv");
+    val report = new EmployeeCsvImporter(employeeService, 4, 256, 100, Duration.ofMillis(1)).importFile(csv, rejects);
+
+    assertThat(report.getImported(), is(9990L));
+    assertThat(report.getRejected(), is(10L));
+    assertThat(imported.stream().mapToLong(EmployeeEntity::getSalary).sum(), is(50005000L - 55000L));
+    assertThat(this.rejectsOf(rejects), is(expectedRejects.stream().sorted().collect(Collectors.toList())));
+  }
+
+  @Test
+  public void testRejectBatchFailedInDb() throws Exception {
+    val csv = this.write("Chikama,1000,Dept\nFail,1000,Dept\n");
+    val rejects = folder.getRoot().toPath().resolve("rejects.csv");
+    val report = new EmployeeCsvImporter(employeeService, 1, 1024, 1, Duration.ZERO).importFile(csv, rejects);
+
+    assertThat(report.getImported(), is(1L));
+    assertThat(report.getRejected(), is(1L));
+    assertThat(this.rejectsOf(rejects), is(Arrays.asList(
+      "2,\"Failed to write into the DB: UNKNOWN_FAILURE\",\"Fail,1000,Dept\"")));
+  }
+
+  @Test(timeout = 10000)
+  public void testParserFailed() throws Exception {
+    val content = new StringBuilder();
+    for (int line = 1; line <= 1000; line++) {
+      content.append("Employee ").append(line).append(',').append(line).append(",Dept\n");
+    }
+    val csv = this.write(content.toString());
+    val importer = spy(new EmployeeCsvImporter(employeeService, 2, 64, 10, Duration.ZERO));
+    val failure = new IllegalStateException("Parser failed.");
+    doThrow(failure).when(importer).parse(ArgumentMatchers.any(EmployeeCsvImporter.Chunk.class));
+    try {
+      // Reader would wait forever for the parsers if the failure were ignored.
+      importer.importFile(csv, folder.getRoot().toPath().resolve("rejects.csv"));
+      fail("Import must fail.");
+    } catch (IOException e) {
+      assertThat(e.getCause(), is(failure));
+    }
+    verify(employeeService, never()).importEmployees(ArgumentMatchers.any());
+  }
+
+  @Test(expected = IOException.class)
+  public void testFileNotFound() throws Exception {
+    new EmployeeCsvImporter(employeeService, 1, 1024, 1, Duration.ZERO)
+      .importFile(folder.getRoot().toPath().resolve("none.csv"), folder.getRoot().toPath().resolve("rejects.csv"));
+  }
+}
@@ -0,0 +1,47 @@
+package jp.co.axa.apidemo.imports;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static jp.co.axa.apidemo.entities.EmployeeMatchers.sameEmployeeAs;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class EmployeeCsvParserTest {
+
+  @Test
+  public void testParse() {
+    val result = EmployeeCsvParser.parse("Chikama,1000,Some Dept");
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight(), is(sameEmployeeAs(new EmployeeEntity(null, "Chikama", 1000, "Some Dept"))));
+  }
+
+  @Test
+  public void testParseQuotedAndEmptyFields() {
+    val result = EmployeeCsvParser.parse("\"Sohei, \"\"C\"\"\", 20 ,");
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight().getName(), is("Sohei, \"C\""));
+    assertThat(result.getRight().getSalary(), is(20));
+    assertThat(result.getRight().getDepartment(), is(nullValue()));
+    assertThat(EmployeeCsvParser.parse("Chikama,,").getRight().getSalary(), is(nullValue()));
+  }
+
+  @Test
+  public void testReject() {
+    assertThat(EmployeeCsvParser.parse("\"Chikama,1000,Dept").getLeft(), is("Quote is not closed."));
+    assertThat(EmployeeCsvParser.parse("Chikama,1000").getLeft(), is("Expected 3 columns but found 2."));
+    assertThat(EmployeeCsvParser.parse("Chikama,1e3,Dept").getLeft(), is("Salary is not an integer."));
+    assertThat(EmployeeCsvParser.parse(",1000,Dept").getLeft(), is("Name is empty or salary is negative."));
+    assertThat(EmployeeCsvParser.parse("Chikama,-1,Dept").getLeft(), is("Name is empty or salary is negative."));
+  }
+
+  @Test
+  public void testSplit() {
+    assertThat(EmployeeCsvParser.split("a,\"b,c\",,\"\""), is(Arrays.asList("a", "b,c", "", "")));
+    assertThat(EmployeeCsvParser.isHeader(" Name,Salary,Department "), is(true));
+  }
+}
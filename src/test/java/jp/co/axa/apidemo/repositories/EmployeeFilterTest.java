@@ -0,0 +1,26 @@
+package jp.co.axa.apidemo.repositories;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class EmployeeFilterTest {
+
+  @Test
+  public void testUpperBoundOf() {
+    assertThat(EmployeeFilter.upperBoundOf("Chi"), is("Chj"));
+    assertThat(EmployeeFilter.upperBoundOf("Ch\uffff"), is("Ci"));
+    assertThat(EmployeeFilter.upperBoundOf("\uffff"), is(nullValue()));
+    assertThat(EmployeeFilter.upperBoundOf(""), is(nullValue()));
+  }
+
+  @Test
+  public void testIsSatisfiable() {
+    assertThat(EmployeeFilter.NONE.isEmpty(), is(true));
+    assertThat(EmployeeFilter.NONE.withMinSalary(100).withMaxSalary(100).isSatisfiable(), is(true));
+    assertThat(EmployeeFilter.NONE.withMinSalary(101).withMaxSalary(100).isSatisfiable(), is(false));
+    assertThat(EmployeeFilter.NONE.withMinSalary(101).isEmpty(), is(false));
+  }
+}
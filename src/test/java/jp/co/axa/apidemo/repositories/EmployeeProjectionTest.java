@@ -0,0 +1,44 @@
+package jp.co.axa.apidemo.repositories;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Optional;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class EmployeeProjectionTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void testParseFields() {
+    assertThat(EmployeeField.parse(null), is(Optional.of(EmployeeField.ALL)));
+    assertThat(EmployeeField.parse(" "), is(Optional.of(EmployeeField.ALL)));
+    assertThat(EmployeeField.parse("name, salary"),
+      is(Optional.of(EnumSet.of(EmployeeField.ID, EmployeeField.NAME, EmployeeField.SALARY))));
+    assertThat(EmployeeField.parse("id,name,unknown"), is(Optional.empty()));
+    assertThat(EmployeeField.parse("id,,name"), is(Optional.empty()));
+  }
+
+  @Test
+  public void testSameAsSerializingEntity() throws Exception {
+    val employee = new EmployeeEntity(1L, "Chiakma \"日本\"", null, "Some Dept", 3L);
+    val projection = EmployeeProjection.of(EmployeeField.ALL, new Object[]{1L, "Chiakma \"日本\"", null, "Some Dept", 3L});
+    assertThat(projection.isComplete(), is(true));
+    assertThat(objectMapper.writeValueAsString(projection), is(objectMapper.writeValueAsString(employee)));
+  }
+
+  @Test
+  public void testOnlySelectedFieldsAreWritten() throws Exception {
+    val fields = EnumSet.of(EmployeeField.ID, EmployeeField.NAME, EmployeeField.VERSION);
+    val projection = EmployeeProjection.of(fields, new Object[]{2L, "Chiakma", 0L});
+    assertThat(projection.isComplete(), is(false));
+    assertThat(projection.getSalary() == null, is(true));
+    assertThat(objectMapper.writeValueAsString(projection), is("{\"id\":2,\"name\":\"Chiakma\",\"version\":0}"));
+  }
+}
@@ -0,0 +1,105 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Filters of the list against H2, with the indexes generated from the entity.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class EmployeeRepositoryTest {
+
+  @Autowired
+  private EmployeeRepository employeeRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  private final List<Long> ids = new ArrayList<>();
+
+  @Before
+  public void before() {
+    for (int i = 0; i < 10; i++) {
+      ids.add(employeeRepository.save(new EmployeeEntity(null, (i % 2 == 0 ? "Alice " : "Bob ") + i, 1000 * i,
+        "Dept " + (i % 3))).getId());
+    }
+    employeeRepository.flush();
+    entityManager.clear();
+  }
+
+  private List<Long> idsOf(List<EmployeeEntity> employees) {
+    return employees.stream().map(EmployeeEntity::getId).collect(Collectors.toList());
+  }
+
+  private List<Long> idsAt(Integer... indexes) {
+    return Arrays.stream(indexes).map(ids::get).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testDepartmentPages() {
+    val filter = new EmployeeFilter("Dept 0", null, null, null);
+    val first = employeeRepository.findByFilterAndIdGreaterThan(filter, Long.MIN_VALUE, 2);
+    assertThat(idsOf(first), is(idsAt(0, 3)));
+    val second = employeeRepository.findByFilterAndIdGreaterThan(filter, first.get(1).getId(), 2);
+    assertThat(idsOf(second), is(idsAt(6, 9)));
+  }
+
+  @Test
+  public void testSalaryRangePages() {
+    // Cursor is given as "id + 0 > ?" without the department.
+    val filter = new EmployeeFilter(null, 2000, 6000, null);
+    val first = employeeRepository.findByFilterAndIdGreaterThan(filter, Long.MIN_VALUE, 3);
+    assertThat(idsOf(first), is(idsAt(2, 3, 4)));
+    val second = employeeRepository.findByFilterAndIdGreaterThan(filter, first.get(2).getId(), 3);
+    assertThat(idsOf(second), is(idsAt(5, 6)));
+  }
+
+  @Test
+  public void testCombinedFilters() {
+    val filter = new EmployeeFilter("Dept 1", null, 5000, "Bob");
+    assertThat(idsOf(employeeRepository.findByFilterAndIdGreaterThan(filter, Long.MIN_VALUE, 10)),
+      is(idsAt(1)));
+    val prefixOnly = new EmployeeFilter(null, null, null, "Alice");
+    assertThat(idsOf(employeeRepository.findByFilterAndIdGreaterThan(prefixOnly, ids.get(4), 10)),
+      is(idsAt(6, 8)));
+  }
+
+  @Test
+  public void testProjectionOfId() {
+    val projections = employeeRepository.findProjectionsByFilterAndIdGreaterThan(
+      new EmployeeFilter(null, 8000, null, null), EnumSet.of(EmployeeField.ID), Long.MIN_VALUE, 10);
+    assertThat(projections, hasSize(2));
+    assertThat(projections.stream().map(EmployeeProjection::getId).collect(Collectors.toList()), contains(
+      ids.get(8), ids.get(9)));
+  }
+
+  @Test
+  public void testDepartmentIndexUsed() {
+    val plan = entityManager.createNativeQuery("EXPLAIN SELECT ID FROM EMPLOYEE WHERE DEPARTMENT = 'Dept 0' "
+      + "AND ID > 0 ORDER BY ID LIMIT 10").getSingleResult().toString();
+    assertThat(plan, containsString("IDX_EMPLOYEE_DEPARTMENT"));
+    val salaryPlan = entityManager.createNativeQuery("EXPLAIN SELECT ID FROM EMPLOYEE WHERE EMPLOYEE_SALARY >= 8000 "
+      + "AND ID + 0 > 0 ORDER BY ID LIMIT 10").getSingleResult().toString();
+    assertThat(salaryPlan, containsString("IDX_EMPLOYEE_SALARY"));
+  }
+}
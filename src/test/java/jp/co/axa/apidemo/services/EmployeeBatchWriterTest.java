@@ -0,0 +1,107 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.repositories.EmployeeChangeRepository;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.EmployeeService.BatchOperation;
+import jp.co.axa.apidemo.services.EmployeeService.BatchOperationType;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EmployeeBatchWriterTest {
+  @Mock
+  private EmployeeRepository employeeRepository;
+
+  @Mock
+  private EmployeeChangeRepository changeRepository;
+
+  private EmployeeEntity existing;
+
+  @Before
+  public void before() {
+    MockitoAnnotations.initMocks(this);
+    this.existing = new EmployeeEntity(1L, "Chiakma", 1000, "Some Dept");
+    when(employeeRepository.findAllById(ArgumentMatchers.any())).thenReturn(Collections.singletonList(this.existing));
+    when(employeeRepository.save(ArgumentMatchers.any(EmployeeEntity.class)))
+      .then(invocation -> invocation.<EmployeeEntity>getArgument(0).withId(10L));
+  }
+
+  private EmployeeBatchWriter newWriter() {
+    return new EmployeeBatchWriter(employeeRepository, new EmployeeChangeLog(changeRepository, EmployeeShards.single()));
+  }
+
+  @Test
+  public void testMixedOperations() {
+    val results = this.newWriter().write(Arrays.asList(
+      new BatchOperation(BatchOperationType.CREATE, null, new EmployeeEntity(null, "New", 10, "Dept")),
+      new BatchOperation(BatchOperationType.UPDATE, 1L, new EmployeeEntity(null, "Updated", 20, "Dept")),
+      new BatchOperation(BatchOperationType.DELETE, 1L, null)));
+    assertThat(results, hasSize(3));
+    assertThat(results.get(0).getRight().getUpdated().getId(), is(10L));
+    assertThat(results.get(1).getRight().getOld().getName(), is("Chiakma"));
+    assertThat(results.get(1).getRight().getUpdated().getName(), is("Updated"));
+    assertThat(results.get(2).getRight().getOld(), is(equalTo(this.existing)));
+    verify(employeeRepository).delete(this.existing);
+    // Updated employee is flushed before it is deleted.
+    verify(employeeRepository, times(2)).flush();
+  }
+
+  @Test
+  public void testRejectedOperations() {
+    val results = this.newWriter().write(Arrays.asList(
+      new BatchOperation(BatchOperationType.CREATE, null, new EmployeeEntity(1L, "Dup", 10, "Dept")),
+      new BatchOperation(BatchOperationType.CREATE, null, new EmployeeEntity(null, "", 10, "Dept")),
+      new BatchOperation(BatchOperationType.UPDATE, 2L, new EmployeeEntity(null, "Missing", 10, "Dept")),
+      new BatchOperation(BatchOperationType.UPDATE, 1L, new EmployeeEntity(3L, "Mismatch", 10, "Dept")),
+      new BatchOperation(null, 1L, null)));
+    assertThat(results.get(0).getLeft(), is(CRUDErrorStatus.ALREADY_EXISTS));
+    assertThat(results.get(1).getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
+    assertThat(results.get(2).getLeft(), is(CRUDErrorStatus.TARGET_NOT_FOUND));
+    assertThat(results.get(3).getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
+    assertThat(results.get(4).getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
+    verify(employeeRepository, never()).save(ArgumentMatchers.any(EmployeeEntity.class));
+  }
+
+  @Test
+  public void testSameEmployeeWrittenTwice() {
+    val versioned = new EmployeeEntity(1L, "Chiakma", 1000, "Some Dept", 3L);
+    when(employeeRepository.findAllById(ArgumentMatchers.any())).thenReturn(Collections.singletonList(versioned));
+    val results = this.newWriter().write(Arrays.asList(
+      new BatchOperation(BatchOperationType.UPDATE, 1L, new EmployeeEntity(null, "First", 20, "Dept")),
+      new BatchOperation(BatchOperationType.UPDATE, 1L, new EmployeeEntity(null, "Second", 30, "Dept"))));
+    // Each result keeps its own state, not the managed entity changed by the later operation.
+    assertThat(results.get(0).getRight().getUpdated().getName(), is("First"));
+    assertThat(results.get(0).getRight().getUpdated().getVersion(), is(4L));
+    assertThat(results.get(1).getRight().getOld().getName(), is("First"));
+    assertThat(results.get(1).getRight().getUpdated().getName(), is("Second"));
+    // Flushed before the second update, and at the end.
+    verify(employeeRepository, times(2)).flush();
+  }
+
+  @Test
+  public void testDeleteNonExistent() {
+    val results = this.newWriter().write(Collections.singletonList(
+      new BatchOperation(BatchOperationType.DELETE, 5L, null)));
+    assertThat(results.get(0).isRight(), is(true));
+    assertThat(results.get(0).getRight().getOld(), is(nullValue()));
+  }
+}
@@ -0,0 +1,93 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.EmployeeChangeEntity;
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.repositories.EmployeeChangeRepository;
+import jp.co.axa.apidemo.services.EmployeeService.UpdateResult;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EmployeeChangeLogTest {
+  private static final EmployeeEntity TEST_EMPLOYEE_1 = new EmployeeEntity(1L, "Chiakma", 1000, "Some Dept", 0L);
+  private static final EmployeeEntity TEST_EMPLOYEE_2 = new EmployeeEntity(2L, "Chiakma 2", 1500, "Some Dept 2", 0L);
+
+  @Mock
+  private EmployeeChangeRepository changeRepository;
+
+  private EmployeeChangeLog changeLog;
+
+  @Before
+  public void before() {
+    MockitoAnnotations.initMocks(this);
+    this.changeLog = new EmployeeChangeLog(changeRepository, EmployeeShards.single());
+  }
+
+  @After
+  public void after() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void testRecord() {
+    val existing = EmployeeChangeEntity.created(1L, 0L, false);
+    when(changeRepository.findAllById(ArgumentMatchers.any())).thenReturn(Collections.singletonList(existing));
+    changeLog.record(Arrays.asList(
+      new UpdateResult(null, TEST_EMPLOYEE_2),
+      new UpdateResult(TEST_EMPLOYEE_1, TEST_EMPLOYEE_1.withVersion(1L)),
+      new UpdateResult(TEST_EMPLOYEE_2, null),
+      new UpdateResult(null, null)));
+
+    // Row of the employee 2 is inserted once, then turned into the tombstone.
+    val saved = ArgumentCaptor.forClass(EmployeeChangeEntity.class);
+    verify(changeRepository, times(1)).save(saved.capture());
+    assertThat(saved.getValue().getEmployeeId(), is(2L));
+    assertThat(saved.getValue().getChangeSeq(), is(3L));
+    assertThat(saved.getValue().isDeleted(), is(true));
+    assertThat(existing.getChangeSeq(), is(2L));
+    assertThat(existing.isDeleted(), is(false));
+    assertThat(changeLog.getLatestSequence(), is(3L));
+    assertThat(changeLog.getStableSequence(), is(3L));
+  }
+
+  @Test
+  public void testStableUntilTransactionEnds() {
+    TransactionSynchronizationManager.initSynchronization();
+    changeLog.record(Collections.singletonList(new UpdateResult(null, TEST_EMPLOYEE_1)));
+    changeLog.record(Collections.singletonList(new UpdateResult(null, TEST_EMPLOYEE_2)));
+    assertThat(changeLog.getLatestSequence(), is(2L));
+    assertThat(changeLog.getStableSequence(), is(0L));
+
+    TransactionSynchronizationManager.getSynchronizations()
+      .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    assertThat(changeLog.getStableSequence(), is(2L));
+    assertThat(TransactionSynchronizationManager.hasResource(changeLog), is(false));
+  }
+
+  @Test
+  public void testRestore() {
+    when(changeRepository.findMaxChangeSeq()).thenReturn(41L);
+    changeLog.restore();
+    changeLog.record(Collections.singletonList(new UpdateResult(null, TEST_EMPLOYEE_1)));
+    verify(changeRepository).save(ArgumentMatchers.argThat(change -> change.getChangeSeq() == 42L));
+  }
+}
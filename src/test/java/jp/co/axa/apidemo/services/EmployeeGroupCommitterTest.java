@@ -0,0 +1,163 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.EmployeeEntity;
+import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.fanctor.Either;
+import jp.co.axa.apidemo.services.EmployeeService.BatchOperation;
+import jp.co.axa.apidemo.services.EmployeeService.BatchOperationType;
+import jp.co.axa.apidemo.services.EmployeeService.UpdateResult;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EmployeeGroupCommitterTest {
+  @Mock
+  private EmployeeBatchWriter batchWriter;
+
+  private final List<List<BatchOperation>> batches = Collections.synchronizedList(new ArrayList<>());
+  private EmployeeGroupCommitter committer;
+
+  @Before
+  public void before() {
+    MockitoAnnotations.initMocks(this);
+    // Echo each operation as the created or updated employee.
+    when(batchWriter.write(ArgumentMatchers.any())).then(invocation -> {
+      List<BatchOperation> operations = new ArrayList<>(invocation.getArgument(0));
+      batches.add(operations);
+      return operations.stream()
+        .map(operation -> Either.<CRUDErrorStatus, UpdateResult>right(new UpdateResult(null, operation.getEmployee())))
+        .collect(Collectors.toList());
+    });
+    // Long window, so that all the operations submitted at once are in the same batch.
+    this.committer = new EmployeeGroupCommitter(batchWriter, EmployeeShards.single(), true, Duration.ofMillis(200), 3,
+      Duration.ofSeconds(5));
+  }
+
+  @After
+  public void after() throws InterruptedException {
+    committer.destroy();
+  }
+
+  private static BatchOperation create(String name) {
+    return new BatchOperation(BatchOperationType.CREATE, null, new EmployeeEntity(null, name, 10, "Dept"));
+  }
+
+  private static BatchOperation update(Long id, String name) {
+    return new BatchOperation(BatchOperationType.UPDATE, id, new EmployeeEntity(id, name, 10, "Dept"));
+  }
+
+  @Test
+  public void testCommittedTogether() {
+    val first = committer.submit(create("A"));
+    val second = committer.submit(create("B"));
+    val third = committer.submit(create("C"));
+    val fourth = committer.submit(create("D"));
+    assertThat(first.join().getRight().getUpdated().getName(), is("A"));
+    assertThat(second.join().getRight().getUpdated().getName(), is("B"));
+    assertThat(third.join().getRight().getUpdated().getName(), is("C"));
+    assertThat(fourth.join().getRight().getUpdated().getName(), is("D"));
+    // Max batch size is 3.
+    assertThat(batches, hasSize(2));
+    assertThat(batches.get(0), hasSize(3));
+  }
+
+  @Test
+  public void testSameEmployeeInSeparateBatches() {
+    val first = committer.submit(update(1L, "First"));
+    val other = committer.submit(update(2L, "Other"));
+    val second = committer.submit(update(1L, "Second"));
+    second.join();
+    assertThat(first.isDone() && other.isDone(), is(true));
+    assertThat(batches, hasSize(2));
+    assertThat(batches.get(0), hasSize(2));
+    assertThat(batches.get(1).get(0).getEmployee().getName(), is("Second"));
+  }
+
+  @Test
+  public void testRetriedOneByOneOnFailure() {
+    doThrow(new IllegalStateException("DB failed")).when(batchWriter).write(ArgumentMatchers.argThat(
+      operations -> operations.size() > 1 || operations.get(0).getEmployee().getName().equals("Bad")));
+    val good = committer.submit(create("Good"));
+    val bad = committer.submit(create("Bad"));
+    assertThat(good.join().getRight().getUpdated().getName(), is("Good"));
+    try {
+      bad.join();
+      fail();
+    } catch (CompletionException e) {
+      assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+    }
+  }
+
+  @Test
+  public void testRejectedWhenDisabled() {
+    val disabled = new EmployeeGroupCommitter(batchWriter, EmployeeShards.single(), false, Duration.ZERO, 1,
+      Duration.ZERO);
+    assertThat(disabled.submit(create("A")).isCompletedExceptionally(), is(true));
+  }
+
+  @Test
+  public void testFailedOutsideCommit() throws InterruptedException {
+    val shards = mock(EmployeeShards.class);
+    when(shards.scatterBy(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+      .thenThrow(new IllegalStateException("Shard is gone"))
+      .then(invocation -> invocation.<Function<List<?>, List<?>>>getArgument(2).apply(invocation.getArgument(0)));
+    committer.destroy();
+    this.committer = new EmployeeGroupCommitter(batchWriter, shards, true, Duration.ofMillis(200), 3,
+      Duration.ofSeconds(5));
+    val first = committer.submit(update(1L, "First"));
+    val deferred = committer.submit(update(1L, "Deferred"));
+    assertThat(failureOf(first), is(instanceOf(IllegalStateException.class)));
+    assertThat(failureOf(deferred), is(instanceOf(IllegalStateException.class)));
+    // Committer keeps running.
+    assertThat(committer.submit(create("Next")).join().getRight().getUpdated().getName(), is("Next"));
+  }
+
+  @Test
+  public void testStoppedByErrorOfWriter() {
+    doThrow(new LinkageError("Writer is broken")).when(batchWriter).write(ArgumentMatchers.any());
+    val first = committer.submit(update(1L, "First"));
+    val deferred = committer.submit(update(1L, "Deferred"));
+    assertThat(failureOf(first), is(instanceOf(LinkageError.class)));
+    assertThat(failureOf(deferred), is(instanceOf(IllegalStateException.class)));
+    // Not queued for the stopped committer.
+    assertThat(failureOf(committer.submit(create("Next"))), is(instanceOf(IllegalStateException.class)));
+  }
+
+  private static Throwable failureOf(CompletableFuture<?> future) {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail();
+      return null;
+    } catch (ExecutionException e) {
+      return e.getCause();
+    } catch (InterruptedException | TimeoutException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
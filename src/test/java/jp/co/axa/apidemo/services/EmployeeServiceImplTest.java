@@ -1,47 +1,112 @@
 package jp.co.axa.apidemo.services;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jp.co.axa.apidemo.aggregates.DepartmentSalaryAggregates;
+import jp.co.axa.apidemo.caches.EmployeeCache;
+import jp.co.axa.apidemo.caches.EmployeeJsonCache;
+import jp.co.axa.apidemo.coalescing.EmployeeReadCoalescer;
+import jp.co.axa.apidemo.datasources.ReadRoute;
+import jp.co.axa.apidemo.entities.EmployeeChangeEntity;
 import jp.co.axa.apidemo.entities.EmployeeEntity;
 import jp.co.axa.apidemo.enums.CRUDErrorStatus;
+import jp.co.axa.apidemo.repositories.EmployeeField;
+import jp.co.axa.apidemo.repositories.EmployeeFilter;
+import jp.co.axa.apidemo.repositories.EmployeeProjection;
+import jp.co.axa.apidemo.repositories.EmployeeChangeRepository;
 import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.sharding.EmployeeShards;
 import lombok.val;
-import org.hamcrest.CoreMatchers;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 
-import static org.hamcrest.CoreMatchers.equalTo;
+import static jp.co.axa.apidemo.entities.EmployeeMatchers.sameEmployeeAs;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.hamcrest.MockitoHamcrest.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class EmployeeServiceImplTest {
   @Mock
   private EmployeeRepository employeeRepository;
 
-  private static final EmployeeEntity TEST_EMPLOYEE_1 = new EmployeeEntity(1L, "Chiakma", 1000, "Some Dept");
-  private static final EmployeeEntity TEST_EMPLOYEE_2 = new EmployeeEntity(2L, "Chiakma 2", 1500, "Some Dept 2");
+  @Mock
+  private EmployeeChangeRepository changeRepository;
+
+  private DepartmentSalaryAggregates departmentAggregates;
+
+  private EmployeeGroupCommitter groupCommitter;
+
+  private final EmployeeReadCoalescer coalescer = new EmployeeReadCoalescer(true, 4);
+
+  private static final EmployeeEntity TEST_EMPLOYEE_1 = new EmployeeEntity(1L, "Chiakma", 1000, "Some Dept", 0L);
+  private static final EmployeeEntity TEST_EMPLOYEE_2 = new EmployeeEntity(2L, "Chiakma 2", 1500, "Some Dept 2", 0L);
 
   @Before
   public void before() {
     MockitoAnnotations.initMocks(this);
   }
 
+  @After
+  public void after() throws InterruptedException {
+    if (this.groupCommitter != null) {
+      this.groupCommitter.destroy();
+    }
+  }
+
+  private EmployeeServiceImpl newService() {
+    return this.newService(false);
+  }
+
+  private EmployeeServiceImpl newService(boolean groupCommit) {
+    return this.newService(groupCommit, Duration.ofSeconds(5));
+  }
+
+  private EmployeeServiceImpl newService(boolean groupCommit, Duration groupCommitTimeout) {
+    val shards = EmployeeShards.single();
+    this.departmentAggregates = new DepartmentSalaryAggregates(this.employeeRepository, shards);
+    val changeLog = new EmployeeChangeLog(this.changeRepository, shards);
+    val batchWriter = new EmployeeBatchWriter(this.employeeRepository, changeLog);
+    this.groupCommitter = new EmployeeGroupCommitter(batchWriter, shards, groupCommit, Duration.ofMillis(10), 10,
+      groupCommitTimeout);
+    return new EmployeeServiceImpl(this.employeeRepository, batchWriter,
+      new EmployeeExportReader(this.employeeRepository), this.groupCommitter, changeLog,
+      new EmployeeCache(100, Duration.ofMinutes(1), Duration.ofSeconds(1)),
+      new EmployeeJsonCache(new ObjectMapper(), 100), this.departmentAggregates, shards, this.coalescer);
+  }
+
   @Test
   public void testGetAllNormal() {
     when(employeeRepository.findAll()).thenReturn(Arrays.asList(TEST_EMPLOYEE_1, TEST_EMPLOYEE_2));
-    val service = new EmployeeServiceImpl(this.employeeRepository);
+    val service = this.newService();
     val result = service.retrieveEmployees();
     assertThat(result.isRight(), is(true));
     assertThat(result.getRight(), is(not(empty())));
@@ -49,7 +114,7 @@ public class EmployeeServiceImplTest {
   }
   @Test
   public void testGetAllWithEmpty() {
-    val service = new EmployeeServiceImpl(this.employeeRepository);
+    val service = this.newService();
     val result = service.retrieveEmployees();
     assertThat(result.isRight(), is(true));
     assertThat(result.getRight(), is(not(nullValue())));
@@ -58,54 +123,230 @@ public class EmployeeServiceImplTest {
   @Test
   public void testGetAllWithError() {
     when(employeeRepository.findAll()).thenThrow(new RuntimeException());
-    val service = new EmployeeServiceImpl(this.employeeRepository);
+    val service = this.newService();
     val result = service.retrieveEmployees();
     assertThat(result.isLeft(), is(true));
     assertThat(result.getLeft(), is(CRUDErrorStatus.UNKNOWN_FAILURE));
   }
 
+  @Test
+  public void testGetPageWithNextPage() {
+    when(employeeRepository.findByIdGreaterThanOrderByIdAsc(ArgumentMatchers.eq(Long.MIN_VALUE), ArgumentMatchers.any()))
+      .thenReturn(Arrays.asList(TEST_EMPLOYEE_1, TEST_EMPLOYEE_2));
+    val result = this.newService().retrieveEmployees(null, 1);
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight().getEmployees(), hasSize(1));
+    assertThat(result.getRight().getNextCursor(), is(TEST_EMPLOYEE_1.getId()));
+    verify(employeeRepository).findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, PageRequest.of(0, 2));
+  }
+  @Test
+  public void testGetLastPage() {
+    when(employeeRepository.findByIdGreaterThanOrderByIdAsc(ArgumentMatchers.eq(1L), ArgumentMatchers.any()))
+      .thenReturn(Arrays.asList(TEST_EMPLOYEE_2));
+    val result = this.newService().retrieveEmployees(1L, 1);
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight().getEmployees(), hasSize(1));
+    assertThat(result.getRight().getNextCursor(), is(nullValue()));
+  }
+
+  @Test
+  public void testGetFilteredPage() {
+    val filter = EmployeeFilter.NONE.withDepartment("Some Dept").withMinSalary(500);
+    when(employeeRepository.findByFilterAndIdGreaterThan(filter, Long.MIN_VALUE, 2))
+      .thenReturn(Collections.singletonList(TEST_EMPLOYEE_1));
+    val result = this.newService().retrieveEmployees(filter, null, 1);
+    assertThat(result.getRight().getEmployees(), hasSize(1));
+    assertThat(result.getRight().getNextCursor(), is(nullValue()));
+    verify(employeeRepository, never())
+      .findByIdGreaterThanOrderByIdAsc(ArgumentMatchers.any(), ArgumentMatchers.any());
+  }
+
+  @Test
+  public void testGetProjectionPage() {
+    val fields = EnumSet.of(EmployeeField.ID, EmployeeField.NAME);
+    when(employeeRepository.findProjectionsByFilterAndIdGreaterThan(EmployeeFilter.NONE, fields, 1L, 2))
+      .thenReturn(Arrays.asList(new EmployeeProjection(fields, 2L, "Chiakma 2", null, null, null),
+        new EmployeeProjection(fields, 3L, "Chiakma 3", null, null, null)));
+    val result = this.newService().retrieveEmployeeProjections(EmployeeFilter.NONE, fields, 1L, 1);
+    assertThat(result.getRight().getEmployees(), hasSize(1));
+    assertThat(result.getRight().getEmployees().get(0).getName(), is("Chiakma 2"));
+    assertThat(result.getRight().getNextCursor(), is(2L));
+    verify(employeeRepository, never())
+      .findByIdGreaterThanOrderByIdAsc(ArgumentMatchers.any(), ArgumentMatchers.any());
+  }
+
+  @Test
+  public void testGetProjectionPageWithoutId() {
+    val result = this.newService()
+      .retrieveEmployeeProjections(EmployeeFilter.NONE, EnumSet.of(EmployeeField.NAME), null, 1);
+    assertThat(result.getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
+  }
+
+  @Test
+  public void testGetPageWithUnsatisfiableFilter() {
+    val result = this.newService().retrieveEmployees(EmployeeFilter.NONE.withMinSalary(2).withMaxSalary(1), null, 1);
+    assertThat(result.getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
+  }
+
+  @Test
+  public void testGetPageWithInvalidSize() {
+    val result = this.newService().retrieveEmployees(null, 0);
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
+  }
+  @Test
+  public void testGetPageWithError() {
+    when(employeeRepository.findByIdGreaterThanOrderByIdAsc(ArgumentMatchers.any(), ArgumentMatchers.any()))
+      .thenThrow(new RuntimeException());
+    val result = this.newService().retrieveEmployees(null, 10);
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.UNKNOWN_FAILURE));
+  }
+  @Test
+  public void testExport() {
+    when(employeeRepository.streamAllByOrderByIdAsc()).thenReturn(Arrays.asList(TEST_EMPLOYEE_1, TEST_EMPLOYEE_2).stream());
+    val exported = new ArrayList<EmployeeEntity>();
+    val result = this.newService().exportEmployees(exported::add);
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight(), is(2L));
+    assertThat(exported, hasSize(2));
+    verify(employeeRepository, times(2)).detach(ArgumentMatchers.any(EmployeeEntity.class));
+  }
+  @Test
+  public void testExportWithConsumerError() {
+    when(employeeRepository.streamAllByOrderByIdAsc()).thenReturn(Arrays.asList(TEST_EMPLOYEE_1, TEST_EMPLOYEE_2).stream());
+    val result = this.newService().exportEmployees(e -> {
+      throw new RuntimeException();
+    });
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.UNKNOWN_FAILURE));
+  }
 
   @Test
   public void testGetSingle() {
     when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.of(TEST_EMPLOYEE_1));
-    val result = new EmployeeServiceImpl(this.employeeRepository).getEmployee(1L);
+    val result = this.newService().getEmployee(1L);
     assertThat(result.isPresent(), is(true));
-    assertThat(result.get(), is(CoreMatchers.equalTo(TEST_EMPLOYEE_1)));
+    assertThat(result.get(), is(sameEmployeeAs(TEST_EMPLOYEE_1)));
+  }
+  @Test
+  public void testConcurrentGetSingleSharesQuery() throws Exception {
+    val registry = new SimpleMeterRegistry();
+    coalescer.bindTo(registry);
+    val release = new CountDownLatch(1);
+    when(this.employeeRepository.findById(1L)).thenAnswer(invocation -> {
+      release.await();
+      return Optional.of(TEST_EMPLOYEE_1);
+    });
+    val service = this.newService();
+    val executor = Executors.newFixedThreadPool(4);
+    try {
+      val results = new ArrayList<Future<Optional<EmployeeEntity>>>();
+      for (int i = 0; i < 4; i++) {
+        results.add(executor.submit(() -> service.getEmployee(1L)));
+      }
+      val coalesced = registry.get("employee.coalescing.coalesced").tag("read", "employee").functionCounter();
+      while (coalesced.count() < 3) {
+        Thread.sleep(1);
+      }
+      release.countDown();
+      for (Future<Optional<EmployeeEntity>> result : results) {
+        assertThat(result.get(5, TimeUnit.SECONDS).get(), is(sameEmployeeAs(TEST_EMPLOYEE_1)));
+      }
+      verify(this.employeeRepository, times(1)).findById(1L);
+    } finally {
+      executor.shutdownNow();
+    }
   }
   @Test
   public void testGetSingleWithNullId() {
     when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.of(TEST_EMPLOYEE_1));
-    val result = new EmployeeServiceImpl(this.employeeRepository).getEmployee(null);
+    val result = this.newService().getEmployee(null);
     assertThat(result.isPresent(), is(false));
   }
   @Test
   public void testGetSingleWithNonExists() {
     when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.empty());
-    val result = new EmployeeServiceImpl(this.employeeRepository).getEmployee(3L);
+    val result = this.newService().getEmployee(3L);
     assertThat(result.isPresent(), is(false));
   }
+  @Test
+  public void testGetSingleFromCache() {
+    when(this.employeeRepository.findById(1L)).thenReturn(Optional.of(TEST_EMPLOYEE_1));
+    val service = this.newService();
+    service.getEmployee(1L);
+    val result = service.getEmployee(1L);
+    assertThat(result.get(), is(sameEmployeeAs(TEST_EMPLOYEE_1)));
+    verify(this.employeeRepository, times(1)).findById(1L);
+  }
+  @Test
+  public void testCacheRefreshedByUpdate() {
+    val testEmpWithDifferentSalary = TEST_EMPLOYEE_1.withSalary(20000);
+    when(this.employeeRepository.findById(1L)).thenReturn(Optional.of(TEST_EMPLOYEE_1));
+    when(this.employeeRepository.updateIfVersionMatches(ArgumentMatchers.eq(1L), ArgumentMatchers.eq(0L),
+      ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(1);
+    val service = this.newService();
+    service.updateEmployee(testEmpWithDifferentSalary);
+    assertThat(service.getEmployee(1L).get().getSalary(), is(20000));
+    verify(this.employeeRepository, times(1)).findById(1L);
+  }
+  @Test
+  public void testAbsenceCachedByDelete() {
+    // Replica which has not applied the deletion yet.
+    when(this.employeeRepository.findById(1L)).thenReturn(Optional.of(TEST_EMPLOYEE_1));
+    when(this.employeeRepository.deleteIfVersionMatches(1L, 0L)).thenReturn(1);
+    val service = this.newService();
+    service.deleteEmployee(1L);
+    assertThat(service.getEmployee(1L).isPresent(), is(false));
+    verify(this.employeeRepository, times(1)).findById(1L);
+  }
 
   @Test
   public void testSave() {
     when(this.employeeRepository.saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(TEST_EMPLOYEE_1);
     val testEmpWithNoId = TEST_EMPLOYEE_1.withId(null);
-    val result = new EmployeeServiceImpl(this.employeeRepository).saveEmployee(testEmpWithNoId);
+    val result = this.newService().saveEmployee(testEmpWithNoId);
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight(), is(sameEmployeeAs(TEST_EMPLOYEE_1)));
+  }
+
+  @Test
+  public void testSaveWithUnusedId() {
+    when(this.employeeRepository.saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(TEST_EMPLOYEE_2);
+    val result = this.newService().saveEmployee(TEST_EMPLOYEE_1);
     assertThat(result.isRight(), is(true));
-    assertThat(result.getRight(), is(TEST_EMPLOYEE_1));
+    // Given ID and version are not used for the new record, thus Hibernate inserts it without selecting first.
+    verify(this.employeeRepository)
+      .saveAndFlush(argThat(sameEmployeeAs(TEST_EMPLOYEE_1.withId(null).withVersion(null))));
   }
 
   @Test
   public void testSaveWithConflict() {
     when(this.employeeRepository.findById(1L)).thenReturn(Optional.of(TEST_EMPLOYEE_1));
-    val result = new EmployeeServiceImpl(this.employeeRepository).saveEmployee(TEST_EMPLOYEE_1);
+    val result = this.newService().saveEmployee(TEST_EMPLOYEE_1);
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.ALREADY_EXISTS));
+  }
+
+  @Test
+  public void testSaveWithConflictInGroup() {
+    when(this.employeeRepository.findAllById(ArgumentMatchers.any())).thenReturn(Collections.singletonList(TEST_EMPLOYEE_1));
+    val result = this.newService(true).saveEmployee(TEST_EMPLOYEE_1);
     assertThat(result.isLeft(), is(true));
     assertThat(result.getLeft(), is(CRUDErrorStatus.ALREADY_EXISTS));
   }
 
+  @Test
+  public void testSaveWithoutIdNotRead() {
+    when(this.employeeRepository.saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(TEST_EMPLOYEE_1);
+    this.newService().saveEmployee(TEST_EMPLOYEE_1.withId(null));
+    verify(this.employeeRepository, never()).findById(ArgumentMatchers.any());
+  }
+
   @Test
   public void testSaveWithValidationFailure() {
     val testEmpWithNoName = TEST_EMPLOYEE_1.withName("");
-    val result = new EmployeeServiceImpl(this.employeeRepository).saveEmployee(testEmpWithNoName);
+    val result = this.newService().saveEmployee(testEmpWithNoName);
     assertThat(result.isLeft(), is(true));
     assertThat(result.getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
   }
@@ -114,19 +355,48 @@ public class EmployeeServiceImplTest {
   public void testUpdate() {
     val testEmpWithDifferentSalary = TEST_EMPLOYEE_1.withSalary(20000);
     when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.of(TEST_EMPLOYEE_1));
-    when(this.employeeRepository.saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(testEmpWithDifferentSalary);
-    val result = new EmployeeServiceImpl(this.employeeRepository).updateEmployee(testEmpWithDifferentSalary);
+    when(this.employeeRepository.updateIfVersionMatches(ArgumentMatchers.eq(1L), ArgumentMatchers.eq(0L),
+      ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(1);
+    val result = this.newService().updateEmployee(testEmpWithDifferentSalary);
     assertThat(result.isRight(), is(true));
     assertThat(result.getRight(), is(not(nullValue())));
-    assertThat(result.getRight().getOld(), is(equalTo(TEST_EMPLOYEE_1)));
-    assertThat(result.getRight().getUpdated(), is(equalTo(testEmpWithDifferentSalary)));
+    assertThat(result.getRight().getOld(), is(sameEmployeeAs(TEST_EMPLOYEE_1)));
+    assertThat(result.getRight().getUpdated(), is(sameEmployeeAs(testEmpWithDifferentSalary.withVersion(1L))));
+    verify(this.employeeRepository, never()).saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class));
+  }
+
+  @Test
+  public void testUpdateWithStaleCache() {
+    val testEmpWithDifferentSalary = TEST_EMPLOYEE_1.withSalary(20000).withVersion(null);
+    when(this.employeeRepository.findById(1L))
+      .thenReturn(Optional.of(TEST_EMPLOYEE_1), Optional.of(TEST_EMPLOYEE_1.withName("Changed").withVersion(1L)));
+    when(this.employeeRepository.updateIfVersionMatches(ArgumentMatchers.eq(1L), ArgumentMatchers.eq(0L),
+      ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(0);
+    when(this.employeeRepository.updateIfVersionMatches(ArgumentMatchers.eq(1L), ArgumentMatchers.eq(1L),
+      ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(1);
+    val service = this.newService();
+    service.getEmployee(1L);
+    val result = service.updateEmployee(testEmpWithDifferentSalary);
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight().getOld().getName(), is("Changed"));
+    assertThat(result.getRight().getUpdated().getVersion(), is(2L));
+  }
+
+  @Test
+  public void testUpdateWithVersionConflict() {
+    val testEmpWithOldVersion = TEST_EMPLOYEE_1.withSalary(20000);
+    when(this.employeeRepository.findById(1L)).thenReturn(Optional.of(TEST_EMPLOYEE_1.withVersion(3L)));
+    val result = this.newService().updateEmployee(testEmpWithOldVersion);
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.VERSION_CONFLICT));
+    verify(this.employeeRepository, times(2)).findById(1L);
   }
 
   @Test
   public void testUpdateWithNotFound() {
     val testEmpWithDifferentSalary = TEST_EMPLOYEE_1.withSalary(20000);
     when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.empty());
-    val result = new EmployeeServiceImpl(this.employeeRepository).updateEmployee(testEmpWithDifferentSalary);
+    val result = this.newService().updateEmployee(testEmpWithDifferentSalary);
     assertThat(result.isLeft(), is(true));
     assertThat(result.getLeft(), is(CRUDErrorStatus.TARGET_NOT_FOUND));
   }
@@ -134,8 +404,9 @@ public class EmployeeServiceImplTest {
   public void testUpdateWithError() {
     val testEmpWithDifferentSalary = TEST_EMPLOYEE_1.withSalary(20000);
     when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.of(TEST_EMPLOYEE_1));
-    when(this.employeeRepository.saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class))).thenThrow(new RuntimeException());
-    val result = new EmployeeServiceImpl(this.employeeRepository).updateEmployee(testEmpWithDifferentSalary);
+    when(this.employeeRepository.updateIfVersionMatches(ArgumentMatchers.eq(1L), ArgumentMatchers.eq(0L),
+      ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenThrow(new RuntimeException());
+    val result = this.newService().updateEmployee(testEmpWithDifferentSalary);
     assertThat(result.isLeft(), is(true));
     assertThat(result.getLeft(), is(CRUDErrorStatus.UNKNOWN_FAILURE));
   }
@@ -143,7 +414,7 @@ public class EmployeeServiceImplTest {
   public void testUpdateWitValidationFailure() {
     val testEmpWithDifferentSalary = TEST_EMPLOYEE_1.withName(null);
     when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.of(TEST_EMPLOYEE_1));
-    val result = new EmployeeServiceImpl(this.employeeRepository).updateEmployee(testEmpWithDifferentSalary);
+    val result = this.newService().updateEmployee(testEmpWithDifferentSalary);
     assertThat(result.isLeft(), is(true));
     assertThat(result.getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
   }
@@ -151,13 +422,21 @@ public class EmployeeServiceImplTest {
   @Test
   public void testDelete() {
     when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.of(TEST_EMPLOYEE_1));
-    val result = new EmployeeServiceImpl(this.employeeRepository).deleteEmployee(TEST_EMPLOYEE_1.getId());
+    when(this.employeeRepository.deleteIfVersionMatches(1L, 0L)).thenReturn(1);
+    val result = this.newService().deleteEmployee(TEST_EMPLOYEE_1.getId());
     assertThat(result.isRight(), is(true));
-    assertThat(result.getRight(), is(equalTo(TEST_EMPLOYEE_1)));
+    assertThat(result.getRight(), is(sameEmployeeAs(TEST_EMPLOYEE_1)));
+  }
+  @Test
+  public void testDeleteWithConflict() {
+    when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.of(TEST_EMPLOYEE_1));
+    val result = this.newService().deleteEmployee(TEST_EMPLOYEE_1.getId());
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.VERSION_CONFLICT));
   }
   @Test
   public void testDeleteWithNoExistent() {
-    val result = new EmployeeServiceImpl(this.employeeRepository).deleteEmployee(TEST_EMPLOYEE_1.getId());
+    val result = this.newService().deleteEmployee(TEST_EMPLOYEE_1.getId());
     assertThat(result.isRight(), is(true));
     assertThat(result.getRight(), is(nullValue()));
   }
@@ -165,10 +444,229 @@ public class EmployeeServiceImplTest {
   @Test
   public void testDeleteWithError() {
     when(this.employeeRepository.findById(ArgumentMatchers.any(Long.class))).thenReturn(Optional.of(TEST_EMPLOYEE_1));
-    doThrow(new RuntimeException()).when(this.employeeRepository).deleteById(ArgumentMatchers.any(Long.class));
-    val result = new EmployeeServiceImpl(this.employeeRepository).deleteEmployee(TEST_EMPLOYEE_1.getId());
+    when(this.employeeRepository.deleteIfVersionMatches(1L, 0L)).thenThrow(new RuntimeException());
+    val result = this.newService().deleteEmployee(TEST_EMPLOYEE_1.getId());
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.UNKNOWN_FAILURE));
+
+  }
+
+  @Test
+  public void testDepartmentStatisticsFollowWrites() {
+    when(this.employeeRepository.saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(TEST_EMPLOYEE_1);
+    when(this.employeeRepository.updateIfVersionMatches(ArgumentMatchers.eq(1L), ArgumentMatchers.eq(0L),
+      ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(1);
+    when(this.employeeRepository.deleteIfVersionMatches(1L, 1L)).thenReturn(1);
+    val service = this.newService();
+
+    service.saveEmployee(TEST_EMPLOYEE_1.withId(null));
+    assertThat(service.retrieveDepartmentStatistics().get(0).getSumSalary(), is(1000L));
+
+    service.updateEmployee(TEST_EMPLOYEE_1.withSalary(3000).withDepartment("Other Dept"));
+    val updated = service.retrieveDepartmentStatistics();
+    assertThat(updated, hasSize(1));
+    assertThat(updated.get(0).getDepartment(), is("Other Dept"));
+    assertThat(updated.get(0).getMaxSalary(), is(3000));
+
+    service.deleteEmployee(1L);
+    assertThat(service.retrieveDepartmentStatistics(), is(empty()));
+  }
+
+  @Test
+  public void testModificationSequence() {
+    when(this.employeeRepository.saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(TEST_EMPLOYEE_1);
+    val service = this.newService();
+    val initial = service.getModificationSequence();
+    service.getEmployee(1L);
+    service.retrieveEmployees(null, 10);
+    assertThat(service.getModificationSequence(), is(initial));
+
+    service.saveEmployee(TEST_EMPLOYEE_1.withId(null));
+    service.deleteEmployee(1L);
+    assertThat(service.getModificationSequence(), is(initial + 2));
+  }
+
+  @Test
+  public void testBatch() {
+    when(this.employeeRepository.save(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(TEST_EMPLOYEE_2);
+    val result = this.newService().processBatch(Collections.singletonList(
+      new EmployeeService.BatchOperation(EmployeeService.BatchOperationType.CREATE, null, TEST_EMPLOYEE_2.withId(null))));
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight(), hasSize(1));
+    assertThat(result.getRight().get(0).getRight().getUpdated(), is(sameEmployeeAs(TEST_EMPLOYEE_2)));
+    verify(this.employeeRepository).flush();
+  }
+
+  @Test
+  public void testBatchWithError() {
+    doThrow(new RuntimeException()).when(this.employeeRepository).flush();
+    val result = this.newService().processBatch(Collections.emptyList());
     assertThat(result.isLeft(), is(true));
     assertThat(result.getLeft(), is(CRUDErrorStatus.UNKNOWN_FAILURE));
+  }
+
+  @Test
+  public void testBatchUpdatingSameEmployeeTwice() {
+    when(this.employeeRepository.saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(TEST_EMPLOYEE_1);
+    when(this.employeeRepository.findAllById(ArgumentMatchers.any()))
+      .thenReturn(Collections.singletonList(TEST_EMPLOYEE_1.copy()));
+    val service = this.newService();
+    service.saveEmployee(TEST_EMPLOYEE_1.withId(null));
+
+    val update = EmployeeService.BatchOperationType.UPDATE;
+    val result = service.processBatch(Arrays.asList(
+      new EmployeeService.BatchOperation(update, 1L, TEST_EMPLOYEE_1.withSalary(2000)),
+      new EmployeeService.BatchOperation(update, 1L, TEST_EMPLOYEE_1.withSalary(3000))));
+    assertThat(result.getRight().get(0).getRight().getUpdated().getSalary(), is(2000));
+    assertThat(result.getRight().get(1).getRight().getOld().getSalary(), is(2000));
+    val statistics = service.retrieveDepartmentStatistics();
+    assertThat(statistics, hasSize(1));
+    assertThat(statistics.get(0).getHeadcount(), is(1L));
+    assertThat(statistics.get(0).getSumSalary(), is(3000L));
+    assertThat(statistics.get(0).getMinSalary(), is(3000));
+  }
+
+  @Test
+  public void testBatchWithVersionConflict() {
+    doThrow(new ObjectOptimisticLockingFailureException(EmployeeEntity.class, 1L))
+      .when(this.employeeRepository).flush();
+    val result = this.newService().processBatch(Collections.singletonList(
+      new EmployeeService.BatchOperation(EmployeeService.BatchOperationType.DELETE, 1L, null)));
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.VERSION_CONFLICT));
+  }
 
+  @Test
+  public void testImport() {
+    when(this.employeeRepository.save(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(TEST_EMPLOYEE_2);
+    val service = this.newService();
+    val result = service.importEmployees(Collections.singletonList(TEST_EMPLOYEE_2.withId(9L)));
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight(), contains(sameEmployeeAs(TEST_EMPLOYEE_2)));
+    verify(this.employeeRepository).save(argThat(sameEmployeeAs(TEST_EMPLOYEE_2.withId(null).withVersion(null))));
+    verify(this.employeeRepository).flush();
+    assertThat(service.retrieveDepartmentStatistics().get(0).getHeadcount(), is(1L));
+    assertThat(service.getModificationSequence(), is(1L));
+  }
+
+  @Test
+  public void testImportWithValidationFailure() {
+    val result = this.newService().importEmployees(Arrays.asList(TEST_EMPLOYEE_1, TEST_EMPLOYEE_2.withName("")));
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
+    verify(this.employeeRepository, never()).save(ArgumentMatchers.any(EmployeeEntity.class));
+  }
+
+  @Test
+  public void testImportWithError() {
+    doThrow(new RuntimeException()).when(this.employeeRepository).flush();
+    val result = this.newService().importEmployees(Collections.singletonList(TEST_EMPLOYEE_1));
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.UNKNOWN_FAILURE));
+  }
+
+  @Test
+  public void testRetrieveChanges() {
+    when(this.employeeRepository.saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class))).thenReturn(TEST_EMPLOYEE_1)
+      .thenReturn(TEST_EMPLOYEE_2);
+    val service = this.newService();
+    service.saveEmployee(TEST_EMPLOYEE_1.withId(null));
+    service.saveEmployee(TEST_EMPLOYEE_2.withId(null));
+    verify(this.changeRepository, times(2)).save(ArgumentMatchers.any(EmployeeChangeEntity.class));
+
+    val changes = Arrays.asList(EmployeeChangeEntity.created(1L, 1L, false), EmployeeChangeEntity.created(2L, 2L, true));
+    when(this.changeRepository.findByChangeSeqBetweenOrderByChangeSeqAsc(1L, 2L, PageRequest.of(0, 2)))
+      .thenReturn(changes);
+    when(this.changeRepository.findByChangeSeqBetweenOrderByChangeSeqAsc(1L, 2L, PageRequest.of(0, 11)))
+      .thenReturn(changes);
+    when(this.employeeRepository.findAllById(Collections.singletonList(1L)))
+      .thenReturn(Collections.singletonList(TEST_EMPLOYEE_1));
+
+    val page = service.retrieveChanges(0, 1);
+    assertThat(page.getRight().getUpdated(), is(Collections.singletonList(TEST_EMPLOYEE_1)));
+    assertThat(page.getRight().getDeleted(), is(empty()));
+    assertThat(page.getRight().getNextSince(), is(1L));
+    assertThat(page.getRight().isHasMore(), is(true));
+
+    val all = service.retrieveChanges(0, 10);
+    assertThat(all.getRight().getUpdated(), is(Collections.singletonList(TEST_EMPLOYEE_1)));
+    assertThat(all.getRight().getDeleted(), is(Collections.singletonList(2L)));
+    assertThat(all.getRight().getNextSince(), is(2L));
+    assertThat(all.getRight().isHasMore(), is(false));
+
+    val latest = service.retrieveChanges(2, 10);
+    assertThat(latest.getRight().getUpdated(), is(empty()));
+    assertThat(latest.getRight().getNextSince(), is(2L));
+  }
+
+  @Test
+  public void testRetrieveChangesAheadOfServer() {
+    val result = this.newService().retrieveChanges(1, 10);
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.VALIDATION_FAILURE));
+  }
+
+  @Test
+  public void testSaveInGroupCommit() {
+    when(this.employeeRepository.save(ArgumentMatchers.any(EmployeeEntity.class)))
+      .then(invocation -> invocation.<EmployeeEntity>getArgument(0).withId(5L).withVersion(0L));
+    val service = this.newService(true);
+    val result = service.saveEmployee(TEST_EMPLOYEE_1.withId(null));
+    assertThat(result.isRight(), is(true));
+    assertThat(result.getRight().getId(), is(5L));
+    // Reflected to the cache in the same way as the single write.
+    assertThat(service.getEmployee(5L).isPresent(), is(true));
+    verify(this.employeeRepository, never()).saveAndFlush(ArgumentMatchers.any(EmployeeEntity.class));
+    verify(this.employeeRepository, never()).findById(5L);
+    verify(this.employeeRepository).flush();
+  }
+
+  @Test
+  public void testUpdateInGroupCommitWithConcurrentModification() {
+    when(this.employeeRepository.findAllById(ArgumentMatchers.any()))
+      .thenReturn(Collections.singletonList(TEST_EMPLOYEE_1.copy()));
+    doThrow(new ObjectOptimisticLockingFailureException(EmployeeEntity.class, 1L))
+      .when(this.employeeRepository).flush();
+    val result = this.newService(true).updateEmployee(TEST_EMPLOYEE_1.withSalary(20000));
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.VERSION_CONFLICT));
+  }
+
+  @Test
+  public void testSaveInGroupCommitTimedOut() throws Exception {
+    val release = new CountDownLatch(1);
+    when(this.employeeRepository.save(ArgumentMatchers.any(EmployeeEntity.class))).then(invocation -> {
+      release.await();
+      return invocation.<EmployeeEntity>getArgument(0).withId(5L).withVersion(0L);
+    });
+    val service = this.newService(true, Duration.ofMillis(50));
+    val result = service.saveEmployee(TEST_EMPLOYEE_1.withId(null));
+    assertThat(result.isLeft(), is(true));
+    assertThat(result.getLeft(), is(CRUDErrorStatus.UNKNOWN_FAILURE));
+
+    // Committed after the caller has given up, and still reflected to the cache.
+    release.countDown();
+    for (int i = 0; i < 100 && !service.getEmployee(5L).isPresent(); i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertThat(service.getEmployee(5L).isPresent(), is(true));
+  }
+
+  @Test
+  public void testReplicaReadNotCached() {
+    when(this.employeeRepository.findById(1L)).thenReturn(Optional.of(TEST_EMPLOYEE_1.copy()));
+    val service = this.newService();
+    ReadRoute.set(true);
+    try {
+      service.getEmployee(1L);
+      service.getEmployee(1L);
+    } finally {
+      ReadRoute.clear();
+    }
+    verify(this.employeeRepository, times(2)).findById(1L);
+    // Read from the primary is cached.
+    service.getEmployee(1L);
+    service.getEmployee(1L);
+    verify(this.employeeRepository, times(3)).findById(1L);
   }
 }
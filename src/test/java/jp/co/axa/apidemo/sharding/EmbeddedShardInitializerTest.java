@@ -0,0 +1,57 @@
+package jp.co.axa.apidemo.sharding;
+
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Arrays;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class EmbeddedShardInitializerTest {
+
+  private EmbeddedDatabase first;
+  private EmbeddedDatabase second;
+  private EmbeddedShardInitializer initializer;
+
+  @Before
+  public void before() {
+    this.first = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("init-shard1").build();
+    this.second = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("init-shard2").build();
+    val jdbcTemplate = new JdbcTemplate(first);
+    jdbcTemplate.execute("CREATE SEQUENCE EMPLOYEE_SEQ START WITH 1 INCREMENT BY 50");
+    jdbcTemplate.execute("CREATE TABLE EMPLOYEE (ID BIGINT PRIMARY KEY, EMPLOYEE_NAME VARCHAR(255))");
+    this.initializer = new EmbeddedShardInitializer(new ShardRoutingDataSource(Arrays.asList(first, second)),
+      new IdRangeSharding(2, 1000));
+  }
+
+  @After
+  public void after() {
+    first.shutdown();
+    second.shutdown();
+  }
+
+  private static long nextId(EmbeddedDatabase database) {
+    return new JdbcTemplate(database).queryForObject("SELECT NEXT VALUE FOR EMPLOYEE_SEQ", Long.class);
+  }
+
+  @Test
+  public void testSchemaCopiedAndSequenceMoved() {
+    initializer.afterSingletonsInstantiated();
+    assertThat(new JdbcTemplate(second).queryForObject("SELECT COUNT(*) FROM EMPLOYEE", Integer.class), is(0));
+    // Highest ID of the first pool of each shard.
+    assertThat(nextId(first), is(50L));
+    assertThat(nextId(second), is(1050L));
+
+    // Sequences already in the range are kept.
+    initializer.afterSingletonsInstantiated();
+    assertThat(nextId(first), is(100L));
+    assertThat(nextId(second), is(1100L));
+  }
+}
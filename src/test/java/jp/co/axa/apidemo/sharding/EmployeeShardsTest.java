@@ -0,0 +1,93 @@
+package jp.co.axa.apidemo.sharding;
+
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class EmployeeShardsTest {
+
+  private final List<EmbeddedDatabase> databases = new ArrayList<>();
+  private EmployeeShards shards;
+  private JdbcTemplate jdbcTemplate;
+
+  /**
+   * Each embedded H2 DB knows which shard it is.
+   */
+  private static EmbeddedDatabase newDatabase(String name) {
+    val database = new EmbeddedDatabaseBuilder()
+      .setType(EmbeddedDatabaseType.H2)
+      .setName(name)
+      .build();
+    val jdbcTemplate = new JdbcTemplate(database);
+    jdbcTemplate.execute("CREATE TABLE NODE (NAME VARCHAR(16))");
+    jdbcTemplate.update("INSERT INTO NODE VALUES (?)", name);
+    return database;
+  }
+
+  @Before
+  public void before() {
+    for (int i = 0; i < 3; i++) {
+      databases.add(newDatabase("shard" + i));
+    }
+    this.shards = new EmployeeShards(Optional.of(new IdRangeSharding(3, 10)), 2);
+    this.jdbcTemplate = new JdbcTemplate(new ShardRoutingDataSource(new ArrayList<>(databases)));
+  }
+
+  @After
+  public void after() {
+    shards.destroy();
+    databases.forEach(EmbeddedDatabase::shutdown);
+  }
+
+  private String node() {
+    return jdbcTemplate.queryForObject("SELECT NAME FROM NODE", String.class);
+  }
+
+  @Test
+  public void testRouting() {
+    assertThat(node(), is("shard0"));
+    assertThat(shards.on(shards.shardOf(15), this::node), is("shard1"));
+    assertThat(shards.scatter(this::node), is(Arrays.asList("shard0", "shard1", "shard2")));
+    // Shard 0 has no ID greater than 15.
+    assertThat(shards.scatterAfter(15, this::node), is(Arrays.asList("shard1", "shard2")));
+    assertThat(node(), is("shard0"));
+  }
+
+  @Test
+  public void testScatterByKeepsOrderOfItems() {
+    val results = shards.scatterBy(Arrays.asList(25L, 3L, 14L, 7L), shards::shardOf,
+      part -> part.stream().map(id -> id + "@" + node()).collect(Collectors.toList()));
+    assertThat(results, is(Arrays.asList("25@shard2", "3@shard0", "14@shard1", "7@shard0")));
+  }
+
+  @Test
+  public void testMerge() {
+    val merged = EmployeeShards.merge(Arrays.asList(Arrays.asList(1, 4, 9), Collections.emptyList(),
+      Arrays.asList(2, 3, 10)), Comparator.naturalOrder(), 5);
+    assertThat(merged, is(Arrays.asList(1, 2, 3, 4, 9)));
+  }
+
+  @Test
+  public void testSingleShard() {
+    val single = EmployeeShards.single();
+    assertThat(single.size(), is(1));
+    assertThat(single.shardForNew(), is(0));
+    assertThat(single.scatter(this::node), is(Collections.singletonList("shard0")));
+  }
+}
@@ -0,0 +1,35 @@
+package jp.co.axa.apidemo.sharding;
+
+import lombok.val;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class IdRangeShardingTest {
+
+  @Test
+  public void testShardOfId() {
+    val sharding = new IdRangeSharding(3, 100);
+    assertThat(sharding.shardOf(1), is(0));
+    assertThat(sharding.shardOf(100), is(0));
+    assertThat(sharding.shardOf(101), is(1));
+    assertThat(sharding.shardOf(300), is(2));
+    // Out of the ranges.
+    assertThat(sharding.shardOf(0), is(0));
+    assertThat(sharding.shardOf(Long.MAX_VALUE), is(2));
+  }
+
+  @Test
+  public void testRangeOfShard() {
+    val sharding = new IdRangeSharding(3, 100);
+    assertThat(sharding.lowestIdOf(1), is(101L));
+    assertThat(sharding.highestIdOf(1), is(200L));
+    assertThat(sharding.highestIdOf(2), is(Long.MAX_VALUE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoShard() {
+    new IdRangeSharding(0, 100);
+  }
+}
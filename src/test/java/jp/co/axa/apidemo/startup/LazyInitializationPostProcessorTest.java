@@ -0,0 +1,33 @@
+package jp.co.axa.apidemo.startup;
+
+import lombok.val;
+import org.junit.Test;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.util.Collections;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class LazyInitializationPostProcessorTest {
+
+  public static class Initializer implements SmartInitializingSingleton {
+    @Override
+    public void afterSingletonsInstantiated() {
+    }
+  }
+
+  @Test
+  public void testOnlyPlainBeansMadeLazy() {
+    val beanFactory = new DefaultListableBeanFactory();
+    beanFactory.registerBeanDefinition("plain", new RootBeanDefinition(Object.class));
+    beanFactory.registerBeanDefinition("eager", new RootBeanDefinition(Object.class));
+    beanFactory.registerBeanDefinition("initializer", new RootBeanDefinition(Initializer.class));
+    new LazyInitializationPostProcessor(Collections.singletonList("eager")).postProcessBeanFactory(beanFactory);
+    assertThat(beanFactory.getBeanDefinition("plain").isLazyInit(), is(true));
+    assertThat(beanFactory.getBeanDefinition("eager").isLazyInit(), is(false));
+    assertThat(beanFactory.getBeanDefinition("initializer").isLazyInit(), is(false));
+  }
+}